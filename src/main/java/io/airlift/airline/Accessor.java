@@ -1,5 +1,7 @@
 package io.airlift.airline;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
@@ -16,15 +18,17 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
 
 public class Accessor
 {
     private final String name;
-    private final Class<?> javaType;
-    private final List<Field> path;
-    private boolean multiValued;
+    private final List<String> fieldDescriptors;
+    private final boolean multiValued;
+    private final Supplier<List<Field>> path;
+    private final Supplier<Class<?>> javaType;
 
     public Accessor(Field... path)
     {
@@ -36,13 +40,39 @@ public class Accessor
         requireNonNull(path, "path is null");
         checkArgument(!Iterables.isEmpty(path), "path is empty");
 
-        this.path = ImmutableList.copyOf(path);
-        this.name = this.path.get(0).getDeclaringClass().getSimpleName() + "." +
-                this.path.stream().map(Field::getName).collect(joining("."));
+        List<Field> fields = ImmutableList.copyOf(path);
+        this.name = fields.get(0).getDeclaringClass().getSimpleName() + "." +
+                fields.stream().map(Field::getName).collect(joining("."));
+        this.fieldDescriptors = fields.stream()
+                .map(Accessor::toFieldDescriptor)
+                .collect(toImmutableList());
+
+        Field field = fields.get(fields.size() - 1);
+        this.multiValued = isMultiValued(field.getType());
+        this.path = Suppliers.ofInstance(fields);
+        this.javaType = Suppliers.ofInstance(getItemType(name, field.getGenericType()));
+    }
 
-        Field field = this.path.get(this.path.size() - 1);
-        multiValued = Collection.class.isAssignableFrom(field.getType());
-        javaType = getItemType(name, field.getGenericType());
+    /**
+     * Creates an accessor whose fields are only looked up, using the class loader, when
+     * the accessor is first used to read or write a value. Each field is described as
+     * the binary name of the declaring class and the field name separated by {@code #}.
+     */
+    public Accessor(String name, List<String> fieldDescriptors, boolean multiValued, ClassLoader classLoader)
+    {
+        requireNonNull(name, "name is null");
+        requireNonNull(fieldDescriptors, "fieldDescriptors is null");
+        checkArgument(!fieldDescriptors.isEmpty(), "fieldDescriptors is empty");
+        requireNonNull(classLoader, "classLoader is null");
+
+        this.name = name;
+        this.fieldDescriptors = ImmutableList.copyOf(fieldDescriptors);
+        this.multiValued = multiValued;
+        this.path = Suppliers.memoize(() -> resolveFields(this.fieldDescriptors, classLoader));
+        this.javaType = Suppliers.memoize(() -> {
+            List<Field> fields = this.path.get();
+            return getItemType(name, fields.get(fields.size() - 1).getGenericType());
+        });
     }
 
     public String getName()
@@ -52,7 +82,7 @@ public class Accessor
 
     public Class<?> getJavaType()
     {
-        return javaType;
+        return javaType.get();
     }
 
     public boolean isMultiValued()
@@ -60,9 +90,20 @@ public class Accessor
         return multiValued;
     }
 
+    public List<Field> getPath()
+    {
+        return path.get();
+    }
+
+    public List<String> getFieldDescriptors()
+    {
+        return fieldDescriptors;
+    }
+
     public Object getValue(Object instance)
     {
         StringBuilder pathName = new StringBuilder();
+        List<Field> path = this.path.get();
         for (Field intermediateField : path.subList(0, path.size() - 1)) {
             if (pathName.length() != 0) {
                 pathName.append(".");
@@ -93,12 +134,21 @@ public class Accessor
         // get the actual instance
         Object instance = getValue(commandInstance);
 
+        List<Field> path = this.path.get();
         Field field = path.get(path.size() - 1);
         field.setAccessible(true);
         if (Collection.class.isAssignableFrom(field.getType())) {
             Collection<Object> collection = getOrCreateCollectionField(name, instance, field);
             Iterables.addAll(collection, values);
         }
+        else if (PrimitiveValues.getItemType(field.getType()) != null) {
+            try {
+                field.set(instance, PrimitiveValues.append(field.getType(), field.get(instance), values));
+            }
+            catch (Exception e) {
+                throw new ParseException(e, "Error setting %s for argument %s", field.getName(), name);
+            }
+        }
         else {
             try {
                 field.set(instance, Iterables.getLast(values));
@@ -121,7 +171,7 @@ public class Accessor
 
         Accessor accessor = (Accessor) o;
 
-        if (!path.equals(accessor.path)) {
+        if (!fieldDescriptors.equals(accessor.fieldDescriptors)) {
             return false;
         }
 
@@ -131,7 +181,7 @@ public class Accessor
     @Override
     public int hashCode()
     {
-        return path.hashCode();
+        return fieldDescriptors.hashCode();
     }
 
     @Override
@@ -144,8 +194,37 @@ public class Accessor
     // Private reflection helper methods
     //
 
+    private static boolean isMultiValued(Class<?> type)
+    {
+        return Collection.class.isAssignableFrom(type) || PrimitiveValues.getItemType(type) != null;
+    }
+
+    private static String toFieldDescriptor(Field field)
+    {
+        return field.getDeclaringClass().getName() + "#" + field.getName();
+    }
+
+    private static List<Field> resolveFields(List<String> fieldDescriptors, ClassLoader classLoader)
+    {
+        ImmutableList.Builder<Field> fields = ImmutableList.builder();
+        for (String descriptor : fieldDescriptors) {
+            int separator = descriptor.indexOf('#');
+            checkArgument(separator > 0, "Invalid field descriptor %s", descriptor);
+            try {
+                Class<?> type = Class.forName(descriptor.substring(0, separator), false, classLoader);
+                Field field = type.getDeclaredField(descriptor.substring(separator + 1));
+                field.setAccessible(true);
+                fields.add(field);
+            }
+            catch (ReflectiveOperationException e) {
+                throw new ParseException(e, "Unable to resolve field %s", descriptor);
+            }
+        }
+        return fields.build();
+    }
+
     @SuppressWarnings("unchecked")
-    private static Collection<Object> newCollection(Class<?> type)
+    static Collection<Object> newCollection(Class<?> type)
     {
         if (Collection.class.equals(type) || List.class.equals(type)) {
             return new ArrayList<Object>();
@@ -195,6 +274,11 @@ public class Accessor
             throw new ParseException("Type of option %s be an exact type", name);
         }
 
+        Class<?> primitiveItemType = PrimitiveValues.getItemType(rawClass);
+        if (primitiveItemType != null) {
+            return primitiveItemType;
+        }
+
         if (!Collection.class.isAssignableFrom(rawClass)) {
             return rawClass;
         }
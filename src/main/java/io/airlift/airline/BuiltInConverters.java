@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import java.time.Duration;
+
+/**
+ * Parsers for the values {@link TypeConverter} converts without reflection. They read
+ * the characters of the value directly, without regular expressions or substrings,
+ * and report invalid values with a {@link NumberFormatException}.
+ */
+final class BuiltInConverters
+{
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private BuiltInConverters() {}
+
+    /**
+     * Parses a decimal integer with an optional {@code k}, {@code M}, {@code G} or
+     * {@code T} suffix in either case, which multiplies it by a power of 1000, such as
+     * {@code 10k}.
+     */
+    public static long parseSuffixedLong(String value)
+    {
+        int end = value.length();
+        long multiplier = end > 1 ? getDecimalMultiplier(value.charAt(end - 1)) : 1;
+        if (multiplier != 1) {
+            end--;
+        }
+
+        int index = 0;
+        boolean negative = false;
+        if (end > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            index++;
+        }
+        if (index == end) {
+            throw invalid(value);
+        }
+
+        // accumulate negatively, so the minimum value can be parsed
+        long result = 0;
+        for (; index < end; index++) {
+            int digit = value.charAt(index) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(value);
+            }
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                throw invalid(value);
+            }
+            result = result * 10 - digit;
+        }
+
+        try {
+            return Math.multiplyExact(negative ? result : Math.negateExact(result), multiplier);
+        }
+        catch (ArithmeticException e) {
+            throw invalid(value);
+        }
+    }
+
+    /**
+     * Parses a duration such as {@code 30s}, {@code 1.5h} or {@code 1h30m}, with the
+     * units {@code ns}, {@code us}, {@code ms}, {@code s}, {@code m}, {@code h} and
+     * {@code d}, or an ISO-8601 duration such as {@code PT30S}.
+     */
+    public static Duration parseDuration(String value)
+    {
+        int length = value.length();
+        int index = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            index++;
+        }
+        if (index < length && (value.charAt(index) == 'P' || value.charAt(index) == 'p')) {
+            return Duration.parse(value);
+        }
+        if (index == length) {
+            throw invalid(value);
+        }
+
+        long seconds = 0;
+        long nanos = 0;
+        int components = 0;
+        try {
+            while (index < length) {
+                int start = index;
+                long whole = 0;
+                while (index < length && isDigit(value.charAt(index))) {
+                    whole = Math.addExact(Math.multiplyExact(whole, 10), value.charAt(index) - '0');
+                    index++;
+                }
+                double fraction = 0;
+                if (index < length && value.charAt(index) == '.') {
+                    index++;
+                    int fractionStart = index;
+                    double scale = 0.1;
+                    while (index < length && isDigit(value.charAt(index))) {
+                        fraction += (value.charAt(index) - '0') * scale;
+                        scale /= 10;
+                        index++;
+                    }
+                    if (index == fractionStart) {
+                        throw invalid(value);
+                    }
+                }
+                if (index == start) {
+                    throw invalid(value);
+                }
+
+                index = skipSpaces(value, index);
+                int unitStart = index;
+                while (index < length && !isDigit(value.charAt(index)) && value.charAt(index) != ' ') {
+                    index++;
+                }
+                long unitNanos = getDurationUnitNanos(value, unitStart, index);
+                index = skipSpaces(value, index);
+                components++;
+
+                if (unitNanos == 0) {
+                    // a unit may only be omitted for a single zero
+                    if (whole != 0 || fraction != 0 || index < length || components > 1) {
+                        throw invalid(value);
+                    }
+                }
+                else if (unitNanos >= NANOS_PER_SECOND) {
+                    seconds = Math.addExact(seconds, Math.multiplyExact(whole, unitNanos / NANOS_PER_SECOND));
+                    nanos = Math.addExact(nanos, Math.round(fraction * unitNanos));
+                }
+                else {
+                    nanos = Math.addExact(nanos, Math.addExact(Math.multiplyExact(whole, unitNanos), Math.round(fraction * unitNanos)));
+                }
+            }
+        }
+        catch (ArithmeticException e) {
+            throw invalid(value);
+        }
+
+        Duration duration = Duration.ofSeconds(seconds, nanos);
+        return negative ? duration.negated() : duration;
+    }
+
+    /**
+     * Parses an amount of data as described by {@link DataSize} and returns it in bytes.
+     */
+    public static long parseDataSize(String value)
+    {
+        int length = value.length();
+        int index = skipSpaces(value, 0);
+        int start = index;
+        long whole = 0;
+        double fraction = 0;
+        try {
+            while (index < length && isDigit(value.charAt(index))) {
+                whole = Math.addExact(Math.multiplyExact(whole, 10), value.charAt(index) - '0');
+                index++;
+            }
+            if (index == start) {
+                throw invalid(value);
+            }
+            if (index < length && value.charAt(index) == '.') {
+                index++;
+                int fractionStart = index;
+                double scale = 0.1;
+                while (index < length && isDigit(value.charAt(index))) {
+                    fraction += (value.charAt(index) - '0') * scale;
+                    scale /= 10;
+                    index++;
+                }
+                if (index == fractionStart) {
+                    throw invalid(value);
+                }
+            }
+
+            int unitStart = skipSpaces(value, index);
+            int unitEnd = unitStart;
+            while (unitEnd < length && value.charAt(unitEnd) != ' ') {
+                unitEnd++;
+            }
+            if (skipSpaces(value, unitEnd) != length) {
+                throw invalid(value);
+            }
+            long multiplier = getDataSizeMultiplier(value, unitStart, unitEnd);
+            return Math.addExact(Math.multiplyExact(whole, multiplier), Math.round(fraction * multiplier));
+        }
+        catch (ArithmeticException e) {
+            throw invalid(value);
+        }
+    }
+
+    private static long getDecimalMultiplier(char suffix)
+    {
+        switch (suffix) {
+            case 'k':
+            case 'K':
+                return 1_000L;
+            case 'm':
+            case 'M':
+                return 1_000_000L;
+            case 'g':
+            case 'G':
+                return 1_000_000_000L;
+            case 't':
+            case 'T':
+                return 1_000_000_000_000L;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Returns the length of the unit in nanoseconds, or 0 if the unit is empty.
+     */
+    private static long getDurationUnitNanos(String value, int start, int end)
+    {
+        switch (end - start) {
+            case 0:
+                return 0;
+            case 1:
+                switch (value.charAt(start)) {
+                    case 's':
+                        return NANOS_PER_SECOND;
+                    case 'm':
+                        return 60 * NANOS_PER_SECOND;
+                    case 'h':
+                        return 60 * 60 * NANOS_PER_SECOND;
+                    case 'd':
+                        return 24 * 60 * 60 * NANOS_PER_SECOND;
+                    default:
+                        throw invalid(value);
+                }
+            case 2:
+                if (value.charAt(start + 1) == 's') {
+                    switch (value.charAt(start)) {
+                        case 'n':
+                            return 1;
+                        case 'u':
+                        case '\u00b5':
+                            return 1_000L;
+                        case 'm':
+                            return 1_000_000L;
+                        default:
+                            break;
+                    }
+                }
+                throw invalid(value);
+            default:
+                throw invalid(value);
+        }
+    }
+
+    private static long getDataSizeMultiplier(String value, int start, int end)
+    {
+        if (end - start == 1 && value.charAt(start) == 'B') {
+            return 1;
+        }
+        if (end - start != 2 || value.charAt(start + 1) != 'B') {
+            throw invalid(value);
+        }
+        switch (value.charAt(start)) {
+            case 'k':
+                return 1L << 10;
+            case 'M':
+                return 1L << 20;
+            case 'G':
+                return 1L << 30;
+            case 'T':
+                return 1L << 40;
+            case 'P':
+                return 1L << 50;
+            default:
+                throw invalid(value);
+        }
+    }
+
+    private static int skipSpaces(String value, int index)
+    {
+        while (index < value.length() && value.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static NumberFormatException invalid(String value)
+    {
+        return new NumberFormatException("For input string: \"" + value + "\"");
+    }
+}
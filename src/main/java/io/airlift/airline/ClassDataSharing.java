@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates JDK class data sharing archives for short-lived command line programs.
+ * A training run builds the CLI, renders the usage of the program, every group and
+ * every command, and parses every command, so that a JVM started with
+ * {@code -XX:ArchiveClassesAtExit} archives the airline, Guava and command classes
+ * a real invocation loads. Later invocations started with
+ * {@code -XX:SharedArchiveFile} map those classes from the archive instead of loading
+ * and verifying them again.
+ * <p>
+ * Dynamic archives require JDK 13 or later, and only classes loaded from jar files are
+ * archived. Training does not run any command, but it does create command instances,
+ * so command constructors should be free of side effects.
+ */
+public final class ClassDataSharing
+{
+    private static final String UNKNOWN_OPTION = "--airline-training-unknown-option";
+
+    private ClassDataSharing() {}
+
+    /**
+     * Exercises building, parsing and help rendering of the CLI, discarding the output.
+     */
+    public static void train(Cli<?> cli)
+    {
+        requireNonNull(cli, "cli is null");
+        GlobalMetadata global = cli.getMetadata();
+
+        StringBuilder out = new StringBuilder();
+        Help.help(global, ImmutableList.of(), out);
+        Help.help(global, ImmutableList.of(global.getName()), out);
+        for (CommandMetadata command : global.getDefaultGroupCommands()) {
+            Help.help(global, ImmutableList.of(command.getName()), out);
+            train(cli, ImmutableList.of(command.getName()));
+        }
+        for (CommandGroupMetadata group : global.getCommandGroups()) {
+            Help.help(global, ImmutableList.of(group.getName()), out);
+            for (CommandMetadata command : group.getCommands()) {
+                Help.help(global, ImmutableList.of(group.getName(), command.getName()), out);
+                train(cli, ImmutableList.of(group.getName(), command.getName()));
+            }
+        }
+
+        // load the classes used to report errors
+        train(cli, ImmutableList.of(UNKNOWN_OPTION));
+    }
+
+    private static void train(Cli<?> cli, List<String> args)
+    {
+        try {
+            cli.parse(args);
+        }
+        catch (ParseException ignored) {
+            // commands with required options or arguments fail, which is fine for training
+        }
+    }
+
+    /**
+     * Returns whether the running JDK can create class data sharing archives at exit.
+     */
+    public static boolean isArchiveAtExitSupported()
+    {
+        return getFeatureVersion(System.getProperty("java.specification.version")) >= 13;
+    }
+
+    static int getFeatureVersion(String specificationVersion)
+    {
+        if (specificationVersion.startsWith("1.")) {
+            specificationVersion = specificationVersion.substring(2);
+        }
+        int end = specificationVersion.indexOf('.');
+        return Integer.parseInt(end < 0 ? specificationVersion : specificationVersion.substring(0, end));
+    }
+
+    /**
+     * Returns the JVM options that launch a program using the archive. The JVM ignores
+     * an archive that is missing or was created from a different class path or JDK.
+     */
+    public static List<String> launchOptions(Path archive)
+    {
+        requireNonNull(archive, "archive is null");
+        return ImmutableList.of("-XX:SharedArchiveFile=" + archive, "-Xshare:auto");
+    }
+
+    /**
+     * Returns the command that runs training for the CLI created by the named
+     * {@code Supplier<Cli<?>>} class and writes the archive when the JVM exits.
+     */
+    public static List<String> trainingCommand(Path archive, String classPath, String supplierClassName)
+    {
+        requireNonNull(archive, "archive is null");
+        requireNonNull(classPath, "classPath is null");
+        requireNonNull(supplierClassName, "supplierClassName is null");
+        return ImmutableList.of(
+                javaExecutable(),
+                "-XX:ArchiveClassesAtExit=" + archive,
+                "-cp",
+                classPath,
+                ClassDataSharing.class.getName(),
+                supplierClassName);
+    }
+
+    /**
+     * Runs training in a new JVM and waits for it to write the archive.
+     */
+    public static void createArchive(Path archive, String classPath, String supplierClassName)
+            throws IOException, InterruptedException
+    {
+        if (!isArchiveAtExitSupported()) {
+            throw new UnsupportedOperationException("Creating class data sharing archives requires JDK 13 or later");
+        }
+
+        Process process = new ProcessBuilder(trainingCommand(archive, classPath, supplierClassName))
+                .inheritIO()
+                .start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Training run exited with code " + exitCode);
+        }
+    }
+
+    private static String javaExecutable()
+    {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        if (args.length == 1) {
+            train(DocumentationGenerator.loadCli(args[0]));
+            return;
+        }
+        if (args.length == 2) {
+            createArchive(Paths.get(args[1]), System.getProperty("java.class.path"), args[0]);
+            return;
+        }
+
+        System.err.println("Usage: ClassDataSharing <cli-supplier-class> [<archive-file>]");
+        System.exit(1);
+    }
+}
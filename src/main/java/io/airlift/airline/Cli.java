@@ -21,18 +21,28 @@ package io.airlift.airline;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import io.airlift.airline.model.ArgumentsMetadata;
+import com.google.common.collect.Iterables;
 import io.airlift.airline.model.CommandGroupMetadata;
 import io.airlift.airline.model.CommandMetadata;
 import io.airlift.airline.model.GlobalMetadata;
 import io.airlift.airline.model.MetadataLoader;
-import io.airlift.airline.model.OptionMetadata;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -41,7 +51,11 @@ import static io.airlift.airline.ParserUtil.createInstance;
 import static io.airlift.airline.ParserUtil.injectOptions;
 import static io.airlift.airline.model.MetadataLoader.loadCommand;
 import static io.airlift.airline.model.MetadataLoader.loadCommandGroup;
+import static io.airlift.airline.model.MetadataLoader.loadCommandGroupLazily;
+import static io.airlift.airline.model.MetadataLoader.loadCommandLazily;
 import static io.airlift.airline.model.MetadataLoader.loadCommands;
+import static io.airlift.airline.model.MetadataLoader.loadCommandsLazily;
+import static io.airlift.airline.model.MetadataLoader.loadIndexedCommand;
 import static java.util.Objects.requireNonNull;
 
 public class Cli<C>
@@ -65,17 +79,81 @@ public class Cli<C>
     }
 
     private final GlobalMetadata metadata;
+    private final boolean collectAllErrors;
+    private final Executor argumentConversionExecutor;
+    private final OptionDefaults optionDefaults;
 
     private Cli(String name,
             String description,
             TypeConverter typeConverter,
+            boolean collectAllErrors,
+            boolean lazyMetadata,
+            Executor loadingExecutor,
+            Executor argumentConversionExecutor,
+            OptionDefaults optionDefaults,
             Class<? extends C> defaultCommand,
             Iterable<Class<? extends C>> defaultGroupCommands,
-            Iterable<GroupBuilder<C>> groups)
+            Iterable<GroupBuilder<C>> groups,
+            ClassLoader discoveryClassLoader,
+            URL metadataSnapshot,
+            boolean verifyMetadataSnapshot)
     {
         requireNonNull(name, "name is null");
         requireNonNull(typeConverter, "typeConverter is null");
 
+        this.collectAllErrors = collectAllErrors;
+        this.argumentConversionExecutor = argumentConversionExecutor;
+        this.optionDefaults = requireNonNull(optionDefaults, "optionDefaults is null");
+
+        if (metadataSnapshot != null) {
+            GlobalMetadata snapshotMetadata = loadSnapshot(metadataSnapshot, verifyMetadataSnapshot, name, description, defaultCommand, defaultGroupCommands, groups);
+            if (snapshotMetadata != null) {
+                this.metadata = snapshotMetadata;
+                return;
+            }
+        }
+
+        if (discoveryClassLoader != null) {
+            this.metadata = loadDiscovered(name, description, discoveryClassLoader, defaultCommand, defaultGroupCommands, groups);
+            return;
+        }
+
+        if (lazyMetadata) {
+            List<CommandIndex.Entry> index = CommandIndex.load(commandClassLoader(defaultCommand, defaultGroupCommands, groups));
+            this.metadata = MetadataLoader.loadGlobalLazily(
+                    name,
+                    description,
+                    Optional.ofNullable(defaultCommand)
+                            .map(MetadataLoader::loadCommandLazily)
+                            .orElse(null),
+                    loadCommandsLazily(defaultGroupCommands),
+                    stream(groups)
+                            .map(group -> loadCommandGroupLazily(
+                                    group.name,
+                                    group.description,
+                                    Optional.ofNullable(group.defaultCommand)
+                                            .map(MetadataLoader::loadCommandLazily)
+                                            .orElse(null),
+                                    loadCommandsLazily(group.commands),
+                                    index))
+                            .collect(toImmutableList()),
+                    index);
+            return;
+        }
+
+        if (loadingExecutor != null) {
+            // load in registration order, so the first failure is the one a sequential load reports;
+            // the metadata is cached per class, so the code below only assembles it
+            List<Class<? extends C>> commandTypes = new ArrayList<>();
+            Optional.ofNullable(defaultCommand).ifPresent(commandTypes::add);
+            Iterables.addAll(commandTypes, defaultGroupCommands);
+            for (GroupBuilder<C> group : groups) {
+                Optional.ofNullable(group.defaultCommand).ifPresent(commandTypes::add);
+                commandTypes.addAll(group.commands);
+            }
+            loadCommands(commandTypes, loadingExecutor);
+        }
+
         CommandMetadata defaultCommandMetadata = null;
         if (defaultCommand != null) {
             defaultCommandMetadata = loadCommand(defaultCommand);
@@ -96,6 +174,136 @@ public class Cli<C>
         this.metadata = MetadataLoader.loadGlobal(name, description, defaultCommandMetadata, defaultCommandGroup, commandGroups);
     }
 
+    /**
+     * Combines the registered commands with the commands of the {@link CommandIndex}.
+     * All commands are loaded lazily, and a global or group option only reads the
+     * commands that may declare it, see {@link MetadataLoader#loadGlobalLazily}.
+     */
+    private static <C> GlobalMetadata loadDiscovered(String name,
+            String description,
+            ClassLoader classLoader,
+            Class<? extends C> defaultCommand,
+            Iterable<Class<? extends C>> defaultGroupCommands,
+            Iterable<GroupBuilder<C>> groups)
+    {
+        List<CommandIndex.Entry> index = CommandIndex.load(classLoader);
+
+        CommandMetadata defaultCommandMetadata = Optional.ofNullable(defaultCommand)
+                .map(MetadataLoader::loadCommandLazily)
+                .orElse(null);
+        List<CommandMetadata> topLevelCommands = new ArrayList<>(loadCommandsLazily(defaultGroupCommands));
+
+        Map<String, DiscoveredGroup> discoveredGroups = new LinkedHashMap<>();
+        for (GroupBuilder<C> group : groups) {
+            CommandMetadata groupDefaultCommand = Optional.ofNullable(group.defaultCommand)
+                    .map(MetadataLoader::loadCommandLazily)
+                    .orElse(null);
+            DiscoveredGroup discoveredGroup = new DiscoveredGroup(group.name, group.description, groupDefaultCommand);
+            discoveredGroup.commands.addAll(loadCommandsLazily(group.commands));
+            discoveredGroups.put(group.name, discoveredGroup);
+        }
+
+        for (CommandIndex.Entry entry : index) {
+            CommandMetadata command = loadIndexedCommand(entry, classLoader);
+            if (entry.getGroup().isEmpty()) {
+                topLevelCommands.add(command);
+            }
+            else {
+                discoveredGroups.computeIfAbsent(entry.getGroup(), group -> new DiscoveredGroup(group, null, null))
+                        .commands.add(command);
+            }
+        }
+
+        List<CommandGroupMetadata> commandGroups = discoveredGroups.values().stream()
+                .map(group -> loadCommandGroupLazily(group.name, group.description, group.defaultCommand, group.commands, index))
+                .collect(toImmutableList());
+
+        return MetadataLoader.loadGlobalLazily(name, description, defaultCommandMetadata, topLevelCommands, commandGroups, index);
+    }
+
+    private static class DiscoveredGroup
+    {
+        private final String name;
+        private final String description;
+        private final CommandMetadata defaultCommand;
+        private final List<CommandMetadata> commands = new ArrayList<>();
+
+        private DiscoveredGroup(String name, String description, CommandMetadata defaultCommand)
+        {
+            this.name = name;
+            this.description = description;
+            this.defaultCommand = defaultCommand;
+        }
+    }
+
+    /**
+     * Returns the metadata stored in the snapshot, or null if the snapshot was written
+     * for a different command line structure or, unless verification is disabled, any
+     * contributing class has changed.
+     */
+    private static <C> GlobalMetadata loadSnapshot(URL resource,
+            boolean verify,
+            String name,
+            String description,
+            Class<? extends C> defaultCommand,
+            Iterable<Class<? extends C>> defaultGroupCommands,
+            Iterable<GroupBuilder<C>> groups)
+    {
+        MetadataSnapshot.StructureHasher hasher = new MetadataSnapshot.StructureHasher()
+                .add(name)
+                .add(description)
+                .add(defaultCommand == null ? null : defaultCommand.getName())
+                .add(classNames(defaultGroupCommands));
+        for (GroupBuilder<C> group : groups) {
+            hasher.add(group.name)
+                    .add(group.description)
+                    .add(group.defaultCommand == null ? null : group.defaultCommand.getName())
+                    .add(classNames(group.commands));
+        }
+
+        MetadataSnapshot snapshot;
+        try {
+            snapshot = MetadataSnapshot.load(resource, commandClassLoader(defaultCommand, defaultGroupCommands, groups));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (snapshot.getStructureHash() != hasher.hash() || (verify && !snapshot.isCurrent())) {
+            return null;
+        }
+        return snapshot.getMetadata();
+    }
+
+    private static List<String> classNames(Iterable<? extends Class<?>> classes)
+    {
+        return stream(classes)
+                .map(Class::getName)
+                .collect(toImmutableList());
+    }
+
+    /**
+     * Returns the class loader of the first registered command, or the class loader of
+     * this class when no command is registered.
+     */
+    private static <C> ClassLoader commandClassLoader(Class<? extends C> defaultCommand, Iterable<Class<? extends C>> defaultGroupCommands, Iterable<GroupBuilder<C>> groups)
+    {
+        ClassLoader classLoader = defaultCommand == null ? null : defaultCommand.getClassLoader();
+        for (Class<? extends C> command : defaultGroupCommands) {
+            classLoader = firstNonNull(classLoader, command.getClassLoader());
+        }
+        for (GroupBuilder<C> group : groups) {
+            for (Class<? extends C> command : group.commands) {
+                classLoader = firstNonNull(classLoader, command.getClassLoader());
+            }
+        }
+        return classLoader == null ? Cli.class.getClassLoader() : classLoader;
+    }
+
+    private static ClassLoader firstNonNull(ClassLoader first, ClassLoader second)
+    {
+        return first != null ? first : second;
+    }
+
     public GlobalMetadata getMetadata()
     {
         return metadata;
@@ -111,37 +319,28 @@ public class Cli<C>
         return parse(new DefaultCommandFactory<C>(), args);
     }
 
+    /**
+     * Parses the arguments and creates the command with the command factory. Commands
+     * created by their constructor, that is records and commands with a constructor
+     * annotated with {@link CommandConstructor}, do not use the command factory.
+     */
     public C parse(CommandFactory<C> commandFactory, String... args)
     {
         return parse(commandFactory, ImmutableList.copyOf(args));
     }
 
+    /**
+     * Parses the arguments and creates the command with the command factory. Commands
+     * created by their constructor, that is records and commands with a constructor
+     * annotated with {@link CommandConstructor}, do not use the command factory.
+     */
     public C parse(CommandFactory<C> commandFactory, Iterable<String> args)
     {
         requireNonNull(args, "args is null");
 
-        Parser parser = new Parser();
-        ParseState state = parser.parse(metadata, args);
-
-        if (state.getCommand() == null) {
-            if (state.getGroup() != null) {
-                state = state.withCommand(state.getGroup().getDefaultCommand());
-            }
-            else {
-                state = state.withCommand(metadata.getDefaultCommand());
-            }
-        }
-
-        validate(state);
-
-        CommandMetadata command = state.getCommand();
+        ParseState state = parseAndValidate(args);
 
-        return createInstance(command.getType(),
-                command.getAllOptions(),
-                state.getParsedOptions(),
-                command.getArguments(),
-                state.getParsedArguments(),
-                command.getMetadataInjections(),
+        return createInstance(state,
                 ImmutableMap.<Class<?>, Object>of(GlobalMetadata.class, metadata),
                 commandFactory);
     }
@@ -150,62 +349,116 @@ public class Cli<C>
     {
         requireNonNull(args, "args is null");
 
-        Parser parser = new Parser();
-        ParseState state = parser.parse(metadata, args);
+        ParseState state = parseAndValidate(ImmutableList.copyOf(args));
 
-        if (state.getCommand() == null) {
-            if (state.getGroup() != null) {
-                state = state.withCommand(state.getGroup().getDefaultCommand());
-            }
-            else {
-                state = state.withCommand(metadata.getDefaultCommand());
-            }
-        }
+        return injectOptions(commandInstance,
+                state,
+                ImmutableMap.<Class<?>, Object>of(GlobalMetadata.class, metadata));
+    }
 
-        validate(state);
+    /**
+     * Parses and runs the command on a thread of its own, a virtual thread when the JVM
+     * supports them. See {@link #executeAsync(Iterable, Executor, Duration)}.
+     */
+    public CompletableFuture<Object> executeAsync(String... args)
+    {
+        return executeAsync(ImmutableList.copyOf(args));
+    }
 
-        CommandMetadata command = state.getCommand();
+    /**
+     * Parses and runs the command on a thread of its own, a virtual thread when the JVM
+     * supports them. See {@link #executeAsync(Iterable, Executor, Duration)}.
+     */
+    public CompletableFuture<Object> executeAsync(Iterable<String> args)
+    {
+        return executeAsync(args, CommandExecution.defaultExecutor(), null);
+    }
 
-        return injectOptions(commandInstance,
-                command.getAllOptions(),
-                state.getParsedOptions(),
-                command.getArguments(),
-                state.getParsedArguments(),
-                command.getMetadataInjections(),
-                ImmutableMap.<Class<?>, Object>of(GlobalMetadata.class, metadata));
+    /**
+     * Parses and runs the command on a thread of its own, a virtual thread when the JVM
+     * supports them. See {@link #executeAsync(Iterable, Executor, Duration)}.
+     */
+    public CompletableFuture<Object> executeAsync(Iterable<String> args, Duration timeout)
+    {
+        requireNonNull(timeout, "timeout is null");
+        return executeAsync(args, CommandExecution.defaultExecutor(), timeout);
     }
 
-    private void validate(ParseState state)
+    /**
+     * Parses and runs the command on the executor. The command must implement
+     * {@link Runnable} or {@link java.util.concurrent.Callable}; the future completes with
+     * the value returned by a {@code Callable}, with {@code null} for a {@code Runnable},
+     * or exceptionally with the {@link ParseException} or the exception thrown by the
+     * command. Cancelling the future interrupts the command. If a timeout is given, the
+     * command is interrupted and the future completes with a
+     * {@link java.util.concurrent.TimeoutException} once it expires.
+     */
+    public CompletableFuture<Object> executeAsync(Iterable<String> args, Executor executor, @Nullable Duration timeout)
     {
-        CommandMetadata command = state.getCommand();
-        if (command == null) {
-            List<String> unparsedInput = state.getUnparsedInput();
-            if (unparsedInput.isEmpty()) {
-                throw new ParseCommandMissingException();
-            }
-            else {
-                throw new ParseCommandUnrecognizedException(unparsedInput);
-            }
-        }
+        requireNonNull(args, "args is null");
+        requireNonNull(executor, "executor is null");
 
-        ArgumentsMetadata arguments = command.getArguments();
-        if (state.getParsedArguments().isEmpty() && arguments != null && arguments.isRequired()) {
-            throw new ParseArgumentsMissingException(arguments.getTitle());
-        }
+        List<String> arguments = ImmutableList.copyOf(args);
+        return CommandExecution.submit(() -> CommandExecution.call(parse(arguments)), executor, timeout);
+    }
 
-        if (!state.getUnparsedInput().isEmpty()) {
-            throw new ParseArgumentsUnexpectedException(state.getUnparsedInput());
-        }
+    /**
+     * Parses every line of a command file, so that all problems are reported before any
+     * command runs. The problems are reported with their line number, and several of
+     * them as a {@link ParseErrorsException}. See {@link Script} for the file format.
+     */
+    public Script<C> parseScript(Path file)
+            throws IOException
+    {
+        requireNonNull(file, "file is null");
+        return Script.parse(this, file);
+    }
 
-        if (state.getLocation() == Context.OPTION) {
-            throw new ParseOptionMissingValueException(state.getCurrentOption().getTitle());
-        }
+    /**
+     * Parses every line read from the reader. See {@link #parseScript(Path)}.
+     */
+    public Script<C> parseScript(Reader reader)
+            throws IOException
+    {
+        requireNonNull(reader, "reader is null");
+        return Script.parse(this, reader);
+    }
+
+    /**
+     * Parses and validates the command line without creating or injecting a command instance.
+     */
+    public ParseResult validate(String... args)
+    {
+        return validate(ImmutableList.copyOf(args));
+    }
+
+    /**
+     * Parses and validates the command line without creating or injecting a command instance.
+     */
+    public ParseResult validate(Iterable<String> args)
+    {
+        requireNonNull(args, "args is null");
+
+        return new ParseResult(parseAndValidate(args));
+    }
+
+    private ParseState parseAndValidate(Iterable<String> args)
+    {
+        Parser parser = new Parser(argumentConversionExecutor);
+        ParseState state = parser.parse(metadata, args);
 
-        for (OptionMetadata option : command.getAllOptions()) {
-            if (option.isRequired() && !state.getParsedOptions().containsKey(option)) {
-                throw new ParseOptionMissingException(option.getOptions().iterator().next());
+        if (state.getCommand() == null) {
+            if (state.getGroup() != null) {
+                state = state.withCommand(state.getGroup().getDefaultCommand());
+            }
+            else {
+                state = state.withCommand(metadata.getDefaultCommand());
             }
         }
+
+        state = optionDefaults.apply(state);
+        ParseStateValidator.validate(state, collectAllErrors);
+        return state;
     }
 
     //
@@ -218,9 +471,18 @@ public class Cli<C>
         protected String description;
         protected TypeConverter typeConverter = new TypeConverter();
         protected String optionSeparators;
+        private boolean collectAllErrors;
+        private boolean lazyMetadata;
+        private ClassLoader discoveryClassLoader;
+        private Executor loadingExecutor;
+        private Executor argumentConversionExecutor;
+        private Map<String, String> environment = System.getenv();
+        private Path configFile;
         private Class<? extends C> defaultCommand;
         private final List<Class<? extends C>> defaultCommandGroupCommands = new ArrayList<>();
         protected final Map<String, GroupBuilder<C>> groups = new HashMap<>();
+        private URL metadataSnapshot;
+        private boolean verifyMetadataSnapshot = true;
 
         public CliBuilder(String name)
         {
@@ -251,6 +513,132 @@ public class Cli<C>
 //            return this;
 //        }
 
+        /**
+         * Report every problem with a command line instead of only the first one.
+         * When more than one problem is found, a {@link ParseErrorsException} is thrown.
+         */
+        public CliBuilder<C> withCollectAllErrors(boolean collectAllErrors)
+        {
+            this.collectAllErrors = collectAllErrors;
+            return this;
+        }
+
+        /**
+         * Only read the names of the commands when the CLI is built. The command options,
+         * arguments and injections of a command are loaded when the command is selected or
+         * its help is rendered. A global or group option is resolved when the parser first
+         * looks up its name: the commands that the {@link CommandIndex} lists with that
+         * option are read, and so are the commands missing from the index, unless the name
+         * is the name of a group or command in that position. As a consequence,
+         * configuration errors, including conflicting option definitions, are only reported
+         * when the affected command or option is used.
+         */
+        public CliBuilder<C> withLazyMetadata(boolean lazyMetadata)
+        {
+            this.lazyMetadata = lazyMetadata;
+            return this;
+        }
+
+        /**
+         * Load the metadata of the registered commands concurrently, for example with a
+         * {@link java.util.concurrent.ForkJoinPool}. The result and the reported errors are
+         * the same as with sequential loading. With a {@link #withMetadataSnapshot metadata
+         * snapshot}, the commands are only loaded, and thus only loaded concurrently, when
+         * the snapshot does not match. This can not be combined with
+         * {@link #withLazyMetadata lazy metadata} or
+         * {@link #withDiscoveredCommands discovered commands}, which load every command
+         * when it is first used.
+         */
+        public CliBuilder<C> withParallelLoading(Executor executor)
+        {
+            requireNonNull(executor, "executor is null");
+            this.loadingExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Convert the positional arguments of a command after the command line has been
+         * read, in parallel chunks on the executor, for example a
+         * {@link java.util.concurrent.ForkJoinPool}, when there are many of them. The
+         * arguments keep their order, and a conversion failure is reported for the same
+         * argument as with sequential conversion. Arguments of primitive types are not
+         * affected.
+         */
+        public CliBuilder<C> withParallelArgumentConversion(Executor executor)
+        {
+            requireNonNull(executor, "executor is null");
+            this.argumentConversionExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Use these variables instead of the environment of the process for options with
+         * an {@link Option#environmentVariable()}.
+         */
+        public CliBuilder<C> withEnvironment(Map<String, String> environment)
+        {
+            requireNonNull(environment, "environment is null");
+            this.environment = environment;
+            return this;
+        }
+
+        /**
+         * Read the values of options with an {@link Option#configKey()} that are not given
+         * on the command line or by their environment variable from the file, in TOML
+         * format if the file name ends with {@code .toml} and in properties format
+         * otherwise. The file is read once, when a value is first looked up, and it is
+         * ignored if it does not exist.
+         */
+        public CliBuilder<C> withConfigFile(Path configFile)
+        {
+            requireNonNull(configFile, "configFile is null");
+            this.configFile = configFile;
+            return this;
+        }
+
+        /**
+         * Add the commands listed in the {@link CommandIndex} resources visible to the class
+         * loader. Commands are placed in the group named by {@link Command#group()}, which is
+         * created if it was not configured with {@link #withGroup}. No command class is
+         * loaded until the command is selected or its help is rendered, or until the parser
+         * looks up a global or group option that the index lists for the command, see
+         * {@link #withLazyMetadata}.
+         */
+        public CliBuilder<C> withDiscoveredCommands(ClassLoader classLoader)
+        {
+            requireNonNull(classLoader, "classLoader is null");
+            this.discoveryClassLoader = classLoader;
+            return this;
+        }
+
+        /**
+         * Load the metadata from a snapshot written by {@link MetadataSnapshot} instead of
+         * scanning the command classes. The snapshot is ignored if it does not match the
+         * names, descriptions and classes of the commands and groups of this builder, or
+         * if the class file of any class contributing commands or options has changed
+         * since the snapshot was written.
+         */
+        public CliBuilder<C> withMetadataSnapshot(URL metadataSnapshot)
+        {
+            requireNonNull(metadataSnapshot, "metadataSnapshot is null");
+            this.metadataSnapshot = metadataSnapshot;
+            return this;
+        }
+
+        /**
+         * Whether to check the class files of the classes contributing commands or options
+         * against the checksums recorded in the metadata snapshot, which is the default.
+         * The checksums of classes in jars are read from the jar directory, but class files
+         * in directories are read. Disable verification only when the snapshot is always
+         * written by the build that compiles the commands, as a snapshot for changed
+         * options is then used without error.
+         */
+        public CliBuilder<C> withMetadataSnapshotVerification(boolean verifyMetadataSnapshot)
+        {
+            this.verifyMetadataSnapshot = verifyMetadataSnapshot;
+            return this;
+        }
+
         public CliBuilder<C> withDefaultCommand(Class<? extends C> defaultCommand)
         {
             this.defaultCommand = defaultCommand;
@@ -293,7 +681,9 @@ public class Cli<C>
 
         public Cli<C> build()
         {
-            return new Cli<C>(name, description, typeConverter, defaultCommand, defaultCommandGroupCommands, groups.values());
+            Preconditions.checkState(loadingExecutor == null || (!lazyMetadata && discoveryClassLoader == null),
+                    "Parallel loading can not be combined with lazy metadata or discovered commands");
+            return new Cli<C>(name, description, typeConverter, collectAllErrors, lazyMetadata, loadingExecutor, argumentConversionExecutor, new OptionDefaults(environment, configFile), defaultCommand, defaultCommandGroupCommands, groups.values(), discoveryClassLoader, metadataSnapshot, verifyMetadataSnapshot);
         }
     }
 
@@ -47,4 +47,11 @@ public @interface Command
      * If true, this command won't appear in the usage().
      */
     boolean hidden() default false;
+
+    /**
+     * Name of the group of the command when it is discovered through the command index
+     * written by {@link CommandIndexProcessor}. Commands without a group are top level
+     * commands. This is ignored for commands registered with {@link Cli.CliBuilder}.
+     */
+    String group() default "";
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.CONSTRUCTOR;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks the constructor used to create a command. The parsed option, argument and
+ * metadata values are passed to the constructor instead of being written to the
+ * annotated fields after construction. Java records use their canonical constructor
+ * without this annotation.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(CONSTRUCTOR)
+public @interface CommandConstructor
+{
+    /**
+     * Names of the fields bound to the constructor parameters, in parameter order.
+     * When empty, each parameter is bound to the field with the same name as the
+     * parameter, which requires the command to be compiled with {@code -parameters}.
+     */
+    String[] value() default {};
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs parsed commands, which must implement {@link Runnable} or {@link Callable}.
+ */
+final class CommandExecution
+{
+    private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+
+    private static final ScheduledExecutorService TIMEOUTS = createTimeoutScheduler();
+
+    private CommandExecution() {}
+
+    /**
+     * Returns an executor that starts a virtual thread for every command when the JVM
+     * supports them, and a daemon platform thread otherwise.
+     */
+    static Executor defaultExecutor()
+    {
+        return DEFAULT_EXECUTOR;
+    }
+
+    private static ScheduledExecutorService createTimeoutScheduler()
+    {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "airline-command-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // commands usually finish well before their timeout; drop the cancelled expirations right away
+        // instead of keeping every one of them queued until its delay elapses
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static Executor createDefaultExecutor()
+    {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException ignored) {
+        }
+        return runnable -> {
+            Thread thread = new Thread(runnable, "airline-command");
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
+
+    /**
+     * Runs the command and returns the value of a {@link Callable}, or {@code null} for
+     * a {@link Runnable}.
+     */
+    @Nullable
+    static Object call(Object command)
+            throws Exception
+    {
+        requireNonNull(command, "command is null");
+        if (command instanceof Callable) {
+            return ((Callable<?>) command).call();
+        }
+        if (command instanceof Runnable) {
+            ((Runnable) command).run();
+            return null;
+        }
+        throw new ParseException("Command %s is neither Runnable nor Callable", command.getClass().getName());
+    }
+
+    /**
+     * Runs the task on the executor. Cancelling the returned future interrupts the task,
+     * and so does the timeout, which completes the future with a {@link TimeoutException}.
+     */
+    static CompletableFuture<Object> submit(Callable<?> task, Executor executor, @Nullable Duration timeout)
+    {
+        requireNonNull(task, "task is null");
+        requireNonNull(executor, "executor is null");
+
+        CommandFuture future = new CommandFuture(task);
+        if (timeout != null) {
+            ScheduledFuture<?> expiration = TIMEOUTS.schedule(
+                    () -> future.expire(timeout),
+                    Math.max(0, timeout.toNanos()),
+                    NANOSECONDS);
+            future.whenComplete((result, failure) -> expiration.cancel(false));
+        }
+
+        try {
+            executor.execute(future);
+        }
+        catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static final class CommandFuture
+            extends CompletableFuture<Object>
+            implements Runnable
+    {
+        private final Callable<?> task;
+        private Thread runner;
+
+        private CommandFuture(Callable<?> task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized (this) {
+                if (isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+
+            try {
+                complete(task.call());
+            }
+            catch (Throwable e) {
+                completeExceptionally(e);
+            }
+            finally {
+                synchronized (this) {
+                    runner = null;
+                    // an interrupt aimed at this task must not leak into the next task of a pooled thread
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        /**
+         * Cancels the command and interrupts it if it is running, regardless of
+         * {@code mayInterruptIfRunning}.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                interruptRunner();
+            }
+            return cancelled;
+        }
+
+        private void expire(Duration timeout)
+        {
+            if (completeExceptionally(new TimeoutException("Command did not complete within " + timeout))) {
+                interruptRunner();
+            }
+        }
+
+        private synchronized void interruptRunner()
+        {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
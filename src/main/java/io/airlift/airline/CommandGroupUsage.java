@@ -1,5 +1,6 @@
 package io.airlift.airline;
 
+import com.google.common.collect.ImmutableList;
 import io.airlift.airline.model.CommandGroupMetadata;
 import io.airlift.airline.model.CommandMetadata;
 import io.airlift.airline.model.GlobalMetadata;
@@ -13,15 +14,14 @@ import java.util.Comparator;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static io.airlift.airline.UsageHelper.DEFAULT_COMMAND_COMPARATOR;
 import static io.airlift.airline.UsageHelper.DEFAULT_OPTION_COMPARATOR;
+import static io.airlift.airline.UsageHelper.mergeSortedOptions;
 
 public class CommandGroupUsage
 {
     private final int columnSize;
     private final boolean hideGlobalOptions;
     private final Comparator<? super OptionMetadata> optionComparator;
-    private final Comparator<? super CommandMetadata> commandComparator = DEFAULT_COMMAND_COMPARATOR;
 
     public CommandGroupUsage()
     {
@@ -51,15 +51,21 @@ public class CommandGroupUsage
      */
     public void usage(@Nullable GlobalMetadata global, CommandGroupMetadata group)
     {
-        StringBuilder stringBuilder = new StringBuilder();
-        usage(global, group, stringBuilder);
-        System.out.println(stringBuilder.toString());
+        UsagePrinter.printToSystemOut(out -> usage(global, group, out));
     }
 
     /**
-     * Store the help in the passed string builder.
+     * Write the help to the passed string builder.
      */
     public void usage(@Nullable GlobalMetadata global, CommandGroupMetadata group, StringBuilder out)
+    {
+        usage(global, group, (Appendable) out);
+    }
+
+    /**
+     * Write the help to the passed appendable.
+     */
+    public void usage(@Nullable GlobalMetadata global, CommandGroupMetadata group, Appendable out)
     {
         usage(global, group, new UsagePrinter(out, columnSize));
     }
@@ -85,8 +91,7 @@ public class CommandGroupUsage
         out.append("SYNOPSIS").newline();
         UsagePrinter synopsis = out.newIndentedPrinter(8).newPrinterWithHangingIndent(8);
 
-        List<CommandMetadata> commands = new ArrayList<>(group.getCommands());
-        Collections.sort(commands, commandComparator);
+        List<CommandMetadata> commands = group.getSortedCommands();
 
         if (group.getDefaultCommand() != null) {
             CommandMetadata command = group.getDefaultCommand();
@@ -115,16 +120,24 @@ public class CommandGroupUsage
         //
         // OPTIONS
         //
-        List<OptionMetadata> options = new ArrayList<>();
-        options.addAll(group.getOptions());
-        if (global != null && !hideGlobalOptions) {
-            options.addAll(global.getOptions());
+        List<OptionMetadata> options;
+        if (optionComparator == DEFAULT_OPTION_COMPARATOR) {
+            options = group.getSortedOptions();
+            if (global != null && !hideGlobalOptions) {
+                options = mergeSortedOptions(ImmutableList.of(options, global.getSortedOptions()), optionComparator);
+            }
         }
-        if (options.size() > 0) {
+        else {
+            options = new ArrayList<>();
+            options.addAll(group.getOptions());
+            if (global != null && !hideGlobalOptions) {
+                options.addAll(global.getOptions());
+            }
             if (optionComparator != null) {
                 Collections.sort(options, optionComparator);
             }
-
+        }
+        if (options.size() > 0) {
             out.append("OPTIONS").newline();
 
             for (OptionMetadata option : options) {
@@ -135,6 +148,10 @@ public class CommandGroupUsage
                 // description
                 UsagePrinter descriptionPrinter = optionPrinter.newIndentedPrinter(4);
                 descriptionPrinter.append(option.getDescription()).newline();
+                String defaultSource = UsageHelper.toDefaultSource(option);
+                if (defaultSource != null) {
+                    descriptionPrinter.append(defaultSource).newline();
+                }
 
                 descriptionPrinter.newline();
             }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Index of the {@link Command} classes of a jar, written by {@link CommandIndexProcessor}.
+ * Each line describes one command with the tab separated fields class name, command
+ * name, group, description, hidden flag, global option names and group option names.
+ * Option names are separated by spaces.
+ */
+public final class CommandIndex
+{
+    public static final String RESOURCE = "META-INF/airline/commands";
+
+    private static final Joiner FIELD_JOINER = Joiner.on('\t');
+    private static final Splitter FIELD_SPLITTER = Splitter.on('\t');
+    private static final Joiner NAME_JOINER = Joiner.on(' ');
+    private static final Splitter NAME_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+    private CommandIndex() {}
+
+    /**
+     * Reads the command indexes of every jar visible to the class loader.
+     */
+    public static List<Entry> load(ClassLoader classLoader)
+    {
+        requireNonNull(classLoader, "classLoader is null");
+        ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            entries.add(parse(line));
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries.build();
+    }
+
+    static String format(Entry entry)
+    {
+        return FIELD_JOINER.join(
+                escape(entry.getClassName()),
+                escape(entry.getName()),
+                escape(entry.getGroup()),
+                escape(entry.getDescription() == null ? "" : entry.getDescription()),
+                entry.isHidden(),
+                escape(NAME_JOINER.join(entry.getGlobalOptions())),
+                escape(NAME_JOINER.join(entry.getGroupOptions())));
+    }
+
+    static Entry parse(String line)
+    {
+        List<String> fields = FIELD_SPLITTER.splitToList(line);
+        checkArgument(fields.size() == 7, "Invalid command index entry: %s", line);
+        String description = unescape(fields.get(3));
+        return new Entry(
+                unescape(fields.get(0)),
+                unescape(fields.get(1)),
+                unescape(fields.get(2)),
+                description.isEmpty() ? null : description,
+                Boolean.parseBoolean(fields.get(4)),
+                NAME_SPLITTER.splitToList(unescape(fields.get(5))),
+                NAME_SPLITTER.splitToList(unescape(fields.get(6))));
+    }
+
+    private static String escape(String value)
+    {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String unescape(String value)
+    {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                switch (c) {
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    default:
+                        break;
+                }
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    public static final class Entry
+    {
+        private final String className;
+        private final String name;
+        private final String group;
+        private final String description;
+        private final boolean hidden;
+        private final List<String> globalOptions;
+        private final List<String> groupOptions;
+
+        public Entry(String className,
+                String name,
+                String group,
+                @Nullable String description,
+                boolean hidden,
+                Iterable<String> globalOptions,
+                Iterable<String> groupOptions)
+        {
+            this.className = requireNonNull(className, "className is null");
+            this.name = requireNonNull(name, "name is null");
+            this.group = requireNonNull(group, "group is null");
+            this.description = description;
+            this.hidden = hidden;
+            this.globalOptions = ImmutableList.copyOf(globalOptions);
+            this.groupOptions = ImmutableList.copyOf(groupOptions);
+        }
+
+        public String getClassName()
+        {
+            return className;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the group of the command, or an empty string for top level commands.
+         */
+        public String getGroup()
+        {
+            return group;
+        }
+
+        @Nullable
+        public String getDescription()
+        {
+            return description;
+        }
+
+        public boolean isHidden()
+        {
+            return hidden;
+        }
+
+        public List<String> getGlobalOptions()
+        {
+            return globalOptions;
+        }
+
+        public List<String> getGroupOptions()
+        {
+            return groupOptions;
+        }
+
+        @Override
+        public String toString()
+        {
+            return format(this);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.inject.Inject;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the {@link CommandIndex} of the {@link Command} classes being compiled. The
+ * processor is not registered as a service and must be enabled explicitly, for example
+ * with {@code javac -processor io.airlift.airline.CommandIndexProcessor} or in the
+ * {@code annotationProcessors} of the Maven compiler plugin. Abstract classes are not
+ * indexed, and a class that inherits {@link Command} from a superclass is indexed with
+ * the inherited annotation, as it is accepted at runtime. The processor therefore looks
+ * at every class being compiled, not only at the annotated ones.
+ * <p>
+ * When only some classes are recompiled, the entries of the existing index in the
+ * class output are kept for the commands that were not recompiled, as long as their
+ * class still exists and is still annotated with {@link Command}.
+ */
+@SupportedAnnotationTypes("*")
+public class CommandIndexProcessor
+        extends AbstractProcessor
+{
+    private final Map<String, CommandIndex.Entry> entries = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        for (TypeElement type : allTypes(ElementFilter.typesIn(roundEnv.getRootElements()))) {
+            Command command = findCommand(type);
+            if (command == null) {
+                continue;
+            }
+            Set<String> globalOptions = new TreeSet<>();
+            Set<String> groupOptions = new TreeSet<>();
+            collectOptions(type, globalOptions, groupOptions, new HashSet<>());
+
+            String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+            entries.put(className, new CommandIndex.Entry(
+                    className,
+                    command.name(),
+                    command.group(),
+                    command.description().isEmpty() ? null : command.description(),
+                    command.hidden(),
+                    globalOptions,
+                    groupOptions));
+        }
+
+        if (roundEnv.processingOver() && !entries.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private static List<TypeElement> allTypes(Iterable<TypeElement> types)
+    {
+        List<TypeElement> allTypes = new ArrayList<>();
+        for (TypeElement type : types) {
+            allTypes.add(type);
+            allTypes.addAll(allTypes(ElementFilter.typesIn(type.getEnclosedElements())));
+        }
+        return allTypes;
+    }
+
+    /**
+     * Returns the {@link Command} annotation of a concrete class, which may be declared
+     * by a superclass like the runtime accepts it, or null if the class is not a command.
+     */
+    private static Command findCommand(TypeElement type)
+    {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return null;
+        }
+        for (TypeElement cls = type; cls != null; cls = superclass(cls)) {
+            Command command = cls.getAnnotation(Command.class);
+            if (command != null) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private void collectOptions(TypeElement type, Set<String> globalOptions, Set<String> groupOptions, Set<String> visited)
+    {
+        for (TypeElement cls = type; cls != null; cls = superclass(cls)) {
+            if (!visited.add(cls.getQualifiedName().toString())) {
+                return;
+            }
+            for (VariableElement field : ElementFilter.fieldsIn(cls.getEnclosedElements())) {
+                Option option = field.getAnnotation(Option.class);
+                if (option != null) {
+                    if (option.type() == OptionType.GLOBAL) {
+                        globalOptions.addAll(Arrays.asList(option.name()));
+                    }
+                    else if (option.type() == OptionType.GROUP) {
+                        groupOptions.addAll(Arrays.asList(option.name()));
+                    }
+                }
+                if (field.getAnnotation(Inject.class) != null) {
+                    TypeElement fieldType = asTypeElement(field.asType());
+                    if (fieldType != null) {
+                        collectOptions(fieldType, globalOptions, groupOptions, visited);
+                    }
+                }
+            }
+        }
+    }
+
+    private static TypeElement superclass(TypeElement type)
+    {
+        TypeElement superclass = asTypeElement(type.getSuperclass());
+        if (superclass == null || superclass.getQualifiedName().contentEquals(Object.class.getName())) {
+            return null;
+        }
+        return superclass;
+    }
+
+    private static TypeElement asTypeElement(TypeMirror type)
+    {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        return element instanceof TypeElement ? (TypeElement) element : null;
+    }
+
+    private void writeIndex()
+    {
+        for (CommandIndex.Entry entry : readExistingIndex()) {
+            if (!entries.containsKey(entry.getClassName()) && isIndexedCommand(entry.getClassName())) {
+                entries.put(entry.getClassName(), entry);
+            }
+        }
+
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", CommandIndex.RESOURCE);
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), UTF_8)) {
+                for (CommandIndex.Entry entry : entries.values()) {
+                    writer.write(CommandIndex.format(entry));
+                    writer.write('\n');
+                }
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + CommandIndex.RESOURCE + ": " + e.getMessage());
+        }
+    }
+
+    private List<CommandIndex.Entry> readExistingIndex()
+    {
+        List<CommandIndex.Entry> existing = new ArrayList<>();
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", CommandIndex.RESOURCE);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openInputStream(), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        existing.add(CommandIndex.parse(line));
+                    }
+                }
+            }
+        }
+        catch (IOException | IllegalArgumentException ignored) {
+            // there is no index from a previous compilation, or it can not be used
+        }
+        return existing;
+    }
+
+    private boolean isIndexedCommand(String className)
+    {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+        return type != null && findCommand(type) != null;
+    }
+}
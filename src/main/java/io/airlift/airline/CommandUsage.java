@@ -13,6 +13,7 @@ import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.airline.UsageHelper.DEFAULT_OPTION_COMPARATOR;
+import static io.airlift.airline.UsageHelper.mergeSortedOptions;
 import static io.airlift.airline.UsageHelper.toSynopsisUsage;
 
 public class CommandUsage
@@ -42,15 +43,21 @@ public class CommandUsage
      */
     public void usage(@Nullable String programName, @Nullable String groupName, String commandName, CommandMetadata command)
     {
-        StringBuilder stringBuilder = new StringBuilder();
-        usage(programName, groupName, commandName, command, stringBuilder);
-        System.out.println(stringBuilder.toString());
+        UsagePrinter.printToSystemOut(out -> usage(programName, groupName, commandName, command, out));
     }
 
     /**
-     * Store the help in the passed string builder.
+     * Write the help to the passed string builder.
      */
     public void usage(@Nullable String programName, @Nullable String groupName, String commandName, CommandMetadata command, StringBuilder out)
+    {
+        usage(programName, groupName, commandName, command, (Appendable) out);
+    }
+
+    /**
+     * Write the help to the passed appendable.
+     */
+    public void usage(@Nullable String programName, @Nullable String groupName, String commandName, CommandMetadata command, Appendable out)
     {
         usage(programName, groupName, commandName, command, new UsagePrinter(out, columnSize));
     }
@@ -76,17 +83,20 @@ public class CommandUsage
         //
         out.append("SYNOPSIS").newline();
         UsagePrinter synopsis = out.newIndentedPrinter(8).newPrinterWithHangingIndent(8);
-        List<OptionMetadata> options = new ArrayList<>();
+        List<List<OptionMetadata>> sortedOptions = new ArrayList<>();
         if (programName != null) {
-            synopsis.append(programName).appendWords(toSynopsisUsage(sortOptions(command.getGlobalOptions())));
-            options.addAll(command.getGlobalOptions());
+            List<OptionMetadata> globalOptions = sortOptions(command.getGlobalOptions(), command.getSortedGlobalOptions());
+            synopsis.append(programName).appendWords(toSynopsisUsage(globalOptions));
+            sortedOptions.add(globalOptions);
         }
         if (groupName != null) {
-            synopsis.append(groupName).appendWords(toSynopsisUsage(sortOptions(command.getGroupOptions())));
-            options.addAll(command.getGroupOptions());
+            List<OptionMetadata> groupOptions = sortOptions(command.getGroupOptions(), command.getSortedGroupOptions());
+            synopsis.append(groupName).appendWords(toSynopsisUsage(groupOptions));
+            sortedOptions.add(groupOptions);
         }
-        synopsis.append(commandName).appendWords(toSynopsisUsage(sortOptions(command.getCommandOptions())));
-        options.addAll(command.getCommandOptions());
+        List<OptionMetadata> commandOptions = sortOptions(command.getCommandOptions(), command.getSortedCommandOptions());
+        synopsis.append(commandName).appendWords(toSynopsisUsage(commandOptions));
+        sortedOptions.add(commandOptions);
 
         // command arguments (optional)
         ArgumentsMetadata arguments = command.getArguments();
@@ -100,9 +110,8 @@ public class CommandUsage
         //
         // OPTIONS
         //
+        List<OptionMetadata> options = mergeOptions(sortedOptions);
         if (options.size() > 0 || arguments != null) {
-            options = sortOptions(options);
-
             out.append("OPTIONS").newline();
 
             for (OptionMetadata option : options) {
@@ -118,6 +127,10 @@ public class CommandUsage
                 // description
                 UsagePrinter descriptionPrinter = optionPrinter.newIndentedPrinter(4);
                 descriptionPrinter.append(option.getDescription()).newline();
+                String defaultSource = UsageHelper.toDefaultSource(option);
+                if (defaultSource != null) {
+                    descriptionPrinter.append(defaultSource).newline();
+                }
 
                 descriptionPrinter.newline();
             }
@@ -143,12 +156,31 @@ public class CommandUsage
         }
     }
 
-    private List<OptionMetadata> sortOptions(List<OptionMetadata> options)
+    private List<OptionMetadata> sortOptions(List<OptionMetadata> options, List<OptionMetadata> sortedOptions)
     {
+        if (optionComparator == DEFAULT_OPTION_COMPARATOR) {
+            return sortedOptions;
+        }
         if (optionComparator != null) {
             options = new ArrayList<OptionMetadata>(options);
             Collections.sort(options, optionComparator);
         }
         return options;
     }
+
+    private List<OptionMetadata> mergeOptions(List<List<OptionMetadata>> sortedOptions)
+    {
+        if (optionComparator == DEFAULT_OPTION_COMPARATOR) {
+            // the default comparator is a total order, so merging the presorted lists gives the same order as sorting
+            return mergeSortedOptions(sortedOptions, optionComparator);
+        }
+        List<OptionMetadata> options = new ArrayList<>();
+        for (List<OptionMetadata> list : sortedOptions) {
+            options.addAll(list);
+        }
+        if (optionComparator != null) {
+            Collections.sort(options, optionComparator);
+        }
+        return options;
+    }
 }
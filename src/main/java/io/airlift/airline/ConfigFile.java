@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The entries of a configuration file providing option defaults, indexed by key. Files
+ * named {@code *.toml} are read as TOML, with section names prefixed to the keys and
+ * arrays providing one value per element; only single line values are supported. Other
+ * files are read as Java properties. A file that does not exist has no entries.
+ */
+final class ConfigFile
+{
+    private final Map<String, List<String>> entries;
+
+    private ConfigFile(Map<String, List<String>> entries)
+    {
+        this.entries = ImmutableMap.copyOf(entries);
+    }
+
+    static ConfigFile load(Path file)
+    {
+        requireNonNull(file, "file is null");
+
+        CharBuffer content;
+        try {
+            // configuration files are small, so a plain read is cheaper than mapping the file
+            content = UTF_8.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+        }
+        catch (NoSuchFileException e) {
+            return new ConfigFile(ImmutableMap.of());
+        }
+        catch (CharacterCodingException e) {
+            throw new ParseException(e, "Configuration file %s is not valid UTF-8", file);
+        }
+        catch (IOException e) {
+            throw new ParseException(e, "Unable to read configuration file %s", file);
+        }
+
+        if (file.getFileName() != null && file.getFileName().toString().toLowerCase(ENGLISH).endsWith(".toml")) {
+            return new ConfigFile(parseToml(file, content));
+        }
+        return new ConfigFile(parseProperties(file, content));
+    }
+
+    /**
+     * Returns the values of the entry, or an empty list if there is no such entry.
+     */
+    List<String> get(String key)
+    {
+        return entries.getOrDefault(key, ImmutableList.of());
+    }
+
+    private static Map<String, List<String>> parseProperties(Path file, CharBuffer content)
+    {
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(content.toString()));
+        }
+        catch (IOException | IllegalArgumentException e) {
+            throw new ParseException(e, "Invalid configuration file %s", file);
+        }
+
+        Map<String, List<String>> entries = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            entries.put(key, ImmutableList.of(properties.getProperty(key)));
+        }
+        return entries;
+    }
+
+    private static Map<String, List<String>> parseToml(Path file, CharBuffer content)
+    {
+        Map<String, List<String>> entries = new HashMap<>();
+        String section = "";
+        int lineNumber = 0;
+        for (String line : content.toString().split("\r?\n", -1)) {
+            lineNumber++;
+            TomlLine toml = new TomlLine(file, lineNumber, line);
+            toml.skipWhitespace();
+            if (toml.atEnd()) {
+                continue;
+            }
+
+            if (toml.peek() == '[') {
+                toml.next();
+                String name = toml.key(']');
+                toml.expect(']');
+                toml.expectEnd();
+                section = name + ".";
+                continue;
+            }
+
+            String key = section + toml.key('=');
+            toml.expect('=');
+            List<String> values = toml.values();
+            toml.expectEnd();
+            if (entries.put(key, values) != null) {
+                throw toml.error("duplicate key " + key);
+            }
+        }
+        return entries;
+    }
+
+    private static final class TomlLine
+    {
+        private final Path file;
+        private final int lineNumber;
+        private final String line;
+        private int position;
+
+        private TomlLine(Path file, int lineNumber, String line)
+        {
+            this.file = file;
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+
+        boolean atEnd()
+        {
+            return position == line.length() || line.charAt(position) == '#';
+        }
+
+        char peek()
+        {
+            return line.charAt(position);
+        }
+
+        char next()
+        {
+            if (position == line.length()) {
+                throw error("unexpected end of line");
+            }
+            return line.charAt(position++);
+        }
+
+        void skipWhitespace()
+        {
+            while (position < line.length() && (line.charAt(position) == ' ' || line.charAt(position) == '\t')) {
+                position++;
+            }
+        }
+
+        void expect(char expected)
+        {
+            skipWhitespace();
+            if (next() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+
+        void expectEnd()
+        {
+            skipWhitespace();
+            if (!atEnd()) {
+                throw error("unexpected '" + peek() + "'");
+            }
+        }
+
+        /**
+         * Reads a dotted key, in which each part may be quoted, up to the terminator.
+         */
+        String key(char terminator)
+        {
+            StringBuilder key = new StringBuilder();
+            while (true) {
+                skipWhitespace();
+                if (position < line.length() && (peek() == '"' || peek() == '\'')) {
+                    key.append(string());
+                }
+                else {
+                    int start = position;
+                    while (position < line.length() && isBareKeyCharacter(peek())) {
+                        position++;
+                    }
+                    if (start == position) {
+                        throw error("expected a key");
+                    }
+                    key.append(line, start, position);
+                }
+                skipWhitespace();
+                if (position < line.length() && peek() == '.') {
+                    key.append(next());
+                    continue;
+                }
+                if (position == line.length() || peek() != terminator) {
+                    throw error("expected '" + terminator + "'");
+                }
+                return key.toString();
+            }
+        }
+
+        List<String> values()
+        {
+            skipWhitespace();
+            if (position == line.length() || peek() != '[') {
+                return ImmutableList.of(value());
+            }
+
+            next();
+            List<String> values = new ArrayList<>();
+            while (true) {
+                skipWhitespace();
+                if (position < line.length() && peek() == ']') {
+                    next();
+                    return ImmutableList.copyOf(values);
+                }
+                values.add(value());
+                skipWhitespace();
+                char separator = next();
+                if (separator == ']') {
+                    return ImmutableList.copyOf(values);
+                }
+                if (separator != ',') {
+                    throw error("expected ',' or ']'");
+                }
+            }
+        }
+
+        private String value()
+        {
+            skipWhitespace();
+            if (position == line.length()) {
+                throw error("expected a value");
+            }
+            if (peek() == '"' || peek() == '\'') {
+                return string();
+            }
+            if (peek() == '{') {
+                throw error("inline tables are not supported");
+            }
+
+            // numbers, booleans and dates are used as written, without underscores in numbers
+            int start = position;
+            while (position < line.length() && " \t,]#".indexOf(peek()) < 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("expected a value");
+            }
+            String value = line.substring(start, position);
+            return value.matches("[+-]?[0-9][0-9_]*") ? value.replace("_", "") : value;
+        }
+
+        private String string()
+        {
+            char quote = next();
+            if (line.startsWith(String.valueOf(quote) + quote + quote, position - 1)) {
+                throw error("multi-line strings are not supported");
+            }
+
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == quote) {
+                    return value.toString();
+                }
+                if (c == '\\' && quote == '"') {
+                    c = next();
+                    switch (c) {
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        case 'u':
+                            value.append(unicode(4));
+                            break;
+                        case 'U':
+                            value.append(unicode(8));
+                            break;
+                        case '"':
+                        case '\\':
+                            value.append(c);
+                            break;
+                        default:
+                            throw error("invalid escape '\\" + c + "'");
+                    }
+                }
+                else {
+                    value.append(c);
+                }
+            }
+        }
+
+        private String unicode(int digits)
+        {
+            if (position + digits > line.length()) {
+                throw error("invalid unicode escape");
+            }
+            try {
+                int codePoint = Integer.parseInt(line.substring(position, position + digits), 16);
+                position += digits;
+                return new String(Character.toChars(codePoint));
+            }
+            catch (IllegalArgumentException e) {
+                throw error("invalid unicode escape");
+            }
+        }
+
+        private static boolean isBareKeyCharacter(char c)
+        {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+        }
+
+        ParseException error(String message)
+        {
+            return new ParseException("Invalid configuration file %s at line %s: %s", file, lineNumber, message);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.Defaults;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import io.airlift.airline.model.ArgumentsMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import javax.annotation.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Parameter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterables.concat;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates a command by passing all parsed values to a single constructor, either the
+ * constructor annotated with {@link CommandConstructor} or the canonical constructor
+ * of a record. Each constructor parameter is bound to a field of the command, so the
+ * option and argument annotations stay on the fields.
+ */
+public final class ConstructorBinding
+{
+    private final Class<?> type;
+    private final List<Field> parameters;
+    private final Map<Field, Integer> parameterIndex;
+    private final Object[] defaultValues;
+    private final MethodHandle constructor;
+
+    private ConstructorBinding(Class<?> type, Constructor<?> constructor, List<Field> parameters)
+    {
+        this.type = type;
+        this.parameters = ImmutableList.copyOf(parameters);
+
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        checkArgument(parameterTypes.length == parameters.size(),
+                "Constructor of %s has %s parameters but binds %s fields", type.getName(), parameterTypes.length, parameters.size());
+
+        ImmutableMap.Builder<Field, Integer> parameterIndex = ImmutableMap.builder();
+        defaultValues = new Object[parameters.size()];
+        for (int i = 0; i < parameters.size(); i++) {
+            Field field = parameters.get(i);
+            checkArgument(parameterTypes[i].equals(field.getType()),
+                    "Parameter %s of constructor of %s is a %s, but field %s is a %s",
+                    i, type.getName(), parameterTypes[i].getName(), field.getName(), field.getType().getName());
+            parameterIndex.put(field, i);
+            defaultValues[i] = Defaults.defaultValue(field.getType());
+        }
+        this.parameterIndex = parameterIndex.build();
+
+        try {
+            constructor.setAccessible(true);
+            this.constructor = MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Constructor of " + type.getName() + " is not accessible", e);
+        }
+    }
+
+    /**
+     * Returns the constructor binding for the specified type, or null if the type is
+     * neither a record nor has a constructor annotated with {@link CommandConstructor}.
+     */
+    @Nullable
+    public static ConstructorBinding forType(Class<?> type)
+    {
+        requireNonNull(type, "type is null");
+
+        Constructor<?> annotated = null;
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(CommandConstructor.class)) {
+                checkArgument(annotated == null, "Command %s has multiple constructors annotated with @CommandConstructor", type.getName());
+                annotated = constructor;
+            }
+        }
+
+        if (annotated != null) {
+            String[] names = annotated.getAnnotation(CommandConstructor.class).value();
+            if (names.length == 0) {
+                names = getParameterNames(annotated);
+            }
+            return new ConstructorBinding(type, annotated, getFields(type, names));
+        }
+
+        if (isRecord(type)) {
+            // the canonical constructor takes the record components in order, and each component is stored in a field of the same name
+            List<Field> parameters = getFields(type, getRecordComponentNames(type));
+            Class<?>[] parameterTypes = parameters.stream()
+                    .map(Field::getType)
+                    .toArray(Class<?>[]::new);
+            try {
+                return new ConstructorBinding(type, type.getDeclaredConstructor(parameterTypes), parameters);
+            }
+            catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("Record " + type.getName() + " does not have a canonical constructor", e);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Verifies that every accessor writes a field that is bound to a constructor parameter.
+     */
+    public void checkAccessors(Iterable<Accessor> accessors)
+    {
+        for (Accessor accessor : accessors) {
+            List<Field> path = accessor.getPath();
+            checkArgument(path.size() == 1 && parameterIndex.containsKey(path.get(0)),
+                    "Command %s is created by its constructor, but %s is not a constructor parameter", type.getName(), accessor);
+        }
+    }
+
+    public Class<?> getType()
+    {
+        return type;
+    }
+
+    public List<Field> getParameters()
+    {
+        return parameters;
+    }
+
+    public Object newInstance(Iterable<OptionMetadata> options,
+            ListMultimap<OptionMetadata, Object> parsedOptions,
+            ArgumentsMetadata arguments,
+            Iterable<Object> parsedArguments,
+            Iterable<Accessor> metadataInjection,
+            Map<Class<?>, Object> bindings)
+    {
+        Object[] values = defaultValues.clone();
+
+        for (OptionMetadata option : options) {
+            List<?> optionValues = parsedOptions.get(option);
+            if (optionValues != null && !optionValues.isEmpty()) {
+                if (option.getArity() > 1) {
+                    optionValues = ImmutableList.copyOf(concat((Iterable<Iterable<Object>>) optionValues));
+                }
+                for (Accessor accessor : option.getAccessors()) {
+                    bindValues(values, accessor, optionValues);
+                }
+            }
+        }
+
+        if (arguments != null && parsedArguments != null) {
+            for (Accessor accessor : arguments.getAccessors()) {
+                bindValues(values, accessor, parsedArguments);
+            }
+        }
+
+        for (Accessor accessor : metadataInjection) {
+            Object injectee = bindings.get(accessor.getJavaType());
+            if (injectee != null) {
+                bindValues(values, accessor, ImmutableList.of(injectee));
+            }
+        }
+
+        try {
+            return (Object) constructor.invokeExact(values);
+        }
+        catch (Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new ParseException(e, "Unable to create instance %s", type.getName());
+        }
+    }
+
+    private void bindValues(Object[] values, Accessor accessor, Iterable<?> newValues)
+    {
+        if (Iterables.isEmpty(newValues)) {
+            return;
+        }
+
+        int index = parameterIndex.get(accessor.getPath().get(0));
+        Class<?> parameterType = parameters.get(index).getType();
+        if (Collection.class.isAssignableFrom(parameterType)) {
+            if (values[index] == null) {
+                values[index] = Accessor.newCollection(parameterType);
+            }
+            @SuppressWarnings("unchecked")
+            Collection<Object> collection = (Collection<Object>) values[index];
+            Iterables.addAll(collection, newValues);
+        }
+        else if (PrimitiveValues.getItemType(parameterType) != null) {
+            values[index] = PrimitiveValues.append(parameterType, values[index], newValues);
+        }
+        else {
+            values[index] = Iterables.getLast(newValues);
+        }
+    }
+
+    private static boolean isRecord(Class<?> type)
+    {
+        // java.lang.Record is not available on all supported runtimes
+        return type.getSuperclass() != null && type.getSuperclass().getName().equals("java.lang.Record");
+    }
+
+    private static String[] getRecordComponentNames(Class<?> type)
+    {
+        // Class.getRecordComponents() is not available on all supported runtimes, and is only called for records
+        try {
+            Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+            String[] names = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                names[i] = (String) components[i].getClass().getMethod("getName").invoke(components[i]);
+            }
+            return names;
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unable to read the components of record " + type.getName(), e);
+        }
+    }
+
+    private static String[] getParameterNames(Constructor<?> constructor)
+    {
+        Parameter[] parameters = constructor.getParameters();
+        String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            checkArgument(parameters[i].isNamePresent(),
+                    "Constructor of %s annotated with @CommandConstructor must list the bound fields, or be compiled with -parameters",
+                    constructor.getDeclaringClass().getName());
+            names[i] = parameters[i].getName();
+        }
+        return names;
+    }
+
+    private static List<Field> getFields(Class<?> type, String[] names)
+    {
+        ImmutableList.Builder<Field> fields = ImmutableList.builder();
+        for (String name : names) {
+            try {
+                fields.add(type.getDeclaredField(name));
+            }
+            catch (NoSuchFieldException e) {
+                throw new IllegalArgumentException("Command " + type.getName() + " does not declare field " + name, e);
+            }
+        }
+        return fields.build();
+    }
+}
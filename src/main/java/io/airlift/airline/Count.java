@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+/**
+ * A number of items, parsed from a decimal integer with an optional {@code k},
+ * {@code M}, {@code G} or {@code T} suffix, which multiplies it by a power of 1000, such
+ * as {@code 10k}. The suffix is case insensitive. Plain {@code int} and {@code long}
+ * options do not accept suffixes; declare an option of this type to accept them.
+ * Options and arguments of this type are converted without reflection.
+ */
+public final class Count
+        implements Comparable<Count>
+{
+    private final long value;
+
+    private Count(long value)
+    {
+        this.value = value;
+    }
+
+    public static Count of(long value)
+    {
+        return new Count(value);
+    }
+
+    public static Count valueOf(String value)
+    {
+        return new Count(BuiltInConverters.parseSuffixedLong(value));
+    }
+
+    public long toLong()
+    {
+        return value;
+    }
+
+    @Override
+    public int compareTo(Count other)
+    {
+        return Long.compare(value, other.value);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return value == ((Count) o).value;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Long.toString(value);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An amount of data, in bytes. Values are parsed like {@code io.airlift.units.DataSize}:
+ * a number, which may have a fraction, followed by one of the units {@code B},
+ * {@code kB}, {@code MB}, {@code GB}, {@code TB} or {@code PB}, which are powers of 1024,
+ * such as {@code 512MB} or {@code 1.5 GB}. The unit is required and case sensitive.
+ * Options and arguments of this type are converted without reflection.
+ */
+public final class DataSize
+        implements Comparable<DataSize>
+{
+    private final long bytes;
+
+    private DataSize(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        this.bytes = bytes;
+    }
+
+    public static DataSize ofBytes(long bytes)
+    {
+        return new DataSize(bytes);
+    }
+
+    public static DataSize valueOf(String value)
+    {
+        return new DataSize(BuiltInConverters.parseDataSize(value));
+    }
+
+    public long toBytes()
+    {
+        return bytes;
+    }
+
+    @Override
+    public int compareTo(DataSize other)
+    {
+        return Long.compare(bytes, other.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return bytes == ((DataSize) o).bytes;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(bytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return bytes + "B";
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Generates reference documentation for every command of a CLI in one process. The
+ * program, each group and each command get a page with the help printed by
+ * {@link GlobalUsage}, {@link CommandGroupUsage} and {@link CommandUsage}, and a
+ * SEE ALSO section linking to the pages below it. Pages are rendered and written
+ * in parallel.
+ * <p>
+ * The {@link #main} method can be run during the build, for example with the
+ * exec-maven-plugin, and takes the name of a class implementing
+ * {@code Supplier<Cli<?>>}, the output directory and optionally the formats.
+ */
+public class DocumentationGenerator
+{
+    public enum Format
+    {
+        MAN("1"),
+        MARKDOWN("md"),
+        HTML("html");
+
+        private final String extension;
+
+        Format(String extension)
+        {
+            this.extension = extension;
+        }
+
+        public String getExtension()
+        {
+            return extension;
+        }
+    }
+
+    private static final int COLUMN_SIZE = 79;
+    private static final int SECTION_INDENT = 8;
+
+    private final GlobalMetadata global;
+    private final List<Page> pages;
+
+    public DocumentationGenerator(GlobalMetadata metadata)
+    {
+        requireNonNull(metadata, "metadata is null");
+        // hidden commands are left out of the documentation, but are still listed by the help of the CLI
+        GlobalMetadata global = withoutHiddenCommands(metadata);
+        this.global = global;
+
+        GlobalUsage globalUsage = new GlobalUsage(COLUMN_SIZE);
+        CommandGroupUsage groupUsage = new CommandGroupUsage(COLUMN_SIZE);
+        CommandUsage commandUsage = new CommandUsage(COLUMN_SIZE);
+
+        // a group and a default group command can share a name, so page names are made unique
+        Set<String> names = new HashSet<>();
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+
+        Page globalPage = new Page(uniqueName(names, global.getName(), "program"), global.getName(), out -> globalUsage.usage(global, out));
+        pages.add(globalPage);
+        for (CommandMetadata command : global.getDefaultGroupCommands()) {
+            Page page = new Page(
+                    uniqueName(names, global.getName() + "-" + command.getName(), "command"),
+                    global.getName() + " " + command.getName(),
+                    out -> commandUsage.usage(global.getName(), null, command.getName(), command, out));
+            globalPage.seeAlso.add(page);
+            pages.add(page);
+        }
+        for (CommandGroupMetadata group : global.getCommandGroups()) {
+            Page groupPage = new Page(
+                    uniqueName(names, global.getName() + "-" + group.getName(), "group"),
+                    global.getName() + " " + group.getName(),
+                    out -> groupUsage.usage(global, group, out));
+            globalPage.seeAlso.add(groupPage);
+            pages.add(groupPage);
+            for (CommandMetadata command : group.getCommands()) {
+                Page page = new Page(
+                        uniqueName(names, global.getName() + "-" + group.getName() + "-" + command.getName(), "command"),
+                        global.getName() + " " + group.getName() + " " + command.getName(),
+                        out -> commandUsage.usage(global.getName(), group.getName(), command.getName(), command, out));
+                groupPage.seeAlso.add(page);
+                pages.add(page);
+            }
+        }
+        this.pages = pages.build();
+    }
+
+    /**
+     * Returns the names of the pages, without the file extension, in documentation order.
+     */
+    public List<String> getPageNames()
+    {
+        return pages.stream()
+                .map(page -> page.name)
+                .collect(toImmutableList());
+    }
+
+    /**
+     * Renders and writes all pages to the output directory, and returns the written files.
+     */
+    public List<Path> generate(Path outputDirectory, Format format)
+            throws IOException
+    {
+        requireNonNull(outputDirectory, "outputDirectory is null");
+        requireNonNull(format, "format is null");
+
+        Files.createDirectories(outputDirectory);
+        try {
+            return pages.parallelStream()
+                    .map(page -> write(page, outputDirectory, format))
+                    .collect(toImmutableList());
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Renders the named page.
+     */
+    public void render(String pageName, Format format, Appendable out)
+    {
+        requireNonNull(pageName, "pageName is null");
+        Page page = pages.stream()
+                .filter(candidate -> candidate.name.equals(pageName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown page " + pageName));
+        render(page, format, out);
+    }
+
+    private Path write(Page page, Path outputDirectory, Format format)
+    {
+        Path file = outputDirectory.resolve(page.name + "." + format.getExtension());
+        try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+            render(page, format, writer);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+
+    private void render(Page page, Format format, Appendable out)
+    {
+        PageWriter writer;
+        switch (format) {
+            case MAN:
+                writer = new ManPageWriter(out);
+                break;
+            case MARKDOWN:
+                writer = new MarkdownPageWriter(out);
+                break;
+            case HTML:
+                writer = new HtmlPageWriter(out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported format " + format);
+        }
+
+        StringBuilder usage = new StringBuilder();
+        page.usage.accept(new UsagePrinter(usage, COLUMN_SIZE));
+        try {
+            writer.write(global, page, usage.toString());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static GlobalMetadata withoutHiddenCommands(GlobalMetadata global)
+    {
+        ImmutableList.Builder<CommandGroupMetadata> groups = ImmutableList.builder();
+        for (CommandGroupMetadata group : global.getCommandGroups()) {
+            groups.add(new CommandGroupMetadata(
+                    group.getName(),
+                    group.getDescription(),
+                    group::getOptions,
+                    group.getDefaultCommand(),
+                    visibleCommands(group.getCommands())));
+        }
+        return new GlobalMetadata(
+                global.getName(),
+                global.getDescription(),
+                global::getOptions,
+                global.getDefaultCommand(),
+                visibleCommands(global.getDefaultGroupCommands()),
+                groups.build());
+    }
+
+    private static List<CommandMetadata> visibleCommands(List<CommandMetadata> commands)
+    {
+        return commands.stream()
+                .filter(command -> !command.isHidden())
+                .collect(toImmutableList());
+    }
+
+    private static String uniqueName(Set<String> names, String name, String kind)
+    {
+        if (names.add(name)) {
+            return name;
+        }
+        String unique = name + "-" + kind;
+        for (int i = 2; !names.add(unique); i++) {
+            unique = name + "-" + kind + "-" + i;
+        }
+        return unique;
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: DocumentationGenerator <cli-supplier-class> <output-directory> [man|markdown|html]...");
+            System.exit(1);
+        }
+
+        Cli<?> cli = loadCli(args[0]);
+
+        List<Format> formats = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            formats.add(Format.valueOf(args[i].toUpperCase(Locale.ENGLISH)));
+        }
+        if (formats.isEmpty()) {
+            formats.addAll(ImmutableList.copyOf(Format.values()));
+        }
+
+        DocumentationGenerator generator = new DocumentationGenerator(cli.getMetadata());
+        Path outputDirectory = Paths.get(args[1]);
+        for (Format format : formats) {
+            List<Path> files = generator.generate(outputDirectory, format);
+            System.out.println("Wrote " + files.size() + " " + format.name().toLowerCase(Locale.ENGLISH) + " pages to " + outputDirectory);
+        }
+    }
+
+    /**
+     * Creates the CLI returned by the named {@code Supplier<Cli<?>>} class.
+     */
+    static Cli<?> loadCli(String supplierClassName)
+            throws ReflectiveOperationException
+    {
+        Class<?> supplierClass = Class.forName(supplierClassName, true, Thread.currentThread().getContextClassLoader());
+        Supplier<?> supplier = (Supplier<?>) supplierClass.getConstructor().newInstance();
+        return (Cli<?>) supplier.get();
+    }
+
+    private static final class Page
+    {
+        private final String name;
+        private final String title;
+        private final Consumer<UsagePrinter> usage;
+        private final List<Page> seeAlso = new ArrayList<>();
+
+        private Page(String name, String title, Consumer<UsagePrinter> usage)
+        {
+            this.name = name;
+            this.title = title;
+            this.usage = usage;
+        }
+    }
+
+    /**
+     * Splits the usage text into its sections, and writes each section with the
+     * markup of the format.
+     */
+    private abstract static class PageWriter
+    {
+        protected final Appendable out;
+
+        protected PageWriter(Appendable out)
+        {
+            this.out = out;
+        }
+
+        public void write(GlobalMetadata global, Page page, String usage)
+                throws IOException
+        {
+            begin(global, page);
+
+            List<String> lines = new ArrayList<>();
+            for (String line : Splitter.on('\n').split(usage)) {
+                line = CharMatcher.whitespace().trimTrailingFrom(line);
+                if (!line.isEmpty() && line.charAt(0) != ' ') {
+                    body(lines);
+                    lines.clear();
+                    section(line);
+                }
+                else {
+                    int indent = 0;
+                    while (indent < SECTION_INDENT && indent < line.length() && line.charAt(indent) == ' ') {
+                        indent++;
+                    }
+                    lines.add(line.substring(indent));
+                }
+            }
+            body(lines);
+
+            if (!page.seeAlso.isEmpty()) {
+                section("SEE ALSO");
+                seeAlso(page.seeAlso);
+            }
+
+            end();
+        }
+
+        private void body(List<String> lines)
+                throws IOException
+        {
+            int from = 0;
+            int to = lines.size();
+            while (from < to && lines.get(from).isEmpty()) {
+                from++;
+            }
+            while (to > from && lines.get(to - 1).isEmpty()) {
+                to--;
+            }
+            if (from < to) {
+                preformatted(lines.subList(from, to));
+            }
+        }
+
+        protected abstract void begin(GlobalMetadata global, Page page)
+                throws IOException;
+
+        protected abstract void section(String name)
+                throws IOException;
+
+        protected abstract void preformatted(List<String> lines)
+                throws IOException;
+
+        protected abstract void seeAlso(List<Page> pages)
+                throws IOException;
+
+        protected void end()
+                throws IOException
+        {
+        }
+    }
+
+    private static class ManPageWriter
+            extends PageWriter
+    {
+        private ManPageWriter(Appendable out)
+        {
+            super(out);
+        }
+
+        @Override
+        protected void begin(GlobalMetadata global, Page page)
+                throws IOException
+        {
+            out.append(".TH \"").append(escape(page.name.toUpperCase(Locale.ENGLISH))).append("\" \"1\" \"\" \"")
+                    .append(escape(global.getName())).append("\"\n");
+        }
+
+        @Override
+        protected void section(String name)
+                throws IOException
+        {
+            out.append(".SH \"").append(escape(name)).append("\"\n");
+        }
+
+        @Override
+        protected void preformatted(List<String> lines)
+                throws IOException
+        {
+            out.append(".nf\n");
+            for (String line : lines) {
+                out.append(escape(line)).append('\n');
+            }
+            out.append(".fi\n");
+        }
+
+        @Override
+        protected void seeAlso(List<Page> pages)
+                throws IOException
+        {
+            for (int i = 0; i < pages.size(); i++) {
+                out.append(".BR ").append(escape(pages.get(i).name)).append(" (1)");
+                if (i < pages.size() - 1) {
+                    out.append(" ,");
+                }
+                out.append('\n');
+            }
+        }
+
+        private static String escape(String text)
+        {
+            String escaped = text.replace("\\", "\\e").replace("-", "\\-").replace("\"", "\\(dq");
+            if (escaped.startsWith(".") || escaped.startsWith("'")) {
+                escaped = "\\&" + escaped;
+            }
+            return escaped;
+        }
+    }
+
+    private static class MarkdownPageWriter
+            extends PageWriter
+    {
+        private MarkdownPageWriter(Appendable out)
+        {
+            super(out);
+        }
+
+        @Override
+        protected void begin(GlobalMetadata global, Page page)
+                throws IOException
+        {
+            out.append("# ").append(escape(page.title)).append("\n\n");
+        }
+
+        @Override
+        protected void section(String name)
+                throws IOException
+        {
+            out.append("## ").append(name).append("\n\n");
+        }
+
+        @Override
+        protected void preformatted(List<String> lines)
+                throws IOException
+        {
+            out.append("```\n");
+            for (String line : lines) {
+                out.append(line).append('\n');
+            }
+            out.append("```\n\n");
+        }
+
+        @Override
+        protected void seeAlso(List<Page> pages)
+                throws IOException
+        {
+            for (Page page : pages) {
+                out.append("* [").append(escape(page.title)).append("](").append(page.name).append(".md)\n");
+            }
+            out.append('\n');
+        }
+
+        private static String escape(String text)
+        {
+            StringBuilder escaped = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if ("\\`*_[]<>#|".indexOf(c) >= 0) {
+                    escaped.append('\\');
+                }
+                escaped.append(c);
+            }
+            return escaped.toString();
+        }
+    }
+
+    private static class HtmlPageWriter
+            extends PageWriter
+    {
+        private HtmlPageWriter(Appendable out)
+        {
+            super(out);
+        }
+
+        @Override
+        protected void begin(GlobalMetadata global, Page page)
+                throws IOException
+        {
+            out.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>")
+                    .append(escape(page.title))
+                    .append("</title>\n</head>\n<body>\n<h1>")
+                    .append(escape(page.title))
+                    .append("</h1>\n");
+        }
+
+        @Override
+        protected void section(String name)
+                throws IOException
+        {
+            out.append("<h2>").append(escape(name)).append("</h2>\n");
+        }
+
+        @Override
+        protected void preformatted(List<String> lines)
+                throws IOException
+        {
+            out.append("<pre>");
+            for (String line : lines) {
+                out.append(escape(line)).append('\n');
+            }
+            out.append("</pre>\n");
+        }
+
+        @Override
+        protected void seeAlso(List<Page> pages)
+                throws IOException
+        {
+            out.append("<ul>\n");
+            for (Page page : pages) {
+                out.append("<li><a href=\"").append(escape(page.name)).append(".html\">").append(escape(page.title)).append("</a></li>\n");
+            }
+            out.append("</ul>\n");
+        }
+
+        @Override
+        protected void end()
+                throws IOException
+        {
+            out.append("</body>\n</html>\n");
+        }
+
+        private static String escape(String text)
+        {
+            return text.replace("&", "&amp;")
+                    .replace("<", "&lt;")
+                    .replace(">", "&gt;")
+                    .replace("\"", "&quot;");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Locale.ENGLISH;
+
+/**
+ * Lookup table from the names and {@link Alias aliases} of the constants of an enum to
+ * the constants, built once per enum class. Names that differ only in case from the
+ * name of another constant can only be matched exactly.
+ */
+final class EnumLookup
+{
+    private static final ClassValue<EnumLookup> LOOKUPS = new ClassValue<EnumLookup>()
+    {
+        @Override
+        protected EnumLookup computeValue(Class<?> type)
+        {
+            return new EnumLookup(type);
+        }
+    };
+
+    private final List<String> names;
+    private final Map<String, Object> constants;
+    private final Map<String, Object> constantsIgnoringCase;
+    private final boolean customConversion;
+
+    private EnumLookup(Class<?> type)
+    {
+        ImmutableList.Builder<String> names = ImmutableList.builder();
+        Map<String, Object> constants = new HashMap<>();
+        Map<String, Object> constantsIgnoringCase = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (Object constant : type.getEnumConstants()) {
+            String name = ((Enum<?>) constant).name();
+            names.add(name);
+            constants.put(name, constant);
+            addIgnoringCase(constantsIgnoringCase, ambiguous, name, constant);
+
+            Alias alias = getField(type, name).getAnnotation(Alias.class);
+            if (alias != null) {
+                for (String value : alias.value()) {
+                    Object existing = constants.putIfAbsent(value, constant);
+                    checkArgument(existing == null || existing == constant, "Alias %s of %s.%s is already used by %s", value, type.getName(), name, existing);
+                    addIgnoringCase(constantsIgnoringCase, ambiguous, value, constant);
+                }
+            }
+        }
+        constantsIgnoringCase.keySet().removeAll(ambiguous);
+
+        this.names = names.build();
+        this.constants = ImmutableMap.copyOf(constants);
+        this.constantsIgnoringCase = ImmutableMap.copyOf(constantsIgnoringCase);
+        this.customConversion = hasFromString(type);
+    }
+
+    public static EnumLookup forType(Class<?> type)
+    {
+        checkArgument(type.isEnum(), "%s is not an enum", type.getName());
+        return LOOKUPS.get(type);
+    }
+
+    /**
+     * Returns the names of the constants, in declaration order.
+     */
+    public List<String> getNames()
+    {
+        return names;
+    }
+
+    /**
+     * Returns whether the enum declares a {@code fromString} method, which is used to
+     * convert values instead of this table.
+     */
+    public boolean hasCustomConversion()
+    {
+        return customConversion;
+    }
+
+    /**
+     * Returns the constant with the name or alias, or null if there is none.
+     */
+    @Nullable
+    public Object find(String value, boolean ignoreCase)
+    {
+        Object constant = constants.get(value);
+        if (constant == null && ignoreCase) {
+            constant = constantsIgnoringCase.get(value.toLowerCase(ENGLISH));
+        }
+        return constant;
+    }
+
+    private static void addIgnoringCase(Map<String, Object> constants, Set<String> ambiguous, String name, Object constant)
+    {
+        Object existing = constants.putIfAbsent(name.toLowerCase(ENGLISH), constant);
+        if (existing != null && existing != constant) {
+            ambiguous.add(name.toLowerCase(ENGLISH));
+        }
+    }
+
+    private static Field getField(Class<?> type, String name)
+    {
+        try {
+            return type.getField(name);
+        }
+        catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Enum constant " + type.getName() + "." + name + " has no field", e);
+        }
+    }
+
+    private static boolean hasFromString(Class<?> type)
+    {
+        try {
+            return Modifier.isStatic(type.getMethod("fromString", String.class).getModifiers());
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
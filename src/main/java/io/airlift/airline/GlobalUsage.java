@@ -42,15 +42,21 @@ public class GlobalUsage
      */
     public void usage(GlobalMetadata global)
     {
-        StringBuilder stringBuilder = new StringBuilder();
-        usage(global, stringBuilder);
-        System.out.println(stringBuilder.toString());
+        UsagePrinter.printToSystemOut(out -> usage(global, out));
     }
 
     /**
-     * Store the help in the passed string builder.
+     * Write the help to the passed string builder.
      */
     public void usage(GlobalMetadata global, StringBuilder out)
+    {
+        usage(global, (Appendable) out);
+    }
+
+    /**
+     * Write the help to the passed appendable.
+     */
+    public void usage(GlobalMetadata global, Appendable out)
     {
         usage(global, new UsagePrinter(out, columnSize));
     }
@@ -83,12 +89,15 @@ public class GlobalUsage
         //
         // OPTIONS
         //
-        List<OptionMetadata> options = new ArrayList<>(global.getOptions());
+        List<OptionMetadata> options = global.getOptions();
+        if (optionComparator == DEFAULT_OPTION_COMPARATOR) {
+            options = global.getSortedOptions();
+        }
+        else if (optionComparator != null) {
+            options = new ArrayList<>(options);
+            Collections.sort(options, optionComparator);
+        }
         if (options.size() > 0) {
-            if (optionComparator != null) {
-                Collections.sort(options, optionComparator);
-            }
-
             out.append("OPTIONS").newline();
 
             for (OptionMetadata option : options) {
@@ -99,6 +108,10 @@ public class GlobalUsage
                 // description
                 UsagePrinter descriptionPrinter = optionPrinter.newIndentedPrinter(4);
                 descriptionPrinter.append(option.getDescription()).newline();
+                String defaultSource = UsageHelper.toDefaultSource(option);
+                if (defaultSource != null) {
+                    descriptionPrinter.append(defaultSource).newline();
+                }
 
                 descriptionPrinter.newline();
             }
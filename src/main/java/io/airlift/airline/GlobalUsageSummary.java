@@ -34,15 +34,21 @@ public class GlobalUsageSummary
      */
     public void usage(GlobalMetadata global)
     {
-        StringBuilder stringBuilder = new StringBuilder();
-        usage(global, stringBuilder);
-        System.out.println(stringBuilder.toString());
+        UsagePrinter.printToSystemOut(out -> usage(global, out));
     }
 
     /**
-     * Store the help in the passed string builder.
+     * Write the help to the passed string builder.
      */
     public void usage(GlobalMetadata global, StringBuilder out)
+    {
+        usage(global, (Appendable) out);
+    }
+
+    /**
+     * Write the help to the passed appendable.
+     */
+    public void usage(GlobalMetadata global, Appendable out)
     {
         usage(global, new UsagePrinter(out, columnSize));
     }
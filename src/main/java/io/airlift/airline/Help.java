@@ -35,24 +35,30 @@ public class Help
 
     public static void help(CommandMetadata command)
     {
-        StringBuilder stringBuilder = new StringBuilder();
-        help(command, stringBuilder);
-        System.out.println(stringBuilder.toString());
+        UsagePrinter.printToSystemOut(out -> help(command, out));
     }
 
     public static void help(CommandMetadata command, StringBuilder out)
+    {
+        help(command, (Appendable) out);
+    }
+
+    public static void help(CommandMetadata command, Appendable out)
     {
         new CommandUsage().usage(null, null, command.getName(), command, out);
     }
 
     public static void help(GlobalMetadata global, List<String> commandNames)
     {
-        StringBuilder stringBuilder = new StringBuilder();
-        help(global, commandNames, stringBuilder);
-        System.out.println(stringBuilder.toString());
+        UsagePrinter.printToSystemOut(out -> help(global, commandNames, out));
     }
 
     public static void help(GlobalMetadata global, List<String> commandNames, StringBuilder out)
+    {
+        help(global, commandNames, (Appendable) out);
+    }
+
+    public static void help(GlobalMetadata global, List<String> commandNames, Appendable out)
     {
         if (commandNames.isEmpty()) {
             new GlobalUsageSummary().usage(global, out);
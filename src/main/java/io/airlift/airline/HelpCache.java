@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import javax.annotation.Nullable;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Caches rendered help text keyed by the metadata, column size and option comparator.
+ * Metadata is compared by identity, so the cache must only be shared by callers that
+ * reuse the same metadata instances. Help is rendered on first use, or eagerly for a
+ * whole CLI with {@link #preRender}. When the cache is full, the least recently used
+ * entries are evicted.
+ */
+public class HelpCache
+{
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final LoadingCache<Key, String> cache;
+
+    public HelpCache()
+    {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public HelpCache(long maximumSize)
+    {
+        checkArgument(maximumSize > 0, "maximumSize must be greater than 0");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build(CacheLoader.from(Key::render));
+    }
+
+    /**
+     * Returns the help of the specified command as rendered by {@link CommandUsage}.
+     */
+    public String getCommandUsage(@Nullable String programName,
+            @Nullable String groupName,
+            CommandMetadata command,
+            int columnSize,
+            @Nullable Comparator<? super OptionMetadata> optionComparator)
+    {
+        requireNonNull(command, "command is null");
+        return cache.getUnchecked(new Key(Kind.COMMAND, null, null, command, programName, groupName, columnSize, optionComparator));
+    }
+
+    /**
+     * Returns the help of the specified group as rendered by {@link CommandGroupUsage}.
+     */
+    public String getCommandGroupUsage(@Nullable GlobalMetadata global,
+            CommandGroupMetadata group,
+            int columnSize,
+            @Nullable Comparator<? super OptionMetadata> optionComparator)
+    {
+        requireNonNull(group, "group is null");
+        return cache.getUnchecked(new Key(Kind.GROUP, global, group, null, null, null, columnSize, optionComparator));
+    }
+
+    /**
+     * Returns the help of the program as rendered by {@link GlobalUsage}.
+     */
+    public String getGlobalUsage(GlobalMetadata global, int columnSize, @Nullable Comparator<? super OptionMetadata> optionComparator)
+    {
+        requireNonNull(global, "global is null");
+        return cache.getUnchecked(new Key(Kind.GLOBAL, global, null, null, null, null, columnSize, optionComparator));
+    }
+
+    /**
+     * Returns the help summary of the program as rendered by {@link GlobalUsageSummary}.
+     */
+    public String getGlobalUsageSummary(GlobalMetadata global, int columnSize)
+    {
+        requireNonNull(global, "global is null");
+        return cache.getUnchecked(new Key(Kind.GLOBAL_SUMMARY, global, null, null, null, null, columnSize, null));
+    }
+
+    /**
+     * Renders the help of the program, all of its groups and all of its commands, as
+     * selected by {@link Help}.
+     */
+    public void preRender(GlobalMetadata global, int columnSize, @Nullable Comparator<? super OptionMetadata> optionComparator)
+    {
+        getGlobalUsageSummary(global, columnSize);
+        getGlobalUsage(global, columnSize, optionComparator);
+        for (CommandMetadata command : global.getDefaultGroupCommands()) {
+            getCommandUsage(global.getName(), null, command, columnSize, optionComparator);
+        }
+        for (CommandGroupMetadata group : global.getCommandGroups()) {
+            getCommandGroupUsage(global, group, columnSize, optionComparator);
+            for (CommandMetadata command : group.getCommands()) {
+                getCommandUsage(global.getName(), group.getName(), command, columnSize, optionComparator);
+            }
+        }
+    }
+
+    public long size()
+    {
+        return cache.size();
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    private enum Kind
+    {
+        GLOBAL_SUMMARY, GLOBAL, GROUP, COMMAND
+    }
+
+    private static final class Key
+    {
+        private final Kind kind;
+        private final GlobalMetadata global;
+        private final CommandGroupMetadata group;
+        private final CommandMetadata command;
+        private final String programName;
+        private final String groupName;
+        private final int columnSize;
+        private final Comparator<? super OptionMetadata> optionComparator;
+
+        private Key(Kind kind,
+                @Nullable GlobalMetadata global,
+                @Nullable CommandGroupMetadata group,
+                @Nullable CommandMetadata command,
+                @Nullable String programName,
+                @Nullable String groupName,
+                int columnSize,
+                @Nullable Comparator<? super OptionMetadata> optionComparator)
+        {
+            checkArgument(columnSize > 0, "columnSize must be greater than 0");
+            this.kind = kind;
+            this.global = global;
+            this.group = group;
+            this.command = command;
+            this.programName = programName;
+            this.groupName = groupName;
+            this.columnSize = columnSize;
+            this.optionComparator = optionComparator;
+        }
+
+        private String render()
+        {
+            StringBuilder out = new StringBuilder();
+            switch (kind) {
+                case GLOBAL_SUMMARY:
+                    new GlobalUsageSummary(columnSize).usage(global, out);
+                    break;
+                case GLOBAL:
+                    new GlobalUsage(columnSize, optionComparator).usage(global, out);
+                    break;
+                case GROUP:
+                    new CommandGroupUsage(columnSize, false, optionComparator).usage(global, group, out);
+                    break;
+                case COMMAND:
+                    new CommandUsage(columnSize, optionComparator).usage(programName, groupName, command.getName(), command, out);
+                    break;
+            }
+            return out.toString();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return kind == key.kind &&
+                    columnSize == key.columnSize &&
+                    global == key.global &&
+                    group == key.group &&
+                    command == key.command &&
+                    Objects.equals(programName, key.programName) &&
+                    Objects.equals(groupName, key.groupName) &&
+                    Objects.equals(optionComparator, key.optionComparator);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(kind,
+                    System.identityHashCode(global),
+                    System.identityHashCode(group),
+                    System.identityHashCode(command),
+                    programName,
+                    groupName,
+                    columnSize,
+                    optionComparator);
+        }
+    }
+}
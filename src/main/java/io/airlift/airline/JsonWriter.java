@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Minimal pretty printing JSON writer. Members of an object are written on separate
+ * lines, indented by two spaces per level.
+ */
+final class JsonWriter
+{
+    private final Appendable out;
+    private int depth;
+    private boolean first = true;
+    private boolean afterName;
+
+    JsonWriter(Appendable out)
+    {
+        this.out = out;
+    }
+
+    JsonWriter beginObject()
+            throws IOException
+    {
+        beforeValue();
+        out.append('{');
+        depth++;
+        first = true;
+        return this;
+    }
+
+    JsonWriter endObject()
+            throws IOException
+    {
+        return end('}');
+    }
+
+    JsonWriter beginArray()
+            throws IOException
+    {
+        beforeValue();
+        out.append('[');
+        depth++;
+        first = true;
+        return this;
+    }
+
+    JsonWriter endArray()
+            throws IOException
+    {
+        return end(']');
+    }
+
+    private JsonWriter end(char bracket)
+            throws IOException
+    {
+        depth--;
+        if (!first) {
+            newline();
+        }
+        out.append(bracket);
+        first = false;
+        return this;
+    }
+
+    JsonWriter name(String name)
+            throws IOException
+    {
+        beforeValue();
+        string(name);
+        out.append(": ");
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(@Nullable String value)
+            throws IOException
+    {
+        beforeValue();
+        if (value == null) {
+            out.append("null");
+        }
+        else {
+            string(value);
+        }
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(boolean value)
+            throws IOException
+    {
+        beforeValue();
+        out.append(String.valueOf(value));
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(long value)
+            throws IOException
+    {
+        beforeValue();
+        out.append(String.valueOf(value));
+        first = false;
+        return this;
+    }
+
+    JsonWriter values(@Nullable Collection<String> values)
+            throws IOException
+    {
+        if (values == null) {
+            return value((String) null);
+        }
+        beforeValue();
+        out.append('[');
+        boolean firstValue = true;
+        for (String value : values) {
+            if (!firstValue) {
+                out.append(", ");
+            }
+            string(value);
+            firstValue = false;
+        }
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    private void beforeValue()
+            throws IOException
+    {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!first) {
+            out.append(',');
+        }
+        if (depth > 0) {
+            newline();
+        }
+    }
+
+    private void newline()
+            throws IOException
+    {
+        out.append('\n');
+        for (int i = 0; i < depth; i++) {
+            out.append("  ");
+        }
+    }
+
+    private void string(String value)
+            throws IOException
+    {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import io.airlift.airline.model.ArgumentsMetadata;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Exports a {@link GlobalMetadata} tree as JSON, so clients that do not run on the JVM
+ * can validate and complete command lines. The document has the following shape,
+ * and {@code schemaVersion} is incremented whenever it changes incompatibly:
+ * <pre>
+ * {
+ *   "schemaVersion": 1,
+ *   "name": string, "description": string|null,
+ *   "options": [option], "defaultCommand": string|null,
+ *   "commands": [command],
+ *   "groups": [{"name", "description", "options": [option], "defaultCommand", "commands": [command]}]
+ * }
+ * command: {"name", "description", "hidden", "options": [option], "arguments": arguments|null}
+ * option: {"type", "names", "title", "description", "arity", "required", "hidden",
+ *          "multiValued", "allowedValues": [string]|null, "ignoreCase",
+ *          "environmentVariable": string|null, "configKey": string|null}
+ * arguments: {"title", "description", "usage", "required", "multiValued"}
+ * </pre>
+ * Program options are global options, group options are listed on the group, and
+ * command options on the command.
+ */
+public final class MetadataJsonExporter
+{
+    public static final int SCHEMA_VERSION = 1;
+
+    private MetadataJsonExporter() {}
+
+    public static String toJson(GlobalMetadata global)
+    {
+        StringBuilder out = new StringBuilder();
+        export(global, out);
+        return out.toString();
+    }
+
+    public static void export(GlobalMetadata global, Appendable out)
+    {
+        requireNonNull(global, "global is null");
+        try {
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject();
+            json.name("schemaVersion").value(SCHEMA_VERSION);
+            json.name("name").value(global.getName());
+            json.name("description").value(global.getDescription());
+            writeOptions(json, global.getOptions());
+            json.name("defaultCommand").value(global.getDefaultCommand() == null ? null : global.getDefaultCommand().getName());
+            writeCommands(json, global.getDefaultGroupCommands());
+
+            json.name("groups").beginArray();
+            for (CommandGroupMetadata group : global.getCommandGroups()) {
+                json.beginObject();
+                json.name("name").value(group.getName());
+                json.name("description").value(group.getDescription());
+                writeOptions(json, group.getOptions());
+                json.name("defaultCommand").value(group.getDefaultCommand() == null ? null : group.getDefaultCommand().getName());
+                writeCommands(json, group.getCommands());
+                json.endObject();
+            }
+            json.endArray();
+
+            json.endObject();
+            out.append('\n');
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCommands(JsonWriter json, List<CommandMetadata> commands)
+            throws IOException
+    {
+        json.name("commands").beginArray();
+        for (CommandMetadata command : commands) {
+            json.beginObject();
+            json.name("name").value(command.getName());
+            json.name("description").value(command.getDescription());
+            json.name("hidden").value(command.isHidden());
+            writeOptions(json, command.getCommandOptions());
+
+            json.name("arguments");
+            ArgumentsMetadata arguments = command.getArguments();
+            if (arguments == null) {
+                json.value((String) null);
+            }
+            else {
+                json.beginObject();
+                json.name("title").value(arguments.getTitle());
+                json.name("description").value(arguments.getDescription());
+                json.name("usage").value(arguments.getUsage());
+                json.name("required").value(arguments.isRequired());
+                json.name("multiValued").value(arguments.isMultiValued());
+                json.endObject();
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static void writeOptions(JsonWriter json, List<OptionMetadata> options)
+            throws IOException
+    {
+        json.name("options").beginArray();
+        for (OptionMetadata option : options) {
+            json.beginObject();
+            json.name("type").value(option.getOptionType().name());
+            json.name("names").values(option.getOptions());
+            json.name("title").value(option.getTitle());
+            json.name("description").value(option.getDescription());
+            json.name("arity").value(option.getArity());
+            json.name("required").value(option.isRequired());
+            json.name("hidden").value(option.isHidden());
+            json.name("multiValued").value(option.isMultiValued());
+            json.name("allowedValues").values(option.getAllowedValues());
+            json.name("ignoreCase").value(option.isIgnoreCase());
+            json.name("environmentVariable").value(option.getEnvironmentVariable());
+            json.name("configKey").value(option.getConfigKey());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        if (args.length != 2) {
+            System.err.println("Usage: MetadataJsonExporter <cli-supplier-class> <output-file>");
+            System.exit(1);
+        }
+
+        Cli<?> cli = DocumentationGenerator.loadCli(args[0]);
+        Path file = Paths.get(args[1]);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+            export(cli.getMetadata(), writer);
+        }
+    }
+}
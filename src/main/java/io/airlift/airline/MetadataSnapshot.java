@@ -0,0 +1,699 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import io.airlift.airline.model.ArgumentsMetadata;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Binary snapshot of a {@link GlobalMetadata} tree, written at build time and read at
+ * startup instead of scanning the command classes with {@link io.airlift.airline.model.MetadataLoader}.
+ * Command types and option fields are only resolved when a command is dispatched.
+ * <p>
+ * The snapshot contains a fingerprint of the CLI structure, which is checked whenever the
+ * snapshot is used, and the CRC-32 checksums of the class files of every class that
+ * contributes options, which are checked by {@link #isCurrent}.
+ * The {@link #main} method takes the name of a class implementing {@code Supplier<Cli<?>>}
+ * and the output file.
+ */
+public final class MetadataSnapshot
+{
+    private static final int MAGIC = 0x41524c53;
+    private static final int VERSION = 3;
+
+    private final GlobalMetadata metadata;
+    private final long structureHash;
+    private final Map<String, Long> classChecksums;
+    private final ClassLoader classLoader;
+
+    private MetadataSnapshot(GlobalMetadata metadata, long structureHash, Map<String, Long> classChecksums, ClassLoader classLoader)
+    {
+        this.metadata = metadata;
+        this.structureHash = structureHash;
+        this.classChecksums = classChecksums;
+        this.classLoader = classLoader;
+    }
+
+    public GlobalMetadata getMetadata()
+    {
+        return metadata;
+    }
+
+    /**
+     * Returns true if none of the classes contributing commands or options have changed
+     * since the snapshot was written. The checksum of a class file in a jar is read from
+     * the jar directory, and any other class file is read and checksummed.
+     */
+    public boolean isCurrent()
+    {
+        for (Map.Entry<String, Long> entry : classChecksums.entrySet()) {
+            Long checksum = classFileChecksum(classLoader, entry.getKey());
+            if (checksum == null || checksum.longValue() != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getStructureHash()
+    {
+        return structureHash;
+    }
+
+    /**
+     * Reads the snapshot resource, memory-mapping it when it is a file.
+     */
+    public static MetadataSnapshot load(URL resource, ClassLoader classLoader)
+            throws IOException
+    {
+        requireNonNull(resource, "resource is null");
+        return read(map(resource), classLoader);
+    }
+
+    public static MetadataSnapshot read(ByteBuffer buffer, ClassLoader classLoader)
+    {
+        requireNonNull(buffer, "buffer is null");
+        requireNonNull(classLoader, "classLoader is null");
+        return new Reader(buffer.duplicate(), classLoader).read();
+    }
+
+    public static void write(GlobalMetadata metadata, OutputStream output)
+            throws IOException
+    {
+        requireNonNull(metadata, "metadata is null");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        new Writer(out).write(metadata);
+        out.flush();
+    }
+
+    public static byte[] toByteArray(GlobalMetadata metadata)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(metadata, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        if (args.length != 2) {
+            System.err.println("Usage: MetadataSnapshot <cli-supplier-class> <output-file>");
+            System.exit(1);
+        }
+
+        Cli<?> cli = DocumentationGenerator.loadCli(args[0]);
+        Path file = Paths.get(args[1]);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(cli.getMetadata(), out);
+        }
+    }
+
+    private static ByteBuffer map(URL resource)
+            throws IOException
+    {
+        if ("file".equals(resource.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(resource.toURI()), READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            catch (URISyntaxException e) {
+                throw new IOException("Invalid snapshot location " + resource, e);
+            }
+        }
+        try (InputStream in = resource.openStream()) {
+            return ByteBuffer.wrap(ByteStreams.toByteArray(in));
+        }
+    }
+
+    /**
+     * Hashes the shape of a CLI: names, descriptions and command types of the program,
+     * its groups and its commands. {@link Cli.CliBuilder} computes the same hash from
+     * its configuration to check that a snapshot belongs to it.
+     */
+    static final class StructureHasher
+    {
+        private final Hasher hasher = Hashing.murmur3_128().newHasher();
+
+        StructureHasher add(@Nullable String value)
+        {
+            if (value == null) {
+                hasher.putInt(-1);
+            }
+            else {
+                hasher.putInt(value.length()).putString(value, UTF_8);
+            }
+            return this;
+        }
+
+        StructureHasher add(List<String> values)
+        {
+            hasher.putInt(values.size());
+            values.forEach(this::add);
+            return this;
+        }
+
+        long hash()
+        {
+            return hasher.hash().asLong();
+        }
+    }
+
+    private static long structureHash(GlobalMetadata metadata)
+    {
+        StructureHasher hasher = new StructureHasher()
+                .add(metadata.getName())
+                .add(metadata.getDescription())
+                .add(typeName(metadata.getDefaultCommand()))
+                .add(typeNames(metadata.getDefaultGroupCommands()));
+        for (CommandGroupMetadata group : metadata.getCommandGroups()) {
+            hasher.add(group.getName())
+                    .add(group.getDescription())
+                    .add(typeName(group.getDefaultCommand()))
+                    .add(typeNames(group.getCommands()));
+        }
+        return hasher.hash();
+    }
+
+    private static String typeName(@Nullable CommandMetadata command)
+    {
+        return command == null ? null : command.getTypeName();
+    }
+
+    private static List<String> typeNames(List<CommandMetadata> commands)
+    {
+        List<String> names = new ArrayList<>();
+        for (CommandMetadata command : commands) {
+            names.add(command.getTypeName());
+        }
+        return names;
+    }
+
+    @Nullable
+    private static Long classFileChecksum(ClassLoader classLoader, String className)
+    {
+        URL resource = classLoader.getResource(className.replace('.', '/') + ".class");
+        if (resource == null) {
+            return null;
+        }
+        try {
+            URLConnection connection = resource.openConnection();
+            if (connection instanceof JarURLConnection) {
+                // the jar directory records the checksum of every entry, so the class file is not read
+                long checksum = ((JarURLConnection) connection).getJarEntry().getCrc();
+                if (checksum != -1) {
+                    return checksum;
+                }
+            }
+            try (InputStream in = connection.getInputStream()) {
+                CRC32 checksum = new CRC32();
+                checksum.update(ByteStreams.toByteArray(in));
+                return checksum.getValue();
+            }
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static final class Writer
+    {
+        private final DataOutputStream out;
+        private final Map<OptionMetadata, Integer> options = new IdentityHashMap<>();
+        private final Map<CommandMetadata, Integer> commands = new IdentityHashMap<>();
+
+        private Writer(DataOutputStream out)
+        {
+            this.out = out;
+        }
+
+        private void write(GlobalMetadata metadata)
+                throws IOException
+        {
+            List<CommandMetadata> allCommands = new ArrayList<>();
+            addCommand(allCommands, metadata.getDefaultCommand());
+            metadata.getDefaultGroupCommands().forEach(command -> addCommand(allCommands, command));
+            for (CommandGroupMetadata group : metadata.getCommandGroups()) {
+                addCommand(allCommands, group.getDefaultCommand());
+                group.getCommands().forEach(command -> addCommand(allCommands, command));
+            }
+
+            List<OptionMetadata> allOptions = new ArrayList<>();
+            metadata.getOptions().forEach(option -> addOption(allOptions, option));
+            for (CommandGroupMetadata group : metadata.getCommandGroups()) {
+                group.getOptions().forEach(option -> addOption(allOptions, option));
+            }
+            for (CommandMetadata command : allCommands) {
+                command.getAllOptions().forEach(option -> addOption(allOptions, option));
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // fingerprint
+            out.writeLong(structureHash(metadata));
+            Set<String> classNames = contributingClasses(allCommands, allOptions);
+            ClassLoader classLoader = allCommands.isEmpty() ? null : allCommands.get(0).getType().getClassLoader();
+            if (classLoader == null) {
+                // no commands, or commands loaded by the bootstrap class loader
+                classLoader = MetadataSnapshot.class.getClassLoader();
+            }
+            out.writeInt(classNames.size());
+            for (String className : classNames) {
+                Long checksum = classFileChecksum(classLoader, className);
+                checkArgument(checksum != null, "Class file of %s not found", className);
+                writeString(className);
+                out.writeLong(checksum);
+            }
+
+            out.writeInt(allOptions.size());
+            for (OptionMetadata option : allOptions) {
+                writeOption(option);
+            }
+
+            out.writeInt(allCommands.size());
+            for (CommandMetadata command : allCommands) {
+                writeCommand(command);
+            }
+
+            writeString(metadata.getName());
+            writeString(metadata.getDescription());
+            writeOptionReferences(metadata.getOptions());
+            writeCommandReference(metadata.getDefaultCommand());
+            writeCommandReferences(metadata.getDefaultGroupCommands());
+            out.writeInt(metadata.getCommandGroups().size());
+            for (CommandGroupMetadata group : metadata.getCommandGroups()) {
+                writeString(group.getName());
+                writeString(group.getDescription());
+                writeOptionReferences(group.getOptions());
+                writeCommandReference(group.getDefaultCommand());
+                writeCommandReferences(group.getCommands());
+            }
+        }
+
+        private void addCommand(List<CommandMetadata> allCommands, @Nullable CommandMetadata command)
+        {
+            if (command != null && !commands.containsKey(command)) {
+                commands.put(command, allCommands.size());
+                allCommands.add(command);
+            }
+        }
+
+        private void addOption(List<OptionMetadata> allOptions, OptionMetadata option)
+        {
+            if (!options.containsKey(option)) {
+                options.put(option, allOptions.size());
+                allOptions.add(option);
+            }
+        }
+
+        private static Set<String> contributingClasses(List<CommandMetadata> commands, List<OptionMetadata> options)
+        {
+            Set<String> classNames = new TreeSet<>();
+            for (CommandMetadata command : commands) {
+                addClassHierarchy(classNames, command.getType());
+                for (Accessor accessor : command.getMetadataInjections()) {
+                    addClassHierarchy(classNames, accessor);
+                }
+                if (command.getArguments() != null) {
+                    for (Accessor accessor : command.getArguments().getAccessors()) {
+                        addClassHierarchy(classNames, accessor);
+                    }
+                }
+            }
+            for (OptionMetadata option : options) {
+                for (Accessor accessor : option.getAccessors()) {
+                    addClassHierarchy(classNames, accessor);
+                }
+            }
+            return classNames;
+        }
+
+        private static void addClassHierarchy(Set<String> classNames, Accessor accessor)
+        {
+            for (Field field : accessor.getPath()) {
+                addClassHierarchy(classNames, field.getDeclaringClass());
+            }
+        }
+
+        private static void addClassHierarchy(Set<String> classNames, Class<?> type)
+        {
+            for (Class<?> cls = type; cls != null && !Object.class.equals(cls); cls = cls.getSuperclass()) {
+                classNames.add(cls.getName());
+            }
+        }
+
+        private void writeOption(OptionMetadata option)
+                throws IOException
+        {
+            out.writeByte(option.getOptionType().ordinal());
+            writeStrings(option.getOptions());
+            writeString(option.getTitle());
+            writeString(option.getDescription());
+            out.writeInt(option.getArity());
+            out.writeBoolean(option.isRequired());
+            out.writeBoolean(option.isHidden());
+            if (option.getAllowedValues() == null) {
+                out.writeInt(-1);
+            }
+            else {
+                writeStrings(option.getAllowedValues());
+            }
+            out.writeBoolean(option.isIgnoreCase());
+            writeString(option.getEnvironmentVariable());
+            writeString(option.getConfigKey());
+            writeAccessors(option.getAccessors());
+        }
+
+        private void writeCommand(CommandMetadata command)
+                throws IOException
+        {
+            writeString(command.getName());
+            writeString(command.getDescription());
+            out.writeBoolean(command.isHidden());
+            writeOptionReferences(command.getGlobalOptions());
+            writeOptionReferences(command.getGroupOptions());
+            writeOptionReferences(command.getCommandOptions());
+
+            ArgumentsMetadata arguments = command.getArguments();
+            out.writeBoolean(arguments != null);
+            if (arguments != null) {
+                writeString(arguments.getTitle());
+                writeString(arguments.getDescription());
+                writeString(arguments.getUsage());
+                out.writeBoolean(arguments.isRequired());
+                writeAccessors(arguments.getAccessors());
+            }
+
+            writeAccessors(command.getMetadataInjections());
+            writeString(command.getTypeName());
+            out.writeBoolean(command.getConstructorBinding() != null);
+        }
+
+        private void writeAccessors(Iterable<Accessor> accessors)
+                throws IOException
+        {
+            List<Accessor> list = ImmutableList.copyOf(accessors);
+            out.writeInt(list.size());
+            for (Accessor accessor : list) {
+                writeString(accessor.getName());
+                writeStrings(accessor.getFieldDescriptors());
+                out.writeBoolean(accessor.isMultiValued());
+            }
+        }
+
+        private void writeOptionReferences(List<OptionMetadata> references)
+                throws IOException
+        {
+            out.writeInt(references.size());
+            for (OptionMetadata option : references) {
+                out.writeInt(options.get(option));
+            }
+        }
+
+        private void writeCommandReference(@Nullable CommandMetadata command)
+                throws IOException
+        {
+            out.writeInt(command == null ? -1 : commands.get(command));
+        }
+
+        private void writeCommandReferences(List<CommandMetadata> references)
+                throws IOException
+        {
+            out.writeInt(references.size());
+            for (CommandMetadata command : references) {
+                out.writeInt(commands.get(command));
+            }
+        }
+
+        private void writeStrings(Iterable<String> values)
+                throws IOException
+        {
+            List<String> list = ImmutableList.copyOf(values);
+            out.writeInt(list.size());
+            for (String value : list) {
+                writeString(value);
+            }
+        }
+
+        private void writeString(@Nullable String value)
+                throws IOException
+        {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static final class Reader
+    {
+        private final ByteBuffer buffer;
+        private final ClassLoader classLoader;
+        private final List<OptionMetadata> options = new ArrayList<>();
+        private final List<CommandMetadata> commands = new ArrayList<>();
+
+        private Reader(ByteBuffer buffer, ClassLoader classLoader)
+        {
+            this.buffer = buffer;
+            this.classLoader = classLoader;
+        }
+
+        private MetadataSnapshot read()
+        {
+            checkArgument(buffer.getInt() == MAGIC, "Not a metadata snapshot");
+            int version = buffer.getInt();
+            checkArgument(version == VERSION, "Unsupported metadata snapshot version %s", version);
+
+            long structureHash = buffer.getLong();
+            Map<String, Long> classChecksums = new LinkedHashMap<>();
+            int classCount = buffer.getInt();
+            for (int i = 0; i < classCount; i++) {
+                String className = readString();
+                classChecksums.put(className, buffer.getLong());
+            }
+
+            int optionCount = buffer.getInt();
+            for (int i = 0; i < optionCount; i++) {
+                options.add(readOption());
+            }
+
+            int commandCount = buffer.getInt();
+            for (int i = 0; i < commandCount; i++) {
+                commands.add(readCommand());
+            }
+
+            String name = readString();
+            String description = readString();
+            List<OptionMetadata> globalOptions = readOptionReferences();
+            CommandMetadata defaultCommand = readCommandReference();
+            List<CommandMetadata> defaultGroupCommands = readCommandReferences();
+            int groupCount = buffer.getInt();
+            ImmutableList.Builder<CommandGroupMetadata> groups = ImmutableList.builder();
+            for (int i = 0; i < groupCount; i++) {
+                groups.add(new CommandGroupMetadata(
+                        readString(),
+                        readString(),
+                        readOptionReferences(),
+                        readCommandReference(),
+                        readCommandReferences()));
+            }
+
+            GlobalMetadata metadata = new GlobalMetadata(name, description, globalOptions, defaultCommand, defaultGroupCommands, groups.build());
+            return new MetadataSnapshot(metadata, structureHash, classChecksums, classLoader);
+        }
+
+        private OptionMetadata readOption()
+        {
+            OptionType optionType = OptionType.values()[buffer.get()];
+            List<String> names = readStrings();
+            String title = readString();
+            String description = readString();
+            int arity = buffer.getInt();
+            boolean required = buffer.get() != 0;
+            boolean hidden = buffer.get() != 0;
+            List<String> allowedValues = readNullableStrings();
+            boolean ignoreCase = buffer.get() != 0;
+            String environmentVariable = readString();
+            String configKey = readString();
+            Set<Accessor> accessors = ImmutableSet.copyOf(readAccessors());
+            return new OptionMetadata(optionType, names, title, description, arity, required, hidden, allowedValues, ignoreCase, environmentVariable, configKey, accessors);
+        }
+
+        private CommandMetadata readCommand()
+        {
+            String name = readString();
+            String description = readString();
+            boolean hidden = buffer.get() != 0;
+            List<OptionMetadata> globalOptions = readOptionReferences();
+            List<OptionMetadata> groupOptions = readOptionReferences();
+            List<OptionMetadata> commandOptions = readOptionReferences();
+
+            ArgumentsMetadata arguments = null;
+            if (buffer.get() != 0) {
+                arguments = new ArgumentsMetadata(readString(), readString(), readString(), buffer.get() != 0, ImmutableSet.copyOf(readAccessors()));
+            }
+
+            List<Accessor> metadataInjections = readAccessors();
+            String typeName = readString();
+            boolean constructorBinding = buffer.get() != 0;
+
+            Supplier<Class<?>> type = Suppliers.memoize(() -> loadClass(typeName));
+            Supplier<ConstructorBinding> binding = constructorBinding ? () -> ConstructorBinding.forType(type.get()) : () -> null;
+            return new CommandMetadata(name, description, hidden, globalOptions, groupOptions, commandOptions, arguments, metadataInjections, typeName, type, binding);
+        }
+
+        private Class<?> loadClass(@Nullable String typeName)
+        {
+            if (typeName == null) {
+                return null;
+            }
+            try {
+                return Class.forName(typeName, false, classLoader);
+            }
+            catch (ClassNotFoundException e) {
+                throw new ParseException(e, "Unable to load command %s", typeName);
+            }
+        }
+
+        private List<Accessor> readAccessors()
+        {
+            int count = buffer.getInt();
+            ImmutableList.Builder<Accessor> accessors = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                accessors.add(new Accessor(readString(), readStrings(), buffer.get() != 0, classLoader));
+            }
+            return accessors.build();
+        }
+
+        private List<OptionMetadata> readOptionReferences()
+        {
+            int count = buffer.getInt();
+            ImmutableList.Builder<OptionMetadata> references = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                references.add(options.get(buffer.getInt()));
+            }
+            return references.build();
+        }
+
+        @Nullable
+        private CommandMetadata readCommandReference()
+        {
+            int index = buffer.getInt();
+            return index < 0 ? null : commands.get(index);
+        }
+
+        private List<CommandMetadata> readCommandReferences()
+        {
+            int count = buffer.getInt();
+            ImmutableList.Builder<CommandMetadata> references = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                references.add(commands.get(buffer.getInt()));
+            }
+            return references.build();
+        }
+
+        @Nullable
+        private List<String> readNullableStrings()
+        {
+            int count = buffer.getInt();
+            if (count < 0) {
+                return null;
+            }
+            return readStrings(count);
+        }
+
+        private List<String> readStrings()
+        {
+            return readStrings(buffer.getInt());
+        }
+
+        private List<String> readStrings(int count)
+        {
+            ImmutableList.Builder<String> values = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values.build();
+        }
+
+        @Nullable
+        private String readString()
+        {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Primitives;
+import io.airlift.airline.model.ArgumentsMetadata;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Generates the GraalVM native image {@code reflect-config.json} for a command line,
+ * covering the reflection done by {@link io.airlift.airline.model.MetadataLoader},
+ * {@link Accessor}, {@link TypeConverter}, {@link ConstructorBinding} and
+ * {@link ParserUtil#createInstance}:
+ * <ul>
+ * <li>the declared fields of every command, superclass and injected delegate</li>
+ * <li>write access to every option, arguments and metadata field</li>
+ * <li>the public no-arg constructor of commands, delegates and custom collections</li>
+ * <li>the constructor of commands bound with {@link CommandConstructor}</li>
+ * <li>the {@code fromString}, {@code valueOf} or String constructor used to convert values</li>
+ * <li>the constants of enums, read by {@link EnumLookup} for their {@link Alias} annotations,
+ * and their {@code fromString} method</li>
+ * </ul>
+ * The file is placed in {@code META-INF/native-image/<group>/<artifact>/} of the jar.
+ */
+public final class NativeImageConfigGenerator
+{
+    // converted by TypeConverter without reflection
+    private static final Set<Class<?>> BUILT_IN_TYPES = ImmutableSet.of(
+            String.class, Boolean.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+            Duration.class, DataSize.class, Count.class);
+
+    // created by Accessor without reflection
+    private static final Set<Class<?>> BUILT_IN_COLLECTIONS = ImmutableSet.of(
+            Collection.class, List.class, Set.class, SortedSet.class);
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private NativeImageConfigGenerator() {}
+
+    public static String toJson(GlobalMetadata global)
+    {
+        StringBuilder out = new StringBuilder();
+        write(global, out);
+        return out.toString();
+    }
+
+    public static void write(GlobalMetadata global, Appendable out)
+    {
+        requireNonNull(global, "global is null");
+        NativeImageConfigGenerator generator = new NativeImageConfigGenerator();
+        for (CommandMetadata command : allCommands(global)) {
+            generator.addCommand(command);
+        }
+        try {
+            generator.writeJson(out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        if (args.length != 2) {
+            System.err.println("Usage: NativeImageConfigGenerator <cli-supplier-class> <output-file>");
+            System.exit(1);
+        }
+
+        Cli<?> cli = DocumentationGenerator.loadCli(args[0]);
+        Path file = Paths.get(args[1]);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+            write(cli.getMetadata(), writer);
+        }
+    }
+
+    private static Collection<CommandMetadata> allCommands(GlobalMetadata global)
+    {
+        Map<CommandMetadata, CommandMetadata> commands = new IdentityHashMap<>();
+        List<CommandMetadata> result = new ArrayList<>();
+        List<CommandMetadata> candidates = new ArrayList<>();
+        if (global.getDefaultCommand() != null) {
+            candidates.add(global.getDefaultCommand());
+        }
+        candidates.addAll(global.getDefaultGroupCommands());
+        for (CommandGroupMetadata group : global.getCommandGroups()) {
+            if (group.getDefaultCommand() != null) {
+                candidates.add(group.getDefaultCommand());
+            }
+            candidates.addAll(group.getCommands());
+        }
+        for (CommandMetadata command : candidates) {
+            if (commands.put(command, command) == null) {
+                result.add(command);
+            }
+        }
+        return result;
+    }
+
+    private void addCommand(CommandMetadata command)
+    {
+        Class<?> type = command.getType();
+        addHierarchy(type);
+
+        ConstructorBinding constructorBinding = command.getConstructorBinding();
+        if (constructorBinding != null) {
+            entry(type).queryAllDeclaredConstructors = true;
+            Class<?>[] parameterTypes = constructorBinding.getParameters().stream()
+                    .map(Field::getType)
+                    .toArray(Class<?>[]::new);
+            try {
+                entry(type).addMethod(type.getDeclaredConstructor(parameterTypes));
+            }
+            catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Bound constructor of " + type.getName() + " not found", e);
+            }
+        }
+        else {
+            addNoArgConstructor(type);
+        }
+
+        for (OptionMetadata option : command.getAllOptions()) {
+            for (Accessor accessor : option.getAccessors()) {
+                addAccessor(accessor);
+            }
+            addConverter(option.getJavaType());
+        }
+        ArgumentsMetadata arguments = command.getArguments();
+        if (arguments != null) {
+            for (Accessor accessor : arguments.getAccessors()) {
+                addAccessor(accessor);
+            }
+            addConverter(arguments.getJavaType());
+        }
+        for (Accessor accessor : command.getMetadataInjections()) {
+            addAccessor(accessor);
+        }
+    }
+
+    private void addAccessor(Accessor accessor)
+    {
+        List<Field> path = accessor.getPath();
+        for (int i = 0; i < path.size(); i++) {
+            Field field = path.get(i);
+            addHierarchy(field.getDeclaringClass());
+            entry(field.getDeclaringClass()).fields.put(field.getName(), Boolean.TRUE);
+
+            if (i < path.size() - 1) {
+                // delegates are created when the field is null
+                addHierarchy(field.getType());
+                addNoArgConstructor(field.getType());
+            }
+            else if (Collection.class.isAssignableFrom(field.getType()) && !BUILT_IN_COLLECTIONS.contains(field.getType())) {
+                addNoArgConstructor(field.getType());
+            }
+        }
+    }
+
+    private void addHierarchy(Class<?> type)
+    {
+        for (Class<?> cls = type; cls != null && !Object.class.equals(cls); cls = cls.getSuperclass()) {
+            entry(cls).allDeclaredFields = true;
+        }
+    }
+
+    private void addNoArgConstructor(Class<?> type)
+    {
+        try {
+            entry(type).addMethod(type.getConstructor());
+        }
+        catch (NoSuchMethodException ignored) {
+        }
+    }
+
+    private void addConverter(Class<?> type)
+    {
+        if (type.isPrimitive() || BUILT_IN_TYPES.contains(Primitives.wrap(type))) {
+            return;
+        }
+
+        if (type.isEnum()) {
+            addEnum(type);
+            return;
+        }
+
+        // same lookup order as TypeConverter
+        for (String name : new String[] {"fromString", "valueOf"}) {
+            try {
+                Method method = type.getMethod(name, String.class);
+                if (method.getReturnType().isAssignableFrom(type)) {
+                    entry(type).addMethod(method);
+                    return;
+                }
+            }
+            catch (NoSuchMethodException ignored) {
+            }
+        }
+        try {
+            entry(type).addMethod(type.getConstructor(String.class));
+        }
+        catch (NoSuchMethodException ignored) {
+        }
+    }
+
+    private void addEnum(Class<?> type)
+    {
+        Entry entry = entry(type);
+        try {
+            // Class.getEnumConstants calls values() reflectively
+            entry.addMethod(type.getMethod("values"));
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Enum " + type.getName() + " has no values method", e);
+        }
+
+        // EnumLookup reads the Alias annotation of the public field of every constant
+        for (Object constant : type.getEnumConstants()) {
+            entry.fields.putIfAbsent(((Enum<?>) constant).name(), Boolean.FALSE);
+        }
+
+        // EnumLookup looks for fromString, which TypeConverter then calls
+        try {
+            Method method = type.getMethod("fromString", String.class);
+            if (Modifier.isStatic(method.getModifiers())) {
+                entry.addMethod(method);
+            }
+        }
+        catch (NoSuchMethodException ignored) {
+        }
+    }
+
+    private Entry entry(Class<?> type)
+    {
+        return entries.computeIfAbsent(type.getName(), name -> new Entry());
+    }
+
+    private void writeJson(Appendable out)
+            throws IOException
+    {
+        JsonWriter json = new JsonWriter(out);
+        json.beginArray();
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            json.beginObject();
+            json.name("name").value(mapEntry.getKey());
+            if (entry.allDeclaredFields) {
+                json.name("allDeclaredFields").value(true);
+            }
+            if (entry.queryAllDeclaredConstructors) {
+                json.name("queryAllDeclaredConstructors").value(true);
+            }
+            if (!entry.fields.isEmpty()) {
+                json.name("fields").beginArray();
+                for (Map.Entry<String, Boolean> field : entry.fields.entrySet()) {
+                    json.beginObject();
+                    json.name("name").value(field.getKey());
+                    if (field.getValue()) {
+                        json.name("allowWrite").value(true);
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            if (!entry.methods.isEmpty()) {
+                json.name("methods").beginArray();
+                for (Map.Entry<String, List<String>> method : entry.methods.entrySet()) {
+                    json.beginObject();
+                    json.name("name").value(method.getKey().substring(0, method.getKey().indexOf('[')));
+                    json.name("parameterTypes").values(method.getValue());
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+        json.endArray();
+        out.append('\n');
+    }
+
+    private static final class Entry
+    {
+        private boolean allDeclaredFields;
+        private boolean queryAllDeclaredConstructors;
+        private final Map<String, Boolean> fields = new TreeMap<>();
+        private final Map<String, List<String>> methods = new TreeMap<>();
+
+        private void addMethod(Executable executable)
+        {
+            String name = executable instanceof Constructor ? "<init>" : executable.getName();
+            List<String> parameterTypes = new ArrayList<>();
+            for (Class<?> parameterType : executable.getParameterTypes()) {
+                parameterTypes.add(parameterType.getName());
+            }
+            methods.put(name + parameterTypes, parameterTypes);
+        }
+    }
+}
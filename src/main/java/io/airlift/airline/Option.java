@@ -64,5 +64,28 @@ public @interface Option
      */
     boolean hidden() default false;
 
+    /**
+     * If not empty, the only values accepted for this option.
+     */
     String[] allowedValues() default {};
+
+    /**
+     * Whether allowed values are matched ignoring case. Matched values are converted
+     * using the allowed value as declared. The names of the constants of enum options
+     * are also matched ignoring case.
+     */
+    boolean ignoreCase() default false;
+
+    /**
+     * If not empty, the environment variable providing the value of this option when it
+     * is not given on the command line.
+     */
+    String environmentVariable() default "";
+
+    /**
+     * If not empty, the key of the configuration file entry providing the value of this
+     * option when it is not given on the command line or by its environment variable.
+     * Keys in TOML sections are prefixed with the section name and a dot.
+     */
+    String configKey() default "";
 }
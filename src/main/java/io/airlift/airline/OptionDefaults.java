@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import javax.annotation.Nullable;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Provides the values of options that are not given on the command line from their
+ * environment variable, or from their key in the configuration file. The configuration
+ * file is read once, when a value is first looked up in it.
+ */
+final class OptionDefaults
+{
+    private static final Splitter WHITESPACE = Splitter.on(CharMatcher.whitespace()).omitEmptyStrings();
+
+    private final Map<String, String> environment;
+    @Nullable
+    private final Path configFilePath;
+    @Nullable
+    private final Supplier<ConfigFile> configFile;
+
+    OptionDefaults(Map<String, String> environment, @Nullable Path configFile)
+    {
+        this.environment = ImmutableMap.copyOf(requireNonNull(environment, "environment is null"));
+        this.configFilePath = configFile;
+        this.configFile = configFile == null ? null : Suppliers.memoize(() -> ConfigFile.load(configFile));
+    }
+
+    static OptionDefaults fromEnvironment()
+    {
+        return new OptionDefaults(System.getenv(), null);
+    }
+
+    /**
+     * Returns defaults that read the variables instead of the current environment, and
+     * the same configuration file.
+     */
+    OptionDefaults withEnvironment(Map<String, String> environment)
+    {
+        return new OptionDefaults(environment, configFilePath);
+    }
+
+    /**
+     * Returns defaults that read the configuration file, and the same environment.
+     */
+    OptionDefaults withConfigFile(Path configFile)
+    {
+        return new OptionDefaults(environment, requireNonNull(configFile, "configFile is null"));
+    }
+
+    /**
+     * Adds the default values of the options of the command that have no value.
+     */
+    ParseState apply(ParseState state)
+    {
+        CommandMetadata command = state.getCommand();
+        if (command == null) {
+            return state;
+        }
+
+        for (OptionMetadata option : command.getAllOptions()) {
+            if (!option.hasDefaultSource() || !state.getOptionValues(option).isEmpty()) {
+                continue;
+            }
+            List<String> values = lookup(option);
+            if (!values.isEmpty()) {
+                state = addValues(state, option, values);
+            }
+        }
+        return state;
+    }
+
+    private List<String> lookup(OptionMetadata option)
+    {
+        if (option.getEnvironmentVariable() != null) {
+            String value = environment.get(option.getEnvironmentVariable());
+            if (value != null) {
+                // a variable holds the values of an option of higher arity separated by spaces
+                return option.getArity() > 1 ? WHITESPACE.splitToList(value) : ImmutableList.of(value);
+            }
+        }
+        if (option.getConfigKey() != null && configFile != null) {
+            return configFile.get().get(option.getConfigKey());
+        }
+        return ImmutableList.of();
+    }
+
+    private static ParseState addValues(ParseState state, OptionMetadata option, List<String> values)
+    {
+        if (option.getArity() == 0) {
+            String value = values.get(values.size() - 1).toLowerCase(ENGLISH);
+            if (value.equals("true")) {
+                return state.withOptionValue(option, Boolean.TRUE);
+            }
+            if (!value.equals("false")) {
+                throw new ParseOptionConversionException(option.getTitle(), value, "boolean");
+            }
+            return state;
+        }
+
+        if (option.getArity() == 1) {
+            // a single valued option keeps the last value, as it does on the command line
+            for (String value : option.isMultiValued() ? values : values.subList(values.size() - 1, values.size())) {
+                state = Parser.addOptionValue(state, option, value);
+            }
+            return state;
+        }
+
+        if (values.size() % option.getArity() != 0) {
+            throw new ParseException("Default for option '%s' must have a multiple of %s values", option.getTitle(), option.getArity());
+        }
+        for (int start = 0; start < values.size(); start += option.getArity()) {
+            ImmutableList.Builder<Object> group = ImmutableList.builder();
+            for (String value : values.subList(start, start + option.getArity())) {
+                String allowed = option.findAllowedValue(value);
+                if (allowed == null) {
+                    return state.withError(new ParseOptionIllegalValueException(option.getTitle(), value, option.getAllowedValues()));
+                }
+                group.add(Parser.convertOptionValue(option, allowed));
+            }
+            state = state.withOptionValue(option, group.build());
+        }
+        return state;
+    }
+}
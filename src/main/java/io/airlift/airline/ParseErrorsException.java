@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.joining;
+
+public class ParseErrorsException
+        extends ParseException
+{
+    private final List<ParseException> errors;
+
+    ParseErrorsException(List<ParseException> errors)
+    {
+        super("Found %s errors: %s", errors.size(), errors.stream()
+                .map(ParseException::getMessage)
+                .collect(joining("; ")));
+        this.errors = ImmutableList.copyOf(errors);
+        errors.forEach(this::addSuppressed);
+    }
+
+    public List<ParseException> getErrors()
+    {
+        return errors;
+    }
+}
@@ -18,16 +18,21 @@
 
 package io.airlift.airline;
 
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
 public class ParseOptionConversionException
         extends ParseException
 {
     private final String optionTitle;
     private final String value;
     private final String typeName;
+    private final List<String> validValues;
 
     ParseOptionConversionException(String optionTitle, String value, String typeName)
     {
-        this(optionTitle, value, typeName, null);
+        this(optionTitle, value, typeName, (Throwable) null);
     }
 
     ParseOptionConversionException(String optionTitle, String value, String typeName, Throwable cause)
@@ -36,6 +41,16 @@ public class ParseOptionConversionException
         this.optionTitle = optionTitle;
         this.value = value;
         this.typeName = typeName;
+        this.validValues = ImmutableList.of();
+    }
+
+    ParseOptionConversionException(String optionTitle, String value, String typeName, List<String> validValues)
+    {
+        super("%s: can not convert \"%s\" to a %s, valid values are %s", optionTitle, value, typeName, validValues);
+        this.optionTitle = optionTitle;
+        this.value = value;
+        this.typeName = typeName;
+        this.validValues = ImmutableList.copyOf(validValues);
     }
 
     public String getOptionTitle()
@@ -52,4 +67,13 @@ public class ParseOptionConversionException
     {
         return typeName;
     }
+
+    /**
+     * Returns the values the type accepts, if they are known, such as the constants of
+     * an enum.
+     */
+    public List<String> getValidValues()
+    {
+        return validValues;
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.primitives.Primitives;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The outcome of a successfully validated command line: the selected command and the
+ * converted option and argument values, without a command instance. Option values can
+ * be looked up by any of the option names (e.g. {@code --name}) or by the option title.
+ */
+public class ParseResult
+{
+    private final CommandGroupMetadata group;
+    private final CommandMetadata command;
+    private final ListMultimap<OptionMetadata, Object> parsedOptions;
+    private final List<Object> parsedArguments;
+    private final Map<String, OptionMetadata> optionIndex;
+    private final Map<String, List<Object>> optionValuesByTitle;
+
+    ParseResult(ParseState state)
+    {
+        requireNonNull(state, "state is null");
+        this.group = state.getGroup();
+        this.command = requireNonNull(state.getCommand(), "command is null");
+        this.parsedOptions = ImmutableListMultimap.copyOf(state.getParsedOptions());
+        this.parsedArguments = ImmutableList.copyOf(state.getParsedArguments());
+
+        Map<String, OptionMetadata> optionIndex = new HashMap<>();
+        for (OptionMetadata option : command.getAllOptions()) {
+            for (String name : option.getOptions()) {
+                optionIndex.put(name, option);
+            }
+        }
+        for (OptionMetadata option : command.getAllOptions()) {
+            optionIndex.putIfAbsent(option.getTitle(), option);
+        }
+        this.optionIndex = ImmutableMap.copyOf(optionIndex);
+
+        Map<String, List<Object>> optionValuesByTitle = new LinkedHashMap<>();
+        for (OptionMetadata option : parsedOptions.keySet()) {
+            optionValuesByTitle.merge(option.getTitle(), flatten(option, parsedOptions.get(option)), (first, second) -> ImmutableList.builder().addAll(first).addAll(second).build());
+        }
+        this.optionValuesByTitle = ImmutableMap.copyOf(optionValuesByTitle);
+    }
+
+    @Nullable
+    public CommandGroupMetadata getGroup()
+    {
+        return group;
+    }
+
+    public CommandMetadata getCommand()
+    {
+        return command;
+    }
+
+    public ListMultimap<OptionMetadata, Object> getParsedOptions()
+    {
+        return parsedOptions;
+    }
+
+    public List<Object> getParsedArguments()
+    {
+        return parsedArguments;
+    }
+
+    @Nullable
+    public String getGroupName()
+    {
+        return group == null ? null : group.getName();
+    }
+
+    public String getCommandName()
+    {
+        return command.getName();
+    }
+
+    /**
+     * Returns true if the named option was specified on the command line.
+     */
+    public boolean hasOption(String name)
+    {
+        return parsedOptions.containsKey(getOption(name));
+    }
+
+    /**
+     * Returns the last value of the named option, or null if it was not specified. The
+     * values are flattened as by {@link #getOptionValues}, so when an option is repeated,
+     * or has an arity greater than one, this is the last single value given, which is
+     * the value injected into a field that is not a collection.
+     */
+    @Nullable
+    public <T> T getOptionValue(String name, Class<T> type)
+    {
+        List<T> values = getOptionValues(name, type);
+        if (values.isEmpty()) {
+            return null;
+        }
+        return values.get(values.size() - 1);
+    }
+
+    /**
+     * Returns all values of the named option in command line order. Values of options
+     * with an arity greater than one are flattened.
+     */
+    public <T> List<T> getOptionValues(String name, Class<T> type)
+    {
+        requireNonNull(type, "type is null");
+        OptionMetadata option = getOption(name);
+        return castAll(option.getTitle(), flatten(option, parsedOptions.get(option)), type);
+    }
+
+    /**
+     * Returns the values of all specified options keyed by option title.
+     */
+    public Map<String, List<Object>> getOptionValuesByTitle()
+    {
+        return optionValuesByTitle;
+    }
+
+    public <T> List<T> getArguments(Class<T> type)
+    {
+        requireNonNull(type, "type is null");
+        String title = command.getArguments() == null ? "arguments" : command.getArguments().getTitle();
+        return castAll(title, parsedArguments, type);
+    }
+
+    private OptionMetadata getOption(String name)
+    {
+        requireNonNull(name, "name is null");
+        OptionMetadata option = optionIndex.get(name);
+        checkArgument(option != null, "Command %s does not have option %s", command.getName(), name);
+        return option;
+    }
+
+    private static List<Object> flatten(OptionMetadata option, List<Object> values)
+    {
+        if (option.getArity() <= 1) {
+            return ImmutableList.copyOf(values);
+        }
+        ImmutableList.Builder<Object> flattened = ImmutableList.builder();
+        for (Object value : values) {
+            flattened.addAll((Iterable<?>) value);
+        }
+        return flattened.build();
+    }
+
+    private static <T> List<T> castAll(String title, List<Object> values, Class<T> type)
+    {
+        Class<T> wrappedType = Primitives.wrap(type);
+        for (Object value : values) {
+            checkArgument(wrappedType.isInstance(value), "Value of %s is a %s, not a %s", title, value.getClass().getName(), type.getName());
+        }
+        @SuppressWarnings("unchecked")
+        List<T> result = (List<T>) values;
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ParseResult{" +
+                "group=" + (group == null ? null : group.getName()) +
+                ", command=" + command.getName() +
+                ", parsedOptions=" + parsedOptions +
+                ", parsedArguments=" + parsedArguments +
+                '}';
+    }
+}
@@ -1,6 +1,5 @@
 package io.airlift.airline;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ListMultimap;
@@ -8,118 +7,162 @@ import io.airlift.airline.model.CommandGroupMetadata;
 import io.airlift.airline.model.CommandMetadata;
 import io.airlift.airline.model.OptionMetadata;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * State of a parse. Every change returns a new state, and the parsed values, unparsed
+ * input and errors are kept in append logs that are shared by the states derived from
+ * each other, so adding a value takes constant time however many values were parsed.
+ * A state that is extended after another state was derived from it copies its part of
+ * the log first.
+ */
 public class ParseState
 {
-    private final List<Context> locationStack;
+    private final ContextStack locationStack;
     private final CommandGroupMetadata group;
     private final CommandMetadata command;
-    private final ListMultimap<OptionMetadata, Object> parsedOptions;
-    private final List<Object> parsedArguments;
+    private final Log options;
+    private final int optionCount;
+    private final Log arguments;
+    private final int argumentCount;
     private final OptionMetadata currentOption;
-    private final List<String> unparsedInput;
+    private final Log unparsedInput;
+    private final int unparsedInputCount;
+    private final Log errors;
+    private final int errorCount;
+
+    private ListMultimap<OptionMetadata, Object> parsedOptions;
+    private Map<OptionMetadata, List<Object>> optionValues;
+    private List<Object> parsedArguments;
 
-    ParseState(CommandGroupMetadata group,
+    private ParseState(CommandGroupMetadata group,
             CommandMetadata command,
-            ListMultimap<OptionMetadata, Object> parsedOptions,
-            List<Context> locationStack,
-            List<Object> parsedArguments,
+            Log options,
+            int optionCount,
+            @Nullable ContextStack locationStack,
+            Log arguments,
+            int argumentCount,
             OptionMetadata currentOption,
-            List<String> unparsedInput)
+            Log unparsedInput,
+            int unparsedInputCount,
+            Log errors,
+            int errorCount)
     {
         this.group = group;
         this.command = command;
-        this.parsedOptions = parsedOptions;
+        this.options = options;
+        this.optionCount = optionCount;
         this.locationStack = locationStack;
-        this.parsedArguments = parsedArguments;
+        this.arguments = arguments;
+        this.argumentCount = argumentCount;
         this.currentOption = currentOption;
         this.unparsedInput = unparsedInput;
+        this.unparsedInputCount = unparsedInputCount;
+        this.errors = errors;
+        this.errorCount = errorCount;
     }
 
     public static ParseState newInstance()
     {
-        return new ParseState(null, null, ArrayListMultimap.<OptionMetadata, Object>create(), ImmutableList.<Context>of(), ImmutableList.of(), null, ImmutableList.<String>of());
+        return new ParseState(null, null, new Log(), 0, null, new Log(), 0, null, new Log(), 0, new Log(), 0);
     }
 
     public ParseState pushContext(Context location)
     {
-        ImmutableList<Context> locationStack = ImmutableList.<Context>builder()
-                .addAll(this.locationStack)
-                .add(location)
-                .build();
+        ContextStack locationStack = new ContextStack(location, this.locationStack);
 
-        return new ParseState(group, command, parsedOptions, locationStack, parsedArguments, currentOption, unparsedInput);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
     }
 
     public ParseState popContext()
     {
-        ImmutableList<Context> locationStack = ImmutableList.copyOf(this.locationStack.subList(0, this.locationStack.size() - 1));
-        return new ParseState(group, command, parsedOptions, locationStack, parsedArguments, currentOption, unparsedInput);
+        ContextStack locationStack = this.locationStack.parent;
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
     }
 
     public ParseState withOptionValue(OptionMetadata option, Object value)
     {
-        ImmutableListMultimap<OptionMetadata, Object> newOptions = ImmutableListMultimap.<OptionMetadata, Object>builder()
-                .putAll(parsedOptions)
-                .put(option, value)
-                .build();
+        Log options = this.options.append(optionCount, option, value, 0);
+        return new ParseState(group, command, options, optionCount + 1, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
+    }
 
-        return new ParseState(group, command, newOptions, locationStack, parsedArguments, currentOption, unparsedInput);
+    /**
+     * Adds a value of an option with a primitive item type, as returned by
+     * {@link PrimitiveValues#parse}, without boxing it.
+     */
+    ParseState withPrimitiveOptionValue(OptionMetadata option, long value)
+    {
+        Log options = this.options.append(optionCount, option, Log.UNBOXED, value);
+        return new ParseState(group, command, options, optionCount + 1, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
     }
 
     public ParseState withGroup(CommandGroupMetadata group)
     {
-        return new ParseState(group, command, parsedOptions, locationStack, parsedArguments, currentOption, unparsedInput);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
     }
 
     public ParseState withCommand(CommandMetadata command)
     {
-        return new ParseState(group, command, parsedOptions, locationStack, parsedArguments, currentOption, unparsedInput);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
     }
 
     public ParseState withOption(OptionMetadata option)
     {
-        return new ParseState(group, command, parsedOptions, locationStack, parsedArguments, option, unparsedInput);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount, option, unparsedInput, unparsedInputCount, errors, errorCount);
     }
 
     public ParseState withArgument(Object argument)
     {
-        ImmutableList<Object> newArguments = ImmutableList.<Object>builder()
-                .addAll(parsedArguments)
-                .add(argument)
-                .build();
+        Log arguments = this.arguments.append(argumentCount, null, argument, 0);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount + 1, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
+    }
 
-        return new ParseState(group, command, parsedOptions, locationStack, newArguments, currentOption, unparsedInput);
+    /**
+     * Adds an argument of the primitive type, as returned by {@link PrimitiveValues#parse},
+     * without boxing it.
+     */
+    ParseState withPrimitiveArgument(Class<?> type, long argument)
+    {
+        Log arguments = this.arguments.append(argumentCount, type, Log.UNBOXED, argument);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount + 1, currentOption, unparsedInput, unparsedInputCount, errors, errorCount);
     }
 
     public ParseState withUnparsedInput(String input)
     {
-        ImmutableList<String> newUnparsedInput = ImmutableList.<String>builder()
-                .addAll(unparsedInput)
-                .add(input)
-                .build();
+        Log unparsedInput = this.unparsedInput.append(unparsedInputCount, null, input, 0);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount + 1, errors, errorCount);
+    }
 
-        return new ParseState(group, command, parsedOptions, locationStack, parsedArguments, currentOption, newUnparsedInput);
+    public ParseState withError(ParseException error)
+    {
+        Log errors = this.errors.append(errorCount, null, error, 0);
+        return new ParseState(group, command, options, optionCount, locationStack, arguments, argumentCount, currentOption, unparsedInput, unparsedInputCount, errors, errorCount + 1);
     }
 
     @Override
     public String toString()
     {
         return "ParseState{" +
-                "locationStack=" + locationStack +
+                "locationStack=" + ContextStack.toList(locationStack) +
                 ", group=" + group +
                 ", command=" + command +
-                ", parsedOptions=" + parsedOptions +
-                ", parsedArguments=" + parsedArguments +
+                ", parsedOptions=" + getParsedOptions() +
+                ", parsedArguments=" + getParsedArguments() +
                 ", currentOption=" + currentOption +
-                ", unparsedInput=" + unparsedInput +
+                ", unparsedInput=" + getUnparsedInput() +
+                ", errors=" + getErrors() +
                 '}';
     }
 
     public Context getLocation()
     {
-        return locationStack.get(locationStack.size() - 1);
+        return locationStack.context;
     }
 
     public CommandGroupMetadata getGroup()
@@ -139,16 +182,222 @@ public class ParseState
 
     public ListMultimap<OptionMetadata, Object> getParsedOptions()
     {
+        if (parsedOptions == null) {
+            ImmutableListMultimap.Builder<OptionMetadata, Object> builder = ImmutableListMultimap.builder();
+            options.forEach(optionCount, (key, value) -> builder.put((OptionMetadata) key, value));
+            parsedOptions = builder.build();
+        }
         return parsedOptions;
     }
 
+    /**
+     * Returns the values of the option. Values of an option with a primitive item type
+     * are returned as {@link PrimitiveValues}, so they can be injected without boxing.
+     */
+    List<Object> getOptionValues(OptionMetadata option)
+    {
+        if (optionValues == null) {
+            Map<OptionMetadata, List<Object>> values = new LinkedHashMap<>();
+            options.forEachUnboxed(optionCount, (key, value, bits) -> {
+                OptionMetadata parsedOption = (OptionMetadata) key;
+                List<Object> list = values.get(parsedOption);
+                if (list == null) {
+                    list = value == Log.UNBOXED ? new PrimitiveValues(parsedOption.getJavaType()) : new ArrayList<>();
+                    values.put(parsedOption, list);
+                }
+                addValue(list, value, bits);
+            });
+            optionValues = values;
+        }
+        List<Object> values = optionValues.get(option);
+        return values == null ? ImmutableList.of() : values;
+    }
+
     public List<Object> getParsedArguments()
     {
+        if (parsedArguments == null) {
+            ImmutableList.Builder<Object> builder = ImmutableList.builder();
+            arguments.forEach(argumentCount, (type, value) -> builder.add(value));
+            parsedArguments = builder.build();
+        }
         return parsedArguments;
     }
 
+    /**
+     * Returns the parsed arguments. Arguments of a primitive type are returned as
+     * {@link PrimitiveValues}, so they can be injected without boxing.
+     */
+    List<Object> getArgumentValues()
+    {
+        if (argumentCount == 0) {
+            return ImmutableList.of();
+        }
+        Class<?> primitiveType = arguments.getPrimitiveType(0);
+        List<Object> values = primitiveType == null ? new ArrayList<>(argumentCount) : new PrimitiveValues(primitiveType, argumentCount);
+        arguments.forEachUnboxed(argumentCount, (type, value, bits) -> addValue(values, value, bits));
+        return values;
+    }
+
+    boolean hasParsedArguments()
+    {
+        return argumentCount > 0;
+    }
+
     public List<String> getUnparsedInput()
     {
-        return unparsedInput;
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        unparsedInput.forEach(unparsedInputCount, (key, value) -> builder.add((String) value));
+        return builder.build();
+    }
+
+    /**
+     * Errors found while parsing that did not stop the parse, such as values that are
+     * not allowed for an option.
+     */
+    public List<ParseException> getErrors()
+    {
+        ImmutableList.Builder<ParseException> builder = ImmutableList.builder();
+        errors.forEach(errorCount, (key, value) -> builder.add((ParseException) value));
+        return builder.build();
+    }
+
+    private static void addValue(List<Object> list, Object value, long bits)
+    {
+        if (list instanceof PrimitiveValues) {
+            PrimitiveValues primitives = (PrimitiveValues) list;
+            primitives.add(value == Log.UNBOXED ? bits : PrimitiveValues.toBits(primitives.getType(), value));
+        }
+        else {
+            list.add(value);
+        }
+    }
+
+    private static final class ContextStack
+    {
+        private final Context context;
+        @Nullable
+        private final ContextStack parent;
+
+        private ContextStack(Context context, @Nullable ContextStack parent)
+        {
+            this.context = context;
+            this.parent = parent;
+        }
+
+        public static List<Context> toList(@Nullable ContextStack stack)
+        {
+            List<Context> contexts = new ArrayList<>();
+            for (; stack != null; stack = stack.parent) {
+                contexts.add(0, stack.context);
+            }
+            return contexts;
+        }
+    }
+
+    /**
+     * Append-only log of entries, each with an optional key and a value that is either an
+     * object or the bits of an unboxed primitive. States own a prefix of the log, and
+     * append in place when their prefix is the whole log.
+     */
+    private static final class Log
+    {
+        private static final Object UNBOXED = new Object();
+
+        private Object[] keys = new Object[4];
+        private Object[] values = new Object[4];
+        private long[] bits;
+        private int size;
+
+        private Log() {}
+
+        private Log(Object[] keys, Object[] values, @Nullable long[] bits, int size)
+        {
+            this.keys = keys;
+            this.values = values;
+            this.bits = bits;
+            this.size = size;
+        }
+
+        public synchronized Log append(int count, @Nullable Object key, Object value, long primitive)
+        {
+            Log log = this;
+            if (size != count) {
+                log = new Log(
+                        Arrays.copyOf(keys, Math.max(count * 2, 4)),
+                        Arrays.copyOf(values, Math.max(count * 2, 4)),
+                        bits == null ? null : Arrays.copyOf(bits, Math.max(count * 2, 4)),
+                        count);
+            }
+            log.add(key, value, primitive);
+            return log;
+        }
+
+        private void add(@Nullable Object key, Object value, long primitive)
+        {
+            if (size == values.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                if (bits != null) {
+                    bits = Arrays.copyOf(bits, size * 2);
+                }
+            }
+            if (value == UNBOXED && bits == null) {
+                bits = new long[values.length];
+            }
+            keys[size] = key;
+            values[size] = value;
+            if (bits != null) {
+                bits[size] = primitive;
+            }
+            size++;
+        }
+
+        /**
+         * Returns the type of the entry if its value is an unboxed primitive, or null.
+         */
+        @Nullable
+        public synchronized Class<?> getPrimitiveType(int index)
+        {
+            if (values[index] != UNBOXED) {
+                return null;
+            }
+            Object key = keys[index];
+            return key instanceof OptionMetadata ? ((OptionMetadata) key).getJavaType() : (Class<?>) key;
+        }
+
+        /**
+         * Calls the consumer for the first count entries, boxing primitive values.
+         */
+        public synchronized void forEach(int count, EntryConsumer consumer)
+        {
+            for (int i = 0; i < count; i++) {
+                Object value = values[i];
+                if (value == UNBOXED) {
+                    value = PrimitiveValues.box(getPrimitiveType(i), bits[i]);
+                }
+                consumer.accept(keys[i], value);
+            }
+        }
+
+        /**
+         * Calls the consumer for the first count entries, passing primitive values as
+         * {@link #UNBOXED} and their bits.
+         */
+        public synchronized void forEachUnboxed(int count, UnboxedEntryConsumer consumer)
+        {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(keys[i], values[i], values[i] == UNBOXED ? bits[i] : 0);
+            }
+        }
+    }
+
+    private interface EntryConsumer
+    {
+        void accept(@Nullable Object key, Object value);
+    }
+
+    private interface UnboxedEntryConsumer
+    {
+        void accept(@Nullable Object key, Object value, long bits);
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import io.airlift.airline.model.ArgumentsMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.OptionMetadata;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+final class ParseStateValidator
+{
+    private ParseStateValidator() {}
+
+    /**
+     * Checks the parse state in a single pass. By default the first problem found is
+     * thrown; when {@code collectAllErrors} is set every problem is reported, and
+     * multiple problems are thrown together as a {@link ParseErrorsException}.
+     */
+    static void validate(ParseState state, boolean collectAllErrors)
+    {
+        CommandMetadata command = state.getCommand();
+        if (command == null) {
+            List<String> unparsedInput = state.getUnparsedInput();
+            if (unparsedInput.isEmpty()) {
+                throw new ParseCommandMissingException();
+            }
+            else {
+                throw new ParseCommandUnrecognizedException(unparsedInput);
+            }
+        }
+
+        List<ParseException> errors = new ArrayList<>();
+
+        // errors recorded while parsing come first, as they were found first
+        Set<String> optionsWithIllegalValues = new HashSet<>();
+        for (ParseException error : state.getErrors()) {
+            if (error instanceof ParseOptionIllegalValueException) {
+                optionsWithIllegalValues.add(((ParseOptionIllegalValueException) error).getOptionTitle());
+            }
+            report(errors, error, collectAllErrors);
+        }
+
+        ArgumentsMetadata arguments = command.getArguments();
+        if (!state.hasParsedArguments() && arguments != null && arguments.isRequired()) {
+            report(errors, new ParseArgumentsMissingException(arguments.getTitle()), collectAllErrors);
+        }
+
+        if (!state.getUnparsedInput().isEmpty()) {
+            report(errors, new ParseArgumentsUnexpectedException(state.getUnparsedInput()), collectAllErrors);
+        }
+
+        OptionMetadata optionMissingValue = null;
+        if (state.getLocation() == Context.OPTION) {
+            optionMissingValue = state.getCurrentOption();
+            report(errors, new ParseOptionMissingValueException(optionMissingValue.getTitle()), collectAllErrors);
+        }
+
+        for (OptionMetadata option : command.getRequiredOptions()) {
+            if (!option.equals(optionMissingValue) &&
+                    !optionsWithIllegalValues.contains(option.getTitle()) &&
+                    state.getOptionValues(option).isEmpty()) {
+                report(errors, new ParseOptionMissingException(option.getOptions().iterator().next()), collectAllErrors);
+            }
+        }
+
+        if (errors.size() == 1) {
+            throw errors.get(0);
+        }
+        if (!errors.isEmpty()) {
+            throw new ParseErrorsException(errors);
+        }
+    }
+
+    private static void report(List<ParseException> errors, ParseException error, boolean collectAllErrors)
+    {
+        if (!collectAllErrors) {
+            throw error;
+        }
+        errors.add(error);
+    }
+}
@@ -10,7 +10,11 @@ import io.airlift.airline.model.CommandMetadata;
 import io.airlift.airline.model.GlobalMetadata;
 import io.airlift.airline.model.OptionMetadata;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.Predicates.compose;
@@ -21,6 +25,25 @@ public class Parser
 {
     private static final Pattern SHORT_OPTIONS_PATTERN = Pattern.compile("-[^-].*");
 
+    @Nullable
+    private final Executor argumentConversionExecutor;
+
+    public Parser()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates a parser that collects the positional arguments of the command and converts
+     * them after the command line has been consumed, in parallel on the executor for large
+     * argument lists. Arguments are added in order, and a conversion failure is reported
+     * for the same argument as with sequential conversion.
+     */
+    public Parser(@Nullable Executor argumentConversionExecutor)
+    {
+        this.argumentConversionExecutor = argumentConversionExecutor;
+    }
+
     // global> (option value*)* (group (option value*)*)? (command (option value* | arg)* '--'? args*)?
     public ParseState parse(GlobalMetadata metadata, String... params)
     {
@@ -34,7 +57,7 @@ public class Parser
         ParseState state = ParseState.newInstance().pushContext(Context.GLOBAL);
 
         // parse global options
-        state = parseOptions(tokens, state, metadata.getOptions());
+        state = parseOptions(tokens, state, metadata::findOption);
 
         // parse group
         if (tokens.hasNext()) {
@@ -43,7 +66,7 @@ public class Parser
                 tokens.next();
                 state = state.withGroup(group).pushContext(Context.GROUP);
 
-                state = parseOptions(tokens, state, state.getGroup().getOptions());
+                state = parseOptions(tokens, state, group::findOption);
             }
         }
 
@@ -63,12 +86,7 @@ public class Parser
             else {
                 tokens.next();
                 state = state.withCommand(command).pushContext(Context.COMMAND);
-
-                while (tokens.hasNext()) {
-                    state = parseOptions(tokens, state, command.getCommandOptions());
-
-                    state = parseArgs(state, tokens, command.getArguments());
-                }
+                state = parseCommandTokens(state, tokens, command);
             }
         }
 
@@ -79,16 +97,28 @@ public class Parser
     {
         PeekingIterator<String> tokens = Iterators.peekingIterator(params.iterator());
         ParseState state = ParseState.newInstance().pushContext(Context.GLOBAL).withCommand(command);
+        return parseCommandTokens(state, tokens, command);
+    }
 
-        while (tokens.hasNext()) {
-            state = parseOptions(tokens, state, command.getCommandOptions());
+    private ParseState parseCommandTokens(ParseState state, PeekingIterator<String> tokens, CommandMetadata command)
+    {
+        PendingArguments pending = new PendingArguments(argumentConversionExecutor);
+        try {
+            while (tokens.hasNext()) {
+                state = parseOptions(tokens, state, name -> findOption(command.getCommandOptions(), name));
 
-            state = parseArgs(state, tokens, command.getArguments());
+                state = parseArgs(state, tokens, command.getArguments(), pending);
+            }
         }
-        return state;
+        catch (RuntimeException e) {
+            // the arguments in front of the failing option are checked first, as they would have been sequentially
+            pending.flush(state);
+            throw e;
+        }
+        return pending.flush(state);
     }
 
-    private ParseState parseOptions(PeekingIterator<String> tokens, ParseState state, List<OptionMetadata> allowedOptions)
+    private ParseState parseOptions(PeekingIterator<String> tokens, ParseState state, Function<String, OptionMetadata> allowedOptions)
     {
         while (tokens.hasNext()) {
             //
@@ -123,9 +153,9 @@ public class Parser
         return state;
     }
 
-    private ParseState parseSimpleOption(PeekingIterator<String> tokens, ParseState state, List<OptionMetadata> allowedOptions)
+    private ParseState parseSimpleOption(PeekingIterator<String> tokens, ParseState state, Function<String, OptionMetadata> allowedOptions)
     {
-        OptionMetadata option = findOption(allowedOptions, tokens.peek());
+        OptionMetadata option = allowedOptions.apply(tokens.peek());
         if (option == null) {
             return null;
         }
@@ -133,40 +163,54 @@ public class Parser
         tokens.next();
         state = state.pushContext(Context.OPTION).withOption(option);
 
-        Object value;
         if (option.getArity() == 0) {
             state = state.withOptionValue(option, Boolean.TRUE).popContext();
         }
         else if (option.getArity() == 1) {
             if (tokens.hasNext()) {
-                value = TypeConverter.newInstance().convert(option.getTitle(), option.getJavaType(), tokens.next());
-                state = state.withOptionValue(option, value).popContext();
+                state = withOptionValue(state, option, tokens.next());
             }
         }
         else {
             ImmutableList.Builder<Object> values = ImmutableList.builder();
+            boolean allowed = true;
 
             int count = 0;
             while (count < option.getArity() && tokens.hasNext()) {
-                values.add(TypeConverter.newInstance().convert(option.getTitle(), option.getJavaType(), tokens.next()));
+                String token = tokens.next();
+                String value = option.findAllowedValue(token);
+                if (value == null) {
+                    state = state.withError(new ParseOptionIllegalValueException(option.getTitle(), token, option.getAllowedValues()));
+                    allowed = false;
+                }
+                else {
+                    values.add(convertOptionValue(option, value));
+                }
                 ++count;
             }
 
             if (count == option.getArity()) {
-                state = state.withOptionValue(option, values.build()).popContext();
+                if (allowed) {
+                    state = state.withOptionValue(option, values.build());
+                }
+                state = state.popContext();
             }
         }
         return state;
     }
 
-    private ParseState parseLongGnuGetOpt(PeekingIterator<String> tokens, ParseState state, List<OptionMetadata> allowedOptions)
+    private ParseState parseLongGnuGetOpt(PeekingIterator<String> tokens, ParseState state, Function<String, OptionMetadata> allowedOptions)
     {
+        if (tokens.peek().indexOf('=') < 0) {
+            return null;
+        }
+
         List<String> parts = ImmutableList.copyOf(Splitter.on('=').limit(2).split(tokens.peek()));
         if (parts.size() != 2) {
             return null;
         }
 
-        OptionMetadata option = findOption(allowedOptions, parts.get(0));
+        OptionMetadata option = allowedOptions.apply(parts.get(0));
         if (option == null || option.getArity() != 1) {
             // TODO: this is not exactly correct. It should be an error condition
             return null;
@@ -177,15 +221,14 @@ public class Parser
 
         // update state
         state = state.pushContext(Context.OPTION).withOption(option);
-        Object value = TypeConverter.newInstance().convert(option.getTitle(), option.getJavaType(), parts.get(1));
-        state = state.withOption(option).withOptionValue(option, value).popContext();
+        state = withOptionValue(state, option, parts.get(1));
 
         return state;
     }
 
-    private ParseState parseClassicGetOpt(PeekingIterator<String> tokens, ParseState state, List<OptionMetadata> allowedOptions)
+    private ParseState parseClassicGetOpt(PeekingIterator<String> tokens, ParseState state, Function<String, OptionMetadata> allowedOptions)
     {
-        if (!SHORT_OPTIONS_PATTERN.matcher(tokens.peek()).matches()) {
+        if (!tokens.peek().startsWith("-") || !SHORT_OPTIONS_PATTERN.matcher(tokens.peek()).matches()) {
             return null;
         }
 
@@ -197,7 +240,7 @@ public class Parser
             char tokenCharacter = remainingToken.charAt(0);
 
             // is the current token character a single letter option?
-            OptionMetadata option = findOption(allowedOptions, "-" + tokenCharacter);
+            OptionMetadata option = allowedOptions.apply("-" + tokenCharacter);
             if (option == null) {
                 return null;
             }
@@ -219,12 +262,10 @@ public class Parser
 
                 // if current token has more characters, this is the value; otherwise it is the next token
                 if (!remainingToken.isEmpty()) {
-                    Object value = TypeConverter.newInstance().convert(option.getTitle(), option.getJavaType(), remainingToken);
-                    nextState = nextState.withOptionValue(option, value).popContext();
+                    nextState = withOptionValue(nextState, option, remainingToken);
                 }
                 else if (tokens.hasNext()) {
-                    Object value = TypeConverter.newInstance().convert(option.getTitle(), option.getJavaType(), tokens.next());
-                    nextState = nextState.withOptionValue(option, value).popContext();
+                    nextState = withOptionValue(nextState, option, tokens.next());
                 }
 
                 return nextState;
@@ -239,7 +280,7 @@ public class Parser
         return nextState;
     }
 
-    private ParseState parseArgs(ParseState state, PeekingIterator<String> tokens, ArgumentsMetadata arguments)
+    private ParseState parseArgs(ParseState state, PeekingIterator<String> tokens, ArgumentsMetadata arguments, PendingArguments pending)
     {
         if (tokens.hasNext()) {
             if (tokens.peek().equals("--")) {
@@ -248,20 +289,26 @@ public class Parser
 
                 // consume all args
                 while (tokens.hasNext()) {
-                    state = parseArg(state, tokens, arguments);
+                    state = parseArg(state, tokens, arguments, pending);
                 }
             }
             else {
-                state = parseArg(state, tokens, arguments);
+                state = parseArg(state, tokens, arguments, pending);
             }
         }
 
         return state;
     }
 
-    private ParseState parseArg(ParseState state, PeekingIterator<String> tokens, ArgumentsMetadata arguments)
+    private ParseState parseArg(ParseState state, PeekingIterator<String> tokens, ArgumentsMetadata arguments, PendingArguments pending)
     {
-        if (arguments != null) {
+        if (arguments != null && arguments.isMultiValued() && PrimitiveValues.isSupported(arguments.getJavaType())) {
+            state = state.withPrimitiveArgument(arguments.getJavaType(), PrimitiveValues.parse(arguments.getTitle(), arguments.getJavaType(), tokens.next()));
+        }
+        else if (arguments != null && pending.isEnabled()) {
+            pending.add(arguments, tokens.next());
+        }
+        else if (arguments != null) {
             state = state.withArgument(TypeConverter.newInstance().convert(arguments.getTitle(), arguments.getJavaType(), tokens.next()));
         }
         else {
@@ -270,7 +317,38 @@ public class Parser
         return state;
     }
 
-    private OptionMetadata findOption(List<OptionMetadata> options, String param)
+    /**
+     * Adds the value of a single value option and leaves the option context. Values not
+     * allowed for the option are recorded as errors and not added.
+     */
+    private static ParseState withOptionValue(ParseState state, OptionMetadata option, String token)
+    {
+        return addOptionValue(state, option, token).popContext();
+    }
+
+    /**
+     * Adds the value of a single value option without changing the context. Values not
+     * allowed for the option are recorded as errors and not added.
+     */
+    static ParseState addOptionValue(ParseState state, OptionMetadata option, String token)
+    {
+        String value = option.findAllowedValue(token);
+        if (value == null) {
+            return state.withError(new ParseOptionIllegalValueException(option.getTitle(), token, option.getAllowedValues()));
+        }
+        if (option.isMultiValued() && PrimitiveValues.isSupported(option.getJavaType())) {
+            // values of primitive array options are accumulated without boxing
+            return state.withPrimitiveOptionValue(option, PrimitiveValues.parse(option.getTitle(), option.getJavaType(), value));
+        }
+        return state.withOptionValue(option, convertOptionValue(option, value));
+    }
+
+    static Object convertOptionValue(OptionMetadata option, String value)
+    {
+        return TypeConverter.newInstance().convert(option.getTitle(), option.getJavaType(), value, option.isIgnoreCase());
+    }
+
+    private static OptionMetadata findOption(List<OptionMetadata> options, String param)
     {
         for (OptionMetadata optionMetadata : options) {
             if (optionMetadata.getOptions().contains(param)) {
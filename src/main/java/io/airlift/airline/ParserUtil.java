@@ -3,10 +3,12 @@ package io.airlift.airline;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
 import io.airlift.airline.model.ArgumentsMetadata;
+import io.airlift.airline.model.CommandMetadata;
 import io.airlift.airline.model.OptionMetadata;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static com.google.common.collect.Iterables.concat;
 
@@ -42,6 +44,67 @@ public final class ParserUtil
         return injectOptions(commandInstance, options, parsedOptions, arguments, parsedArguments, metadataInjection, bindings);
     }
 
+    /**
+     * Creates the command instance using the constructor binding of the command if it
+     * has one, and otherwise with the command factory followed by field injection.
+     */
+    public static <T> T createInstance(CommandMetadata command,
+            ListMultimap<OptionMetadata, Object> parsedOptions,
+            Iterable<Object> parsedArguments,
+            Map<Class<?>, Object> bindings,
+            CommandFactory<T> commandFactory)
+    {
+        ConstructorBinding constructorBinding = command.getConstructorBinding();
+        if (constructorBinding != null) {
+            @SuppressWarnings("unchecked")
+            T commandInstance = (T) constructorBinding.newInstance(
+                    command.getAllOptions(),
+                    parsedOptions,
+                    command.getArguments(),
+                    parsedArguments,
+                    command.getMetadataInjections(),
+                    bindings);
+            return commandInstance;
+        }
+
+        return createInstance(command.getType(),
+                command.getAllOptions(),
+                parsedOptions,
+                command.getArguments(),
+                parsedArguments,
+                command.getMetadataInjections(),
+                bindings,
+                commandFactory);
+    }
+
+    /**
+     * Creates the command instance for the command of the parse state. Values of
+     * primitive array fields are injected without boxing, unless the command is created
+     * by its constructor.
+     */
+    static <T> T createInstance(ParseState state, Map<Class<?>, Object> bindings, CommandFactory<T> commandFactory)
+    {
+        CommandMetadata command = state.getCommand();
+        if (command.getConstructorBinding() != null) {
+            return createInstance(command, state.getParsedOptions(), state.getParsedArguments(), bindings, commandFactory);
+        }
+
+        T commandInstance = commandFactory.createInstance(command.getType());
+        return injectOptions(commandInstance, state, bindings);
+    }
+
+    static <T> T injectOptions(T commandInstance, ParseState state, Map<Class<?>, Object> bindings)
+    {
+        CommandMetadata command = state.getCommand();
+        return injectOptions(commandInstance,
+                command.getAllOptions(),
+                state::getOptionValues,
+                command.getArguments(),
+                state.hasParsedArguments() ? state.getArgumentValues() : null,
+                command.getMetadataInjections(),
+                bindings);
+    }
+
     public static <T> T injectOptions(T commandInstance,
             Iterable<OptionMetadata> options,
             ListMultimap<OptionMetadata, Object> parsedOptions,
@@ -49,10 +112,21 @@ public final class ParserUtil
             Iterable<Object> parsedArguments,
             Iterable<Accessor> metadataInjection,
             Map<Class<?>, Object> bindings)
+    {
+        return injectOptions(commandInstance, options, parsedOptions::get, arguments, parsedArguments, metadataInjection, bindings);
+    }
+
+    private static <T> T injectOptions(T commandInstance,
+            Iterable<OptionMetadata> options,
+            Function<OptionMetadata, List<?>> parsedOptions,
+            ArgumentsMetadata arguments,
+            Iterable<?> parsedArguments,
+            Iterable<Accessor> metadataInjection,
+            Map<Class<?>, Object> bindings)
     {
         // inject options
         for (OptionMetadata option : options) {
-            List<?> values = parsedOptions.get(option);
+            List<?> values = parsedOptions.apply(option);
             if (option.getArity() > 1 && values != null && !values.isEmpty()) {
                 // hack: flatten the collection
                 values = ImmutableList.copyOf(concat((Iterable<Iterable<Object>>) values));
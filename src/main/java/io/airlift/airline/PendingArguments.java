@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import io.airlift.airline.model.ArgumentsMetadata;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Positional arguments whose conversion is deferred until the command line has been
+ * consumed. Large lists are converted in chunks on the executor; each chunk stops at its
+ * first failure and the chunks are joined in order, so the exception thrown is the one
+ * the sequential conversion would throw for the first bad argument.
+ */
+final class PendingArguments
+{
+    static final int CHUNK_SIZE = 1024;
+
+    @Nullable
+    private final Executor executor;
+    private final List<String> values = new ArrayList<>();
+    private ArgumentsMetadata arguments;
+
+    PendingArguments(@Nullable Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    boolean isEnabled()
+    {
+        return executor != null;
+    }
+
+    void add(ArgumentsMetadata arguments, String value)
+    {
+        this.arguments = requireNonNull(arguments, "arguments is null");
+        values.add(requireNonNull(value, "value is null"));
+    }
+
+    /**
+     * Converts the pending arguments and adds them to the state in command line order.
+     */
+    ParseState flush(ParseState state)
+    {
+        if (values.isEmpty()) {
+            return state;
+        }
+
+        List<Object> converted;
+        if (values.size() < 2 * CHUNK_SIZE) {
+            converted = convert(arguments, values);
+        }
+        else {
+            converted = convertInChunks();
+        }
+        values.clear();
+
+        for (Object value : converted) {
+            state = state.withArgument(value);
+        }
+        return state;
+    }
+
+    private List<Object> convertInChunks()
+    {
+        ArgumentsMetadata arguments = this.arguments;
+        List<CompletableFuture<List<Object>>> chunks = new ArrayList<>();
+        for (int start = 0; start < values.size(); start += CHUNK_SIZE) {
+            List<String> chunk = values.subList(start, Math.min(start + CHUNK_SIZE, values.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> convert(arguments, chunk), executor));
+        }
+
+        List<Object> converted = new ArrayList<>(values.size());
+        for (CompletableFuture<List<Object>> chunk : chunks) {
+            try {
+                converted.addAll(chunk.join());
+            }
+            catch (CompletionException e) {
+                // later chunks are of no use once an earlier argument failed
+                chunks.forEach(future -> future.cancel(false));
+                throwIfUnchecked(e.getCause());
+                throw e;
+            }
+        }
+        return converted;
+    }
+
+    private static List<Object> convert(ArgumentsMetadata arguments, List<String> values)
+    {
+        TypeConverter converter = TypeConverter.newInstance();
+        List<Object> converted = new ArrayList<>(values.size());
+        for (String value : values) {
+            converted.add(converter.convert(arguments.getTitle(), arguments.getJavaType(), value));
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Command factory that recycles command instances, for servers that parse a command
+ * line for every request. Commands handed back with {@link #release} are reset to the
+ * values their fields have in a newly constructed instance and are reused by later
+ * calls to {@link #createInstance} on the same thread.
+ * <p>
+ * The defaults of a command class are captured once from a pristine instance. When a
+ * command is reset, collection fields with a default collection are cleared and
+ * refilled in place, {@code @Inject} delegates are kept and reset recursively, and
+ * fields with an immutable default, such as a string, a boxed primitive or an enum, are
+ * assigned their default value. Fields with any other default, such as a map or a
+ * builder, are assigned the value of the field in a newly constructed instance, so that
+ * commands never share it. Commands with a final field holding such a value cannot be
+ * reset and are not pooled. Commands created through a constructor binding are not
+ * created by the factory and should not be released.
+ */
+public class PooledCommandFactory<T>
+        implements CommandFactory<T>
+{
+    // defaults of these types can be shared between instances
+    private static final Set<Class<?>> IMMUTABLE_TYPES = ImmutableSet.of(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+            BigInteger.class, BigDecimal.class, Duration.class, DataSize.class, Count.class, Class.class);
+
+    private static final ClassValue<InstanceDefaults> DEFAULTS = new ClassValue<InstanceDefaults>()
+    {
+        @Override
+        protected InstanceDefaults computeValue(Class<?> type)
+        {
+            return InstanceDefaults.capture(ParserUtil.createInstance(type));
+        }
+    };
+
+    private final int maxPooledPerType;
+    private final ThreadLocal<Map<Class<?>, Deque<Object>>> pools = ThreadLocal.withInitial(HashMap::new);
+
+    public PooledCommandFactory()
+    {
+        this(4);
+    }
+
+    public PooledCommandFactory(int maxPooledPerType)
+    {
+        checkArgument(maxPooledPerType > 0, "maxPooledPerType must be positive");
+        this.maxPooledPerType = maxPooledPerType;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T createInstance(Class<?> type)
+    {
+        Deque<Object> pool = pools.get().get(type);
+        if (pool != null && !pool.isEmpty()) {
+            return (T) pool.pop();
+        }
+        return (T) ParserUtil.createInstance(type);
+    }
+
+    /**
+     * Resets the command to its defaults and makes it available to the current thread.
+     * The command must not be used after it is released. Commands that cannot be reset
+     * are dropped.
+     */
+    public void release(T command)
+    {
+        requireNonNull(command, "command is null");
+        Class<?> type = command.getClass();
+        InstanceDefaults defaults = DEFAULTS.get(type);
+        if (!defaults.isResettable()) {
+            return;
+        }
+        defaults.reset(command);
+
+        Deque<Object> pool = pools.get().computeIfAbsent(type, key -> new ArrayDeque<>());
+        if (pool.size() < maxPooledPerType) {
+            pool.push(command);
+        }
+    }
+
+    private static final class InstanceDefaults
+    {
+        private final List<FieldDefault> fields;
+        private final List<Field> freshFields;
+        private final boolean resettable;
+
+        private InstanceDefaults(List<FieldDefault> fields, List<Field> freshFields, boolean resettable)
+        {
+            this.fields = ImmutableList.copyOf(fields);
+            this.freshFields = ImmutableList.copyOf(freshFields);
+            this.resettable = resettable;
+        }
+
+        public static InstanceDefaults capture(Object instance)
+        {
+            ImmutableList.Builder<FieldDefault> fields = ImmutableList.builder();
+            ImmutableList.Builder<Field> freshFields = ImmutableList.builder();
+            boolean resettable = true;
+            for (Class<?> cls = instance.getClass(); !Object.class.equals(cls); cls = cls.getSuperclass()) {
+                for (Field field : cls.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    Object value = getField(field, instance);
+                    boolean isFinal = Modifier.isFinal(field.getModifiers());
+
+                    if (isDelegate(field)) {
+                        InstanceDefaults delegate = value == null ? DEFAULTS.get(field.getType()) : capture(value);
+                        fields.add(new DelegateDefault(field, value != null, delegate));
+                        resettable &= delegate.isResettable();
+                    }
+                    else if (value instanceof Collection) {
+                        fields.add(new CollectionDefault(field, (Collection<?>) value, isFinal));
+                    }
+                    else if (isFinal) {
+                        // a final field is left alone, which is only safe if its value cannot change
+                        resettable &= isImmutable(value);
+                    }
+                    else if (isImmutable(value) || isImmutableArray(value)) {
+                        fields.add(new ValueDefault(field, value));
+                    }
+                    else {
+                        freshFields.add(field);
+                    }
+                }
+            }
+            return new InstanceDefaults(fields.build(), freshFields.build(), resettable);
+        }
+
+        public boolean isResettable()
+        {
+            return resettable;
+        }
+
+        public void reset(Object instance)
+        {
+            for (FieldDefault field : fields) {
+                field.reset(instance);
+            }
+            if (!freshFields.isEmpty()) {
+                Object pristine = ParserUtil.createInstance(instance.getClass());
+                for (Field field : freshFields) {
+                    setField(field, instance, getField(field, pristine));
+                }
+            }
+        }
+
+        private static boolean isImmutable(@Nullable Object value)
+        {
+            return value == null || value instanceof Enum || IMMUTABLE_TYPES.contains(value.getClass());
+        }
+
+        private static boolean isImmutableArray(Object value)
+        {
+            // arrays are copied on reset, so only their elements must be immutable
+            Class<?> elementType = value.getClass().getComponentType();
+            return elementType != null && (elementType.isPrimitive() || elementType.isEnum() || IMMUTABLE_TYPES.contains(elementType));
+        }
+
+        private static boolean isDelegate(Field field)
+        {
+            return field.isAnnotationPresent(Inject.class) &&
+                    !field.getType().equals(GlobalMetadata.class) &&
+                    !field.getType().equals(CommandGroupMetadata.class) &&
+                    !field.getType().equals(CommandMetadata.class);
+        }
+    }
+
+    private abstract static class FieldDefault
+    {
+        protected final Field field;
+
+        protected FieldDefault(Field field)
+        {
+            this.field = field;
+        }
+
+        public abstract void reset(Object instance);
+    }
+
+    private static final class ValueDefault
+            extends FieldDefault
+    {
+        @Nullable
+        private final Object value;
+
+        private ValueDefault(Field field, @Nullable Object value)
+        {
+            super(field);
+            this.value = value;
+        }
+
+        @Override
+        public void reset(Object instance)
+        {
+            setField(field, instance, value != null && value.getClass().isArray() ? copyArray(value) : value);
+        }
+
+        private static Object copyArray(Object array)
+        {
+            int length = Array.getLength(array);
+            Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+            System.arraycopy(array, 0, copy, 0, length);
+            return copy;
+        }
+    }
+
+    private static final class CollectionDefault
+            extends FieldDefault
+    {
+        private final Class<?> type;
+        private final List<Object> values;
+        private final boolean isFinal;
+
+        private CollectionDefault(Field field, Collection<?> collection, boolean isFinal)
+        {
+            super(field);
+            this.type = collection.getClass();
+            this.values = Collections.unmodifiableList(new ArrayList<>(collection));
+            this.isFinal = isFinal;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void reset(Object instance)
+        {
+            Collection<Object> collection = (Collection<Object>) getField(field, instance);
+            if (collection == null) {
+                if (isFinal) {
+                    return;
+                }
+                collection = Accessor.newCollection(type);
+                setField(field, instance, collection);
+            }
+            collection.clear();
+            if (!values.isEmpty()) {
+                collection.addAll(values);
+            }
+        }
+    }
+
+    private static final class DelegateDefault
+            extends FieldDefault
+    {
+        private final boolean present;
+        private final InstanceDefaults defaults;
+
+        private DelegateDefault(Field field, boolean present, InstanceDefaults defaults)
+        {
+            super(field);
+            this.present = present;
+            this.defaults = defaults;
+        }
+
+        @Override
+        public void reset(Object instance)
+        {
+            Object delegate = getField(field, instance);
+            if (delegate == null) {
+                if (!present || Modifier.isFinal(field.getModifiers())) {
+                    return;
+                }
+                delegate = ParserUtil.createInstance(field.getType());
+                setField(field, instance, delegate);
+            }
+            defaults.reset(delegate);
+        }
+    }
+
+    private static Object getField(Field field, Object instance)
+    {
+        try {
+            return field.get(instance);
+        }
+        catch (IllegalAccessException e) {
+            throw new ParseException(e, "Error getting value of %s", field.getName());
+        }
+    }
+
+    private static void setField(Field field, Object instance, @Nullable Object value)
+    {
+        try {
+            field.set(instance, value);
+        }
+        catch (IllegalAccessException e) {
+            throw new ParseException(e, "Error resetting %s", field.getName());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+import com.google.common.primitives.ImmutableIntArray;
+import com.google.common.primitives.ImmutableLongArray;
+
+import javax.annotation.Nullable;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Growable buffer of {@code int}, {@code long}, {@code double} or {@code boolean}
+ * values, stored unboxed as the bits of a {@code long}. Multi-valued options and
+ * arguments of a primitive array type, or of {@link ImmutableIntArray},
+ * {@link ImmutableLongArray} or {@link ImmutableDoubleArray}, are accumulated in a
+ * buffer and copied into the field without boxing. The buffer is also a {@code List}
+ * that boxes values as they are read.
+ */
+final class PrimitiveValues
+        extends AbstractList<Object>
+        implements RandomAccess
+{
+    private final Class<?> type;
+    private long[] values;
+    private int size;
+
+    PrimitiveValues(Class<?> type)
+    {
+        this(type, 8);
+    }
+
+    PrimitiveValues(Class<?> type, int expectedSize)
+    {
+        this.type = requireNonNull(type, "type is null");
+        this.values = new long[Math.max(expectedSize, 1)];
+    }
+
+    public Class<?> getType()
+    {
+        return type;
+    }
+
+    public void add(long value)
+    {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    public long getBits(int index)
+    {
+        checkElementIndex(index, size);
+        return values[index];
+    }
+
+    @Override
+    public Object get(int index)
+    {
+        return box(type, getBits(index));
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns whether values of the type are stored unboxed.
+     */
+    public static boolean isSupported(Class<?> type)
+    {
+        return type == int.class || type == long.class || type == double.class || type == boolean.class;
+    }
+
+    /**
+     * Returns the item type of a primitive array or Guava primitive array type, or null
+     * if the type is not one.
+     */
+    @Nullable
+    public static Class<?> getItemType(Class<?> arrayType)
+    {
+        if (arrayType.isArray()) {
+            return isSupported(arrayType.getComponentType()) ? arrayType.getComponentType() : null;
+        }
+        if (arrayType == ImmutableIntArray.class) {
+            return int.class;
+        }
+        if (arrayType == ImmutableLongArray.class) {
+            return long.class;
+        }
+        if (arrayType == ImmutableDoubleArray.class) {
+            return double.class;
+        }
+        return null;
+    }
+
+    /**
+     * Converts a command line value to the bits of a value of the type.
+     */
+    public static long parse(String name, Class<?> type, String value)
+    {
+        try {
+            if (type == int.class) {
+                return Integer.parseInt(value);
+            }
+            if (type == long.class) {
+                return Long.parseLong(value);
+            }
+            if (type == double.class) {
+                return Double.doubleToRawLongBits(Double.parseDouble(value));
+            }
+            if (type == boolean.class) {
+                return Boolean.parseBoolean(value) ? 1 : 0;
+            }
+        }
+        catch (NumberFormatException ignored) {
+        }
+        throw new ParseOptionConversionException(name, value, type.getSimpleName());
+    }
+
+    /**
+     * Returns a copy of the array, or creates one if it is null, with the values appended.
+     * Values in a buffer are copied directly, and other values are unboxed.
+     */
+    public static Object append(Class<?> arrayType, @Nullable Object array, Iterable<?> values)
+    {
+        Class<?> type = requireNonNull(getItemType(arrayType), "arrayType is not a primitive array type");
+        PrimitiveValues buffer;
+        if (values instanceof PrimitiveValues) {
+            buffer = (PrimitiveValues) values;
+        }
+        else {
+            buffer = new PrimitiveValues(type);
+            for (Object value : values) {
+                buffer.add(toBits(type, value));
+            }
+        }
+
+        if (arrayType == ImmutableIntArray.class) {
+            ImmutableIntArray.Builder builder = ImmutableIntArray.builder();
+            if (array != null) {
+                builder.addAll((ImmutableIntArray) array);
+            }
+            for (int i = 0; i < buffer.size; i++) {
+                builder.add((int) buffer.values[i]);
+            }
+            return builder.build();
+        }
+        if (arrayType == ImmutableLongArray.class) {
+            ImmutableLongArray.Builder builder = ImmutableLongArray.builder();
+            if (array != null) {
+                builder.addAll((ImmutableLongArray) array);
+            }
+            builder.addAll(Arrays.copyOf(buffer.values, buffer.size));
+            return builder.build();
+        }
+        if (arrayType == ImmutableDoubleArray.class) {
+            ImmutableDoubleArray.Builder builder = ImmutableDoubleArray.builder();
+            if (array != null) {
+                builder.addAll((ImmutableDoubleArray) array);
+            }
+            for (int i = 0; i < buffer.size; i++) {
+                builder.add(Double.longBitsToDouble(buffer.values[i]));
+            }
+            return builder.build();
+        }
+
+        int offset = array == null ? 0 : Array.getLength(array);
+        if (type == int.class) {
+            int[] result = array == null ? new int[buffer.size] : Arrays.copyOf((int[]) array, offset + buffer.size);
+            for (int i = 0; i < buffer.size; i++) {
+                result[offset + i] = (int) buffer.values[i];
+            }
+            return result;
+        }
+        if (type == long.class) {
+            long[] result = array == null ? new long[buffer.size] : Arrays.copyOf((long[]) array, offset + buffer.size);
+            System.arraycopy(buffer.values, 0, result, offset, buffer.size);
+            return result;
+        }
+        if (type == double.class) {
+            double[] result = array == null ? new double[buffer.size] : Arrays.copyOf((double[]) array, offset + buffer.size);
+            for (int i = 0; i < buffer.size; i++) {
+                result[offset + i] = Double.longBitsToDouble(buffer.values[i]);
+            }
+            return result;
+        }
+        boolean[] result = array == null ? new boolean[buffer.size] : Arrays.copyOf((boolean[]) array, offset + buffer.size);
+        for (int i = 0; i < buffer.size; i++) {
+            result[offset + i] = buffer.values[i] != 0;
+        }
+        return result;
+    }
+
+    static long toBits(Class<?> type, Object value)
+    {
+        if (type == double.class) {
+            return Double.doubleToRawLongBits(((Number) value).doubleValue());
+        }
+        if (type == boolean.class) {
+            return ((Boolean) value) ? 1 : 0;
+        }
+        return ((Number) value).longValue();
+    }
+
+    static Object box(Class<?> type, long bits)
+    {
+        if (type == int.class) {
+            return (int) bits;
+        }
+        if (type == long.class) {
+            return bits;
+        }
+        if (type == double.class) {
+            return Double.longBitsToDouble(bits);
+        }
+        return bits != 0;
+    }
+}
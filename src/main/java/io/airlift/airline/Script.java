@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The commands of a command file, parsed by {@link Cli#parseScript}. Each line holds one
+ * command line. Words are separated by whitespace and may be quoted with single quotes,
+ * which keep every character, or with double quotes, in which a backslash escapes the
+ * next character, as it does outside of quotes. A {@code #} at the start of a word
+ * begins a comment that runs to the end of the line, and blank lines are ignored.
+ * <p>
+ * A line ending with an unquoted {@code &} word is independent: it runs concurrently
+ * with the independent lines next to it. Every other line starts after all lines in
+ * front of it have finished. Commands must implement {@link Runnable} or
+ * {@link Callable}; a {@code Callable} returning an {@link Integer} sets the exit status
+ * of its line, any other command that completes exits with 0, and a command that throws
+ * an exception or error exits with 1. Once a line has failed, the lines after it are
+ * skipped.
+ */
+public final class Script<C>
+{
+    private final List<Line<C>> lines;
+
+    Script(List<Line<C>> lines)
+    {
+        this.lines = ImmutableList.copyOf(requireNonNull(lines, "lines is null"));
+    }
+
+    static <C> Script<C> parse(Cli<C> cli, Path file)
+            throws IOException
+    {
+        try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+            return parse(cli, reader);
+        }
+    }
+
+    static <C> Script<C> parse(Cli<C> cli, Reader reader)
+            throws IOException
+    {
+        List<Line<C>> lines = new ArrayList<>();
+        List<ParseException> errors = new ArrayList<>();
+
+        BufferedReader lineReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int lineNumber = 0;
+        for (String text = lineReader.readLine(); text != null; text = lineReader.readLine()) {
+            lineNumber++;
+            try {
+                Tokens tokens = tokenize(text);
+                if (tokens.getWords().isEmpty()) {
+                    continue;
+                }
+
+                C command = cli.parse(tokens.getWords());
+                if (!(command instanceof Runnable) && !(command instanceof Callable)) {
+                    throw new ParseException("Command %s is neither Runnable nor Callable", command.getClass().getName());
+                }
+                lines.add(new Line<>(lineNumber, text.trim(), command, tokens.isIndependent()));
+            }
+            catch (ParseException e) {
+                errors.add(new ParseException(e, "Line %s: %s", lineNumber, e.getMessage()));
+            }
+        }
+
+        if (errors.size() == 1) {
+            throw errors.get(0);
+        }
+        if (!errors.isEmpty()) {
+            throw new ParseErrorsException(errors);
+        }
+        return new Script<>(lines);
+    }
+
+    /**
+     * Splits a line into words, dropping a trailing comment and the unquoted {@code &}
+     * word that marks an independent line.
+     */
+    static Tokens tokenize(String line)
+    {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        boolean quoted = false;
+        boolean lastWordMarker = false;
+        char quote = 0;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote == '\'') {
+                if (c == '\'') {
+                    quote = 0;
+                }
+                else {
+                    word.append(c);
+                }
+            }
+            else if (c == '\\') {
+                if (++i == line.length()) {
+                    throw new ParseException("Trailing backslash");
+                }
+                word.append(line.charAt(i));
+                inWord = true;
+                quoted = true;
+            }
+            else if (quote == '"') {
+                if (c == '"') {
+                    quote = 0;
+                }
+                else {
+                    word.append(c);
+                }
+            }
+            else if (c == '\'' || c == '"') {
+                quote = c;
+                inWord = true;
+                quoted = true;
+            }
+            else if (Character.isWhitespace(c)) {
+                if (inWord) {
+                    lastWordMarker = isMarker(word, quoted);
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                    quoted = false;
+                }
+            }
+            else if (c == '#' && !inWord) {
+                break;
+            }
+            else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+
+        if (quote != 0) {
+            throw new ParseException("Unterminated %s quote", quote == '"' ? "double" : "single");
+        }
+        if (inWord) {
+            lastWordMarker = isMarker(word, quoted);
+            words.add(word.toString());
+        }
+        if (lastWordMarker) {
+            return new Tokens(words.subList(0, words.size() - 1), true);
+        }
+        return new Tokens(words, false);
+    }
+
+    private static boolean isMarker(StringBuilder word, boolean quoted)
+    {
+        return !quoted && word.length() == 1 && word.charAt(0) == '&';
+    }
+
+    public List<Line<C>> getLines()
+    {
+        return lines;
+    }
+
+    /**
+     * Runs every command on the calling thread, in the order of the lines.
+     */
+    public ScriptResult run()
+    {
+        return run(directExecutor());
+    }
+
+    /**
+     * Runs the commands on the executor, running each group of consecutive independent
+     * lines concurrently. The executor bounds the number of commands running at once.
+     */
+    public ScriptResult run(Executor executor)
+    {
+        requireNonNull(executor, "executor is null");
+
+        List<ScriptResult.Status> statuses = new ArrayList<>();
+        boolean failed = false;
+        int index = 0;
+        while (index < lines.size()) {
+            // a sequential line runs alone, an independent line with the independent lines following it
+            int end = index + 1;
+            if (lines.get(index).isIndependent()) {
+                while (end < lines.size() && lines.get(end).isIndependent()) {
+                    end++;
+                }
+            }
+            List<Line<C>> batch = lines.subList(index, end);
+            index = end;
+
+            if (failed) {
+                batch.forEach(line -> statuses.add(ScriptResult.Status.skipped(line.getLineNumber(), line.getText())));
+                continue;
+            }
+
+            List<CompletableFuture<ScriptResult.Status>> futures = new ArrayList<>();
+            for (Line<C> line : batch) {
+                futures.add(CompletableFuture.supplyAsync(() -> execute(line), executor));
+            }
+            for (CompletableFuture<ScriptResult.Status> future : futures) {
+                ScriptResult.Status status = future.join();
+                statuses.add(status);
+                failed |= status.getExitCode() != 0;
+            }
+        }
+        return new ScriptResult(statuses);
+    }
+
+    private static ScriptResult.Status execute(Line<?> line)
+    {
+        try {
+            Object result = CommandExecution.call(line.getCommand());
+            int exitCode = result instanceof Integer ? (Integer) result : 0;
+            return ScriptResult.Status.completed(line.getLineNumber(), line.getText(), exitCode);
+        }
+        catch (Throwable e) {
+            // an error of one command is reported in its status, like an exception
+            return ScriptResult.Status.failed(line.getLineNumber(), line.getText(), e);
+        }
+    }
+
+    static final class Tokens
+    {
+        private final List<String> words;
+        private final boolean independent;
+
+        private Tokens(List<String> words, boolean independent)
+        {
+            this.words = ImmutableList.copyOf(words);
+            this.independent = independent;
+        }
+
+        public List<String> getWords()
+        {
+            return words;
+        }
+
+        public boolean isIndependent()
+        {
+            return independent;
+        }
+    }
+
+    public static final class Line<C>
+    {
+        private final int lineNumber;
+        private final String text;
+        private final C command;
+        private final boolean independent;
+
+        Line(int lineNumber, String text, C command, boolean independent)
+        {
+            this.lineNumber = lineNumber;
+            this.text = requireNonNull(text, "text is null");
+            this.command = requireNonNull(command, "command is null");
+            this.independent = independent;
+        }
+
+        public int getLineNumber()
+        {
+            return lineNumber;
+        }
+
+        public String getText()
+        {
+            return text;
+        }
+
+        public C getCommand()
+        {
+            return command;
+        }
+
+        public boolean isIndependent()
+        {
+            return independent;
+        }
+    }
+}
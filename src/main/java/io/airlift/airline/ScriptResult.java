@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The exit status of every line of a {@link Script}, in the order of the lines.
+ */
+public final class ScriptResult
+{
+    private final List<Status> statuses;
+
+    ScriptResult(List<Status> statuses)
+    {
+        this.statuses = ImmutableList.copyOf(requireNonNull(statuses, "statuses is null"));
+    }
+
+    public List<Status> getStatuses()
+    {
+        return statuses;
+    }
+
+    /**
+     * Returns the first non-zero exit status, or 0 if every command succeeded.
+     */
+    public int getExitCode()
+    {
+        for (Status status : statuses) {
+            if (status.getExitCode() != 0) {
+                return status.getExitCode();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a summary with one line per command, for example {@code line 3: exit 0: git add file}.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (Status status : statuses) {
+            summary.append("line ").append(status.getLineNumber()).append(": ");
+            if (status.isSkipped()) {
+                summary.append("skipped");
+            }
+            else {
+                summary.append("exit ").append(status.getExitCode());
+            }
+            summary.append(": ").append(status.getText());
+            if (status.getFailure() != null) {
+                summary.append(" (").append(status.getFailure()).append(")");
+            }
+            summary.append('\n');
+        }
+        return summary.toString();
+    }
+
+    public static final class Status
+    {
+        private final int lineNumber;
+        private final String text;
+        private final boolean skipped;
+        private final int exitCode;
+        private final Throwable failure;
+
+        private Status(int lineNumber, String text, boolean skipped, int exitCode, @Nullable Throwable failure)
+        {
+            this.lineNumber = lineNumber;
+            this.text = requireNonNull(text, "text is null");
+            this.skipped = skipped;
+            this.exitCode = exitCode;
+            this.failure = failure;
+        }
+
+        static Status completed(int lineNumber, String text, int exitCode)
+        {
+            return new Status(lineNumber, text, false, exitCode, null);
+        }
+
+        static Status failed(int lineNumber, String text, Throwable failure)
+        {
+            return new Status(lineNumber, text, false, 1, requireNonNull(failure, "failure is null"));
+        }
+
+        static Status skipped(int lineNumber, String text)
+        {
+            return new Status(lineNumber, text, true, 0, null);
+        }
+
+        public int getLineNumber()
+        {
+            return lineNumber;
+        }
+
+        public String getText()
+        {
+            return text;
+        }
+
+        /**
+         * Returns whether the command did not run because an earlier line failed.
+         */
+        public boolean isSkipped()
+        {
+            return skipped;
+        }
+
+        public int getExitCode()
+        {
+            return exitCode;
+        }
+
+        @Nullable
+        public Throwable getFailure()
+        {
+            return failure;
+        }
+    }
+}
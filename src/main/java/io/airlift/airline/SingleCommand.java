@@ -20,12 +20,12 @@ package io.airlift.airline;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import io.airlift.airline.model.ArgumentsMetadata;
 import io.airlift.airline.model.CommandMetadata;
 import io.airlift.airline.model.MetadataLoader;
-import io.airlift.airline.model.OptionMetadata;
 
-import java.util.List;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static io.airlift.airline.ParserUtil.createInstance;
 import static java.util.Objects.requireNonNull;
@@ -38,12 +38,67 @@ public class SingleCommand<C>
     }
 
     private final CommandMetadata commandMetadata;
+    private final boolean collectAllErrors;
+    private final Executor argumentConversionExecutor;
+    private final OptionDefaults optionDefaults;
 
     private SingleCommand(Class<C> command)
     {
         requireNonNull(command, "command is null");
 
         commandMetadata = MetadataLoader.loadCommand(command);
+        collectAllErrors = false;
+        argumentConversionExecutor = null;
+        optionDefaults = OptionDefaults.fromEnvironment();
+    }
+
+    private SingleCommand(CommandMetadata commandMetadata, boolean collectAllErrors, Executor argumentConversionExecutor, OptionDefaults optionDefaults)
+    {
+        this.commandMetadata = requireNonNull(commandMetadata, "commandMetadata is null");
+        this.collectAllErrors = collectAllErrors;
+        this.argumentConversionExecutor = argumentConversionExecutor;
+        this.optionDefaults = requireNonNull(optionDefaults, "optionDefaults is null");
+    }
+
+    /**
+     * Returns a parser for the same command that reports every problem with a command
+     * line instead of only the first one.
+     */
+    public SingleCommand<C> withCollectAllErrors(boolean collectAllErrors)
+    {
+        return new SingleCommand<C>(commandMetadata, collectAllErrors, argumentConversionExecutor, optionDefaults);
+    }
+
+    /**
+     * Returns a parser for the same command that converts large lists of positional
+     * arguments in parallel chunks on the executor. See
+     * {@link Cli.CliBuilder#withParallelArgumentConversion}.
+     */
+    public SingleCommand<C> withParallelArgumentConversion(Executor executor)
+    {
+        requireNonNull(executor, "executor is null");
+        return new SingleCommand<C>(commandMetadata, collectAllErrors, executor, optionDefaults);
+    }
+
+    /**
+     * Returns a parser for the same command that reads option defaults from these
+     * variables instead of the environment of the process. See
+     * {@link Cli.CliBuilder#withEnvironment}.
+     */
+    public SingleCommand<C> withEnvironment(Map<String, String> environment)
+    {
+        requireNonNull(environment, "environment is null");
+        return new SingleCommand<C>(commandMetadata, collectAllErrors, argumentConversionExecutor, optionDefaults.withEnvironment(environment));
+    }
+
+    /**
+     * Returns a parser for the same command that reads option defaults from the
+     * configuration file. See {@link Cli.CliBuilder#withConfigFile}.
+     */
+    public SingleCommand<C> withConfigFile(Path configFile)
+    {
+        requireNonNull(configFile, "configFile is null");
+        return new SingleCommand<C>(commandMetadata, collectAllErrors, argumentConversionExecutor, optionDefaults.withConfigFile(configFile));
     }
 
     public CommandMetadata getCommandMetadata()
@@ -60,52 +115,37 @@ public class SingleCommand<C>
     {
         requireNonNull(args, "args is null");
 
-        Parser parser = new Parser();
-        ParseState state = parser.parseCommand(commandMetadata, args);
-        validate(state);
-
-        CommandMetadata command = state.getCommand();
+        ParseState state = parseAndValidate(args);
 
-        return createInstance(command.getType(),
-                command.getAllOptions(),
-                state.getParsedOptions(),
-                command.getArguments(),
-                state.getParsedArguments(),
-                command.getMetadataInjections(),
+        return createInstance(state,
                 ImmutableMap.<Class<?>, Object>of(CommandMetadata.class, commandMetadata),
                 new DefaultCommandFactory<C>());
     }
 
-    private void validate(ParseState state)
+    /**
+     * Parses and validates the command line without creating or injecting a command instance.
+     */
+    public ParseResult validate(String... args)
+    {
+        return validate(ImmutableList.copyOf(args));
+    }
+
+    /**
+     * Parses and validates the command line without creating or injecting a command instance.
+     */
+    public ParseResult validate(Iterable<String> args)
     {
-        CommandMetadata command = state.getCommand();
-        if (command == null) {
-            List<String> unparsedInput = state.getUnparsedInput();
-            if (unparsedInput.isEmpty()) {
-                throw new ParseCommandMissingException();
-            }
-            else {
-                throw new ParseCommandUnrecognizedException(unparsedInput);
-            }
-        }
-
-        ArgumentsMetadata arguments = command.getArguments();
-        if (state.getParsedArguments().isEmpty() && arguments != null && arguments.isRequired()) {
-            throw new ParseArgumentsMissingException(arguments.getTitle());
-        }
-
-        if (!state.getUnparsedInput().isEmpty()) {
-            throw new ParseArgumentsUnexpectedException(state.getUnparsedInput());
-        }
-
-        if (state.getLocation() == Context.OPTION) {
-            throw new ParseOptionMissingValueException(state.getCurrentOption().getTitle());
-        }
-
-        for (OptionMetadata option : command.getAllOptions()) {
-            if (option.isRequired() && !state.getParsedOptions().containsKey(option)) {
-                throw new ParseOptionMissingException(option.getOptions().iterator().next());
-            }
-        }
+        requireNonNull(args, "args is null");
+
+        return new ParseResult(parseAndValidate(args));
+    }
+
+    private ParseState parseAndValidate(Iterable<String> args)
+    {
+        Parser parser = new Parser(argumentConversionExecutor);
+        ParseState state = parser.parseCommand(commandMetadata, args);
+        state = optionDefaults.apply(state);
+        ParseStateValidator.validate(state, collectAllErrors);
+        return state;
     }
 }
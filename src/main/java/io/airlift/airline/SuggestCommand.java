@@ -42,6 +42,10 @@ public class SuggestCommand
         Parser parser = new Parser();
         ParseState state = parser.parse(metadata, arguments);
 
+        if (state.getLocation() == Context.OPTION) {
+            return suggestOptionValues(state.getCurrentOption());
+        }
+
         Class<? extends Suggester> suggesterClass = BUILTIN_SUGGESTERS.get(state.getLocation());
         if (suggesterClass != null) {
             SuggesterMetadata suggesterMetadata = MetadataLoader.loadSuggester(suggesterClass);
@@ -74,6 +78,17 @@ public class SuggestCommand
         return ImmutableList.of();
     }
 
+    private static Iterable<String> suggestOptionValues(OptionMetadata option)
+    {
+        if (option.getAllowedValues() != null) {
+            return option.getAllowedValues();
+        }
+        if (option.getJavaType().isEnum()) {
+            return EnumLookup.forType(option.getJavaType()).getNames();
+        }
+        return ImmutableList.of();
+    }
+
     @Override
     public void run()
     {
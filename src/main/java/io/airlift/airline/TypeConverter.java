@@ -3,6 +3,7 @@ package io.airlift.airline;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.time.Duration;
 
 import static java.util.Objects.requireNonNull;
 
@@ -14,11 +15,45 @@ public class TypeConverter
     }
 
     public Object convert(String name, Class<?> type, String value)
+    {
+        return convert(name, type, value, false);
+    }
+
+    /**
+     * Converts the value to the type. Enum constants are matched by name or
+     * {@link Alias}, ignoring case if requested, unless the enum declares a
+     * {@code fromString} method.
+     */
+    public Object convert(String name, Class<?> type, String value, boolean ignoreCase)
     {
         requireNonNull(name, "name is null");
         requireNonNull(type, "type is null");
         requireNonNull(value, "value is null");
 
+        if (type.isEnum()) {
+            EnumLookup lookup = EnumLookup.forType(type);
+            if (!lookup.hasCustomConversion()) {
+                Object constant = lookup.find(value, ignoreCase);
+                if (constant == null) {
+                    throw new ParseOptionConversionException(name, value, type.getSimpleName(), lookup.getNames());
+                }
+                return constant;
+            }
+        }
+
+        // built-in value types are parsed directly, ahead of the reflective lookups
+        if (type == Duration.class || type == DataSize.class || type == Count.class) {
+            try {
+                if (type == Duration.class) {
+                    return BuiltInConverters.parseDuration(value);
+                }
+                return type == DataSize.class ? DataSize.valueOf(value) : Count.valueOf(value);
+            }
+            catch (RuntimeException e) {
+                throw new ParseOptionConversionException(name, value, type.getSimpleName(), e);
+            }
+        }
+
         try {
             if (String.class.isAssignableFrom(type)) {
                 return value;
@@ -1,8 +1,10 @@
 package io.airlift.airline;
 
-import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import io.airlift.airline.model.ArgumentsMetadata;
 import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.MetadataComparators;
 import io.airlift.airline.model.OptionMetadata;
 
 import java.util.Comparator;
@@ -16,36 +18,16 @@ public final class UsageHelper
 {
     private UsageHelper() {}
 
-    public static final Comparator<OptionMetadata> DEFAULT_OPTION_COMPARATOR = new Comparator<OptionMetadata>()
-    {
-        @Override
-        public int compare(OptionMetadata o1, OptionMetadata o2)
-        {
-            String option1 = o1.getOptions().iterator().next();
-            option1 = option1.replaceFirst("^-+", "");
-
-            String option2 = o2.getOptions().iterator().next();
-            option2 = option2.replaceFirst("^-+", "");
-
-            return ComparisonChain.start()
-                    .compare(option1.toLowerCase(), option2.toLowerCase())
-                    .compare(option2, option1) // print lower case letters before upper case
-                    .compare(System.identityHashCode(o1), System.identityHashCode(o2))
-                    .result();
-        }
-    };
-    public static final Comparator<CommandMetadata> DEFAULT_COMMAND_COMPARATOR = new Comparator<CommandMetadata>()
+    public static final Comparator<OptionMetadata> DEFAULT_OPTION_COMPARATOR = MetadataComparators.OPTION_ORDER;
+    public static final Comparator<CommandMetadata> DEFAULT_COMMAND_COMPARATOR = MetadataComparators.COMMAND_ORDER;
+
+    /**
+     * Merges option lists that are each sorted with the specified comparator.
+     */
+    public static List<OptionMetadata> mergeSortedOptions(Iterable<? extends List<OptionMetadata>> sortedOptions, Comparator<? super OptionMetadata> comparator)
     {
-        @Override
-        public int compare(CommandMetadata o1, CommandMetadata o2)
-        {
-            return ComparisonChain.start()
-                    .compare(o1.getName().toLowerCase(), o2.getName().toLowerCase())
-                    .compare(o2.getName(), o1.getName()) // print lower case letters before upper case
-                    .compare(System.identityHashCode(o1), System.identityHashCode(o2))
-                    .result();
-        }
-    };
+        return ImmutableList.copyOf(Iterables.mergeSorted(sortedOptions, comparator));
+    }
 
     public static String toDescription(OptionMetadata option)
     {
@@ -75,10 +57,29 @@ public final class UsageHelper
         return "<" + arguments.getTitle() + ">";
     }
 
+    /**
+     * Describes where the value of the option comes from when it is not given on the
+     * command line, or returns null if it has no such source.
+     */
+    public static String toDefaultSource(OptionMetadata option)
+    {
+        if (option.getEnvironmentVariable() != null && option.getConfigKey() != null) {
+            return "Defaults to the environment variable " + option.getEnvironmentVariable() + " or the configuration key " + option.getConfigKey() + ".";
+        }
+        if (option.getEnvironmentVariable() != null) {
+            return "Defaults to the environment variable " + option.getEnvironmentVariable() + ".";
+        }
+        if (option.getConfigKey() != null) {
+            return "Defaults to the configuration key " + option.getConfigKey() + ".";
+        }
+        return null;
+    }
+
     public static String toUsage(OptionMetadata option)
     {
         Set<String> options = option.getOptions();
-        boolean required = option.isRequired();
+        // an option with a default source can be left out of the command line
+        boolean required = option.isRequired() && !option.hasDefaultSource();
         StringBuilder stringBuilder = new StringBuilder();
         if (!required) {
             stringBuilder.append('[');
@@ -1,52 +1,86 @@
 package io.airlift.airline;
 
-import com.google.common.base.Splitter;
-
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
 
+/**
+ * Writes word wrapped usage text directly to an {@link Appendable}. Failures of the
+ * underlying appendable are rethrown as {@link UncheckedIOException}.
+ */
 public class UsagePrinter
 {
-    private final StringBuilder out;
+    private static final String SPACES = "                                                                                ";
+
+    private final Appendable out;
     private final int maxSize;
     private final int indent;
     private final int hangingIndent;
-    private final AtomicInteger currentPosition;
+    private final Position position;
 
     public UsagePrinter(StringBuilder out)
     {
-        this(out, 79);
+        this((Appendable) out);
     }
 
     public UsagePrinter(StringBuilder out, int maxSize)
     {
-        this(out, maxSize, 0, 0, new AtomicInteger());
+        this((Appendable) out, maxSize);
+    }
+
+    public UsagePrinter(Appendable out)
+    {
+        this(out, 79);
+    }
+
+    public UsagePrinter(Appendable out, int maxSize)
+    {
+        this(out, maxSize, 0, 0, new Position());
     }
 
+    /**
+     * @deprecated use {@link #UsagePrinter(Appendable, int)} with {@link #newIndentedPrinter}
+     * and {@link #newPrinterWithHangingIndent}
+     */
+    @Deprecated
     public UsagePrinter(StringBuilder out, int maxSize, int indent, int hangingIndent, AtomicInteger currentPosition)
+    {
+        this(out, maxSize, indent, hangingIndent, new SharedPosition(requireNonNull(currentPosition, "currentPosition is null")));
+    }
+
+    private UsagePrinter(Appendable out, int maxSize, int indent, int hangingIndent, Position position)
     {
         this.out = out;
         this.maxSize = maxSize;
         this.indent = indent;
         this.hangingIndent = hangingIndent;
-        this.currentPosition = currentPosition;
+        this.position = position;
     }
 
     public UsagePrinter newIndentedPrinter(int size)
     {
-        return new UsagePrinter(out, maxSize, indent + size, hangingIndent, currentPosition);
+        return new UsagePrinter(out, maxSize, indent + size, hangingIndent, position);
     }
 
     public UsagePrinter newPrinterWithHangingIndent(int size)
     {
-        return new UsagePrinter(out, maxSize, indent, hangingIndent + size, currentPosition);
+        return new UsagePrinter(out, maxSize, indent, hangingIndent + size, position);
     }
 
     public UsagePrinter newline()
     {
-        out.append("\n");
-        currentPosition.set(0);
+        write('\n');
+        position.value = 0;
+        position.store();
         return this;
     }
 
@@ -64,24 +98,48 @@ public class UsagePrinter
             }
         }
 
-        if (currentPosition.get() != 0) {
-            currentPosition.set(0);
-            out.append("\n");
+        position.load();
+        if (position.value != 0) {
+            position.value = 0;
+            write('\n');
         }
 
         for (Iterable<String> row : table) {
+            writeSpaces(indent);
+
+            // cells are padded to the column size and separated by three spaces, and
+            // the padding is only written when more text follows, which trims the line
             int column = 0;
-            StringBuilder line = new StringBuilder();
+            int pendingSpaces = 0;
+            boolean started = false;
             for (String value : row) {
-                int columnSize = columnSizes.get(column);
-                line.append(value);
-                line.append(spaces(columnSize - value.length()));
-                line.append("   ");
+                int start = 0;
+                int end = value.length();
+                if (!started) {
+                    while (start < end && value.charAt(start) <= ' ') {
+                        start++;
+                    }
+                }
+                while (end > start && value.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                if (start < end) {
+                    writeSpaces(pendingSpaces);
+                    write(value, start, end);
+                    pendingSpaces = 0;
+                    started = true;
+                }
+                // the padding of empty leading cells is dropped, as the line starts with the first text
+                if (started) {
+                    pendingSpaces += value.length() - end;
+                    pendingSpaces += columnSizes.get(column) - value.length() + 3;
+                }
                 column++;
             }
-            out.append(spaces(indent)).append(line.toString().trim()).append("\n");
+            write('\n');
         }
 
+        position.store();
         return this;
     }
 
@@ -90,40 +148,153 @@ public class UsagePrinter
         if (value == null) {
             return this;
         }
-        return appendWords(Splitter.onPattern("\\s+").omitEmptyStrings().trimResults().split(String.valueOf(value)));
-    }
 
-    public UsagePrinter appendWords(Iterable<String> words)
-    {
-        for (String word : words) {
-            if (currentPosition.get() == 0) {
-                // beginning of line
-                out.append(spaces(indent));
-                currentPosition.getAndAdd((indent));
+        position.load();
+
+        int length = value.length();
+        int index = 0;
+        while (index < length) {
+            while (index < length && isWhitespace(value.charAt(index))) {
+                index++;
             }
-            else if (word.length() > maxSize || currentPosition.get() + word.length() <= maxSize) {
-                // between words
-                out.append(" ");
-                currentPosition.getAndIncrement();
+            int start = index;
+            while (index < length && !isWhitespace(value.charAt(index))) {
+                index++;
             }
-            else {
-                // wrap line
-                out.append("\n").append(spaces(indent)).append(spaces(hangingIndent));
-                currentPosition.set(indent);
+            if (start < index) {
+                appendWord(value, start, index);
             }
+        }
+        position.store();
+        return this;
+    }
 
-            out.append(word);
-            currentPosition.getAndAdd((word.length()));
+    public UsagePrinter appendWords(Iterable<String> words)
+    {
+        position.load();
+        for (String word : words) {
+            appendWord(word, 0, word.length());
         }
+        position.store();
         return this;
     }
 
-    private static String spaces(int count)
+    private void appendWord(CharSequence word, int start, int end)
     {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < count; i++) {
-            result.append(" ");
+        int length = end - start;
+        if (position.value == 0) {
+            // beginning of line
+            writeSpaces(indent);
+            position.value += indent;
+        }
+        else if (length > maxSize || position.value + length <= maxSize) {
+            // between words
+            write(' ');
+            position.value++;
+        }
+        else {
+            // wrap line
+            write('\n');
+            writeSpaces(indent + hangingIndent);
+            position.value = indent;
+        }
+
+        write(word, start, end);
+        position.value += length;
+    }
+
+    private void writeSpaces(int count)
+    {
+        while (count > 0) {
+            int chunk = Math.min(count, SPACES.length());
+            write(SPACES, 0, chunk);
+            count -= chunk;
+        }
+    }
+
+    private void write(char value)
+    {
+        try {
+            out.append(value);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(CharSequence value, int start, int end)
+    {
+        try {
+            out.append(value, start, end);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isWhitespace(char c)
+    {
+        // same characters as the \s regular expression class
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Streams the output of the printer to System.out followed by a line separator.
+     */
+    static void printToSystemOut(Consumer<Appendable> printer)
+    {
+        // System.out is not closed
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+        try {
+            printer.accept(writer);
+            writer.write(System.lineSeparator());
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Position in the current line, shared by a printer and the printers derived from it.
+     */
+    private static class Position
+    {
+        int value;
+
+        protected void load()
+        {
+        }
+
+        protected void store()
+        {
+        }
+    }
+
+    /**
+     * Position kept in the {@link AtomicInteger} passed to the deprecated constructor,
+     * which is read before and written after each append.
+     */
+    private static class SharedPosition
+            extends Position
+    {
+        private final AtomicInteger currentPosition;
+
+        private SharedPosition(AtomicInteger currentPosition)
+        {
+            this.currentPosition = currentPosition;
+        }
+
+        @Override
+        protected void load()
+        {
+            value = currentPosition.get();
+        }
+
+        @Override
+        protected void store()
+        {
+            currentPosition.set(value);
         }
-        return result.toString();
     }
 }
@@ -20,16 +20,21 @@ public class ArgumentsMetadata
     private final Set<Accessor> accessors;
 
     public ArgumentsMetadata(String title, String description, String usage, boolean required, Iterable<Field> path)
+    {
+        this(title, description, usage, required, ImmutableSet.of(new Accessor(requireNonNull(path, "path is null"))));
+    }
+
+    public ArgumentsMetadata(String title, String description, String usage, boolean required, Set<Accessor> accessors)
     {
         requireNonNull(title, "title is null");
-        requireNonNull(path, "path is null");
-        checkArgument(!Iterables.isEmpty(path), "path is empty");
+        requireNonNull(accessors, "accessors is null");
+        checkArgument(!accessors.isEmpty(), "accessors is empty");
 
         this.title = title;
         this.description = description;
         this.usage = usage;
         this.required = required;
-        this.accessors = ImmutableSet.of(new Accessor(path));
+        this.accessors = ImmutableSet.copyOf(accessors);
     }
 
     public ArgumentsMetadata(Iterable<ArgumentsMetadata> arguments)
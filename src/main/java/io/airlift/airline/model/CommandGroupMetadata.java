@@ -1,24 +1,70 @@
 package io.airlift.airline.model;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 
+import static io.airlift.airline.model.MetadataComparators.COMMAND_ORDER;
+import static io.airlift.airline.model.MetadataComparators.OPTION_ORDER;
+import static java.util.Objects.requireNonNull;
+
 public class CommandGroupMetadata
 {
     private final String name;
     private final String description;
-    private final List<OptionMetadata> options;
+    private final Supplier<List<OptionMetadata>> options;
+    @Nullable
+    private final LazyOptions lazyOptions;
     private final CommandMetadata defaultCommand;
     private final List<CommandMetadata> commands;
+    private final Supplier<List<OptionMetadata>> sortedOptions;
+    private final List<CommandMetadata> sortedCommands;
 
     public CommandGroupMetadata(String name, String description, Iterable<OptionMetadata> options, CommandMetadata defaultCommand, Iterable<CommandMetadata> commands)
     {
         this.name = name;
         this.description = description;
-        this.options = ImmutableList.copyOf(options);
+        this.options = Suppliers.ofInstance(ImmutableList.copyOf(options));
+        this.lazyOptions = null;
         this.defaultCommand = defaultCommand;
         this.commands = ImmutableList.copyOf(commands);
+        this.sortedOptions = Suppliers.ofInstance(ImmutableList.sortedCopyOf(OPTION_ORDER, this.options.get()));
+        this.sortedCommands = ImmutableList.sortedCopyOf(COMMAND_ORDER, this.commands);
+    }
+
+    /**
+     * Creates group metadata whose options are computed when first requested.
+     */
+    public CommandGroupMetadata(String name, String description, Supplier<List<OptionMetadata>> options, CommandMetadata defaultCommand, Iterable<CommandMetadata> commands)
+    {
+        requireNonNull(options, "options is null");
+        this.name = name;
+        this.description = description;
+        this.options = Suppliers.memoize(() -> ImmutableList.copyOf(options.get()));
+        this.lazyOptions = null;
+        this.defaultCommand = defaultCommand;
+        this.commands = ImmutableList.copyOf(commands);
+        this.sortedOptions = Suppliers.memoize(() -> ImmutableList.sortedCopyOf(OPTION_ORDER, this.options.get()));
+        this.sortedCommands = ImmutableList.sortedCopyOf(COMMAND_ORDER, this.commands);
+    }
+
+    /**
+     * Creates group metadata whose options are resolved by name, see {@link #findOption}.
+     */
+    CommandGroupMetadata(String name, String description, LazyOptions options, CommandMetadata defaultCommand, Iterable<CommandMetadata> commands)
+    {
+        this.name = name;
+        this.description = description;
+        this.lazyOptions = requireNonNull(options, "options is null");
+        this.options = options::getOptions;
+        this.defaultCommand = defaultCommand;
+        this.commands = ImmutableList.copyOf(commands);
+        this.sortedOptions = Suppliers.memoize(() -> ImmutableList.sortedCopyOf(OPTION_ORDER, this.options.get()));
+        this.sortedCommands = ImmutableList.sortedCopyOf(COMMAND_ORDER, this.commands);
     }
 
     public String getName()
@@ -33,7 +79,33 @@ public class CommandGroupMetadata
 
     public List<OptionMetadata> getOptions()
     {
-        return options;
+        return options.get();
+    }
+
+    /**
+     * Returns the option with the given name. When the options are resolved lazily, only
+     * the commands that may declare the name are read.
+     */
+    @Nullable
+    public OptionMetadata findOption(String name)
+    {
+        if (lazyOptions != null) {
+            return lazyOptions.findOption(name);
+        }
+        for (OptionMetadata option : getOptions()) {
+            if (option.getOptions().contains(name)) {
+                return option;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the options in the order of {@link MetadataComparators#OPTION_ORDER}.
+     */
+    public List<OptionMetadata> getSortedOptions()
+    {
+        return sortedOptions.get();
     }
 
     public CommandMetadata getDefaultCommand()
@@ -46,6 +118,14 @@ public class CommandGroupMetadata
         return commands;
     }
 
+    /**
+     * Returns the commands in the order of {@link MetadataComparators#COMMAND_ORDER}.
+     */
+    public List<CommandMetadata> getSortedCommands()
+    {
+        return sortedCommands;
+    }
+
     @Override
     public String toString()
     {
@@ -53,7 +133,7 @@ public class CommandGroupMetadata
         sb.append("CommandGroupMetadata");
         sb.append("{name='").append(name).append('\'');
         sb.append(", description='").append(description).append('\'');
-        sb.append(", options=").append(options);
+        sb.append(", options=").append(getOptions());
         sb.append(", defaultCommand=").append(defaultCommand);
         sb.append(", commands=").append(commands);
         sb.append('}');
@@ -1,21 +1,31 @@
 package io.airlift.airline.model;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import io.airlift.airline.Accessor;
+import io.airlift.airline.ConstructorBinding;
+
+import javax.annotation.Nullable;
 
 import java.util.List;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.airline.model.MetadataComparators.OPTION_ORDER;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+
 public class CommandMetadata
 {
     private final String name;
     private final String description;
     private final boolean hidden;
-    private final List<OptionMetadata> globalOptions;
-    private final List<OptionMetadata> groupOptions;
-    private final List<OptionMetadata> commandOptions;
-    private final ArgumentsMetadata arguments;
-    private final List<Accessor> metadataInjections;
-    private final Class<?> type;
+    private final String typeName;
+    private final Supplier<Class<?>> type;
+    private final Supplier<ConstructorBinding> constructorBinding;
+    private final String sortKey;
+    private final Supplier<Body> body;
+    private volatile boolean loaded;
 
     public CommandMetadata(String name,
             String description,
@@ -26,15 +36,93 @@ public class CommandMetadata
             Iterable<Accessor> metadataInjections,
             Class<?> type)
     {
+        this(name, description, hidden, globalOptions, groupOptions, commandOptions, arguments, metadataInjections, type, null);
+    }
+
+    public CommandMetadata(String name,
+            String description,
+            boolean hidden, Iterable<OptionMetadata> globalOptions,
+            Iterable<OptionMetadata> groupOptions,
+            Iterable<OptionMetadata> commandOptions,
+            ArgumentsMetadata arguments,
+            Iterable<Accessor> metadataInjections,
+            Class<?> type,
+            @Nullable ConstructorBinding constructorBinding)
+    {
+        this(name, description, hidden, globalOptions, groupOptions, commandOptions, arguments, metadataInjections,
+                type == null ? null : type.getName(),
+                Suppliers.ofInstance(type),
+                Suppliers.ofInstance(constructorBinding));
+    }
+
+    /**
+     * Creates command metadata whose type and constructor binding are only resolved when
+     * first requested, which is typically when the command is dispatched.
+     */
+    public CommandMetadata(String name,
+            String description,
+            boolean hidden, Iterable<OptionMetadata> globalOptions,
+            Iterable<OptionMetadata> groupOptions,
+            Iterable<OptionMetadata> commandOptions,
+            ArgumentsMetadata arguments,
+            Iterable<Accessor> metadataInjections,
+            String typeName,
+            Supplier<Class<?>> type,
+            Supplier<ConstructorBinding> constructorBinding)
+    {
+        this.name = name;
+        this.description = description;
+        this.hidden = hidden;
+        this.typeName = typeName;
+        this.type = Suppliers.memoize(requireNonNull(type, "type is null"));
+        this.constructorBinding = Suppliers.memoize(requireNonNull(constructorBinding, "constructorBinding is null"));
+        this.sortKey = name.toLowerCase(ENGLISH);
+        this.body = Suppliers.ofInstance(new Body(globalOptions, groupOptions, commandOptions, arguments, metadataInjections));
+        this.loaded = true;
+    }
+
+    /**
+     * Creates command metadata for which only the name, description and hidden flag are
+     * known up front. The options, arguments and injections are taken from the metadata
+     * returned by the loader, which is called the first time any of them is requested.
+     */
+    public CommandMetadata(String name,
+            String description,
+            boolean hidden,
+            Class<?> type,
+            Supplier<CommandMetadata> loader)
+    {
+        this(name, description, hidden, requireNonNull(type, "type is null").getName(), Suppliers.ofInstance(type), loader);
+    }
+
+    /**
+     * Same as {@link #CommandMetadata(String, String, boolean, Class, Supplier)} for a
+     * command type that is only resolved when first requested.
+     */
+    public CommandMetadata(String name,
+            String description,
+            boolean hidden,
+            String typeName,
+            Supplier<Class<?>> type,
+            Supplier<CommandMetadata> loader)
+    {
+        requireNonNull(typeName, "typeName is null");
+        requireNonNull(type, "type is null");
+        requireNonNull(loader, "loader is null");
         this.name = name;
         this.description = description;
         this.hidden = hidden;
-        this.globalOptions = ImmutableList.copyOf(globalOptions);
-        this.groupOptions = ImmutableList.copyOf(groupOptions);
-        this.commandOptions = ImmutableList.copyOf(commandOptions);
-        this.arguments = arguments;
-        this.metadataInjections = ImmutableList.copyOf(metadataInjections);
-        this.type = type;
+        this.typeName = typeName;
+        this.type = Suppliers.memoize(type);
+        this.sortKey = name.toLowerCase(ENGLISH);
+
+        Supplier<CommandMetadata> metadata = Suppliers.memoize(() -> {
+            CommandMetadata command = loader.get();
+            loaded = true;
+            return command;
+        });
+        this.body = () -> metadata.get().body.get();
+        this.constructorBinding = () -> metadata.get().getConstructorBinding();
     }
 
     public String getName()
@@ -54,37 +142,101 @@ public class CommandMetadata
 
     public List<OptionMetadata> getAllOptions()
     {
-        return ImmutableList.<OptionMetadata>builder().addAll(globalOptions).addAll(groupOptions).addAll(commandOptions).build();
+        return body.get().allOptions;
+    }
+
+    public List<OptionMetadata> getRequiredOptions()
+    {
+        return body.get().requiredOptions;
     }
 
     public List<OptionMetadata> getGlobalOptions()
     {
-        return globalOptions;
+        return body.get().globalOptions;
     }
 
     public List<OptionMetadata> getGroupOptions()
     {
-        return groupOptions;
+        return body.get().groupOptions;
     }
 
     public List<OptionMetadata> getCommandOptions()
     {
-        return commandOptions;
+        return body.get().commandOptions;
+    }
+
+    /**
+     * Returns the global options in the order of {@link MetadataComparators#OPTION_ORDER}.
+     */
+    public List<OptionMetadata> getSortedGlobalOptions()
+    {
+        return body.get().sortedGlobalOptions;
+    }
+
+    /**
+     * Returns the group options in the order of {@link MetadataComparators#OPTION_ORDER}.
+     */
+    public List<OptionMetadata> getSortedGroupOptions()
+    {
+        return body.get().sortedGroupOptions;
+    }
+
+    /**
+     * Returns the command options in the order of {@link MetadataComparators#OPTION_ORDER}.
+     */
+    public List<OptionMetadata> getSortedCommandOptions()
+    {
+        return body.get().sortedCommandOptions;
+    }
+
+    /**
+     * Returns the lower case name, which is the primary key of the default command order.
+     */
+    public String getSortKey()
+    {
+        return sortKey;
     }
 
     public ArgumentsMetadata getArguments()
     {
-        return arguments;
+        return body.get().arguments;
     }
 
     public List<Accessor> getMetadataInjections()
     {
-        return metadataInjections;
+        return body.get().metadataInjections;
     }
 
     public Class<?> getType()
     {
-        return type;
+        return type.get();
+    }
+
+    /**
+     * Returns the binary name of the command type without loading the type.
+     */
+    public String getTypeName()
+    {
+        return typeName;
+    }
+
+    /**
+     * Returns the binding used to create the command through its constructor, or null
+     * if the command is created with its no-arg constructor and injected field by field.
+     */
+    @Nullable
+    public ConstructorBinding getConstructorBinding()
+    {
+        return constructorBinding.get();
+    }
+
+    /**
+     * Returns false while the options, arguments and injections of a lazily loaded
+     * command have not been requested yet.
+     */
+    public boolean isLoaded()
+    {
+        return loaded;
     }
 
     @Override
@@ -94,13 +246,53 @@ public class CommandMetadata
         sb.append("CommandMetadata");
         sb.append("{name='").append(name).append('\'');
         sb.append(", description='").append(description).append('\'');
-        sb.append(", globalOptions=").append(globalOptions);
-        sb.append(", groupOptions=").append(groupOptions);
-        sb.append(", commandOptions=").append(commandOptions);
-        sb.append(", arguments=").append(arguments);
-        sb.append(", metadataInjections=").append(metadataInjections);
-        sb.append(", type=").append(type);
+        if (loaded) {
+            sb.append(", globalOptions=").append(getGlobalOptions());
+            sb.append(", groupOptions=").append(getGroupOptions());
+            sb.append(", commandOptions=").append(getCommandOptions());
+            sb.append(", arguments=").append(getArguments());
+            sb.append(", metadataInjections=").append(getMetadataInjections());
+        }
+        sb.append(", type=").append(typeName);
         sb.append('}');
         return sb.toString();
     }
+
+    private static final class Body
+    {
+        private final List<OptionMetadata> globalOptions;
+        private final List<OptionMetadata> groupOptions;
+        private final List<OptionMetadata> commandOptions;
+        private final List<OptionMetadata> allOptions;
+        private final List<OptionMetadata> requiredOptions;
+        private final ArgumentsMetadata arguments;
+        private final List<Accessor> metadataInjections;
+        private final List<OptionMetadata> sortedGlobalOptions;
+        private final List<OptionMetadata> sortedGroupOptions;
+        private final List<OptionMetadata> sortedCommandOptions;
+
+        private Body(Iterable<OptionMetadata> globalOptions,
+                Iterable<OptionMetadata> groupOptions,
+                Iterable<OptionMetadata> commandOptions,
+                ArgumentsMetadata arguments,
+                Iterable<Accessor> metadataInjections)
+        {
+            this.globalOptions = ImmutableList.copyOf(globalOptions);
+            this.groupOptions = ImmutableList.copyOf(groupOptions);
+            this.commandOptions = ImmutableList.copyOf(commandOptions);
+            this.allOptions = ImmutableList.<OptionMetadata>builder()
+                    .addAll(this.globalOptions)
+                    .addAll(this.groupOptions)
+                    .addAll(this.commandOptions)
+                    .build();
+            this.requiredOptions = allOptions.stream()
+                    .filter(OptionMetadata::isRequired)
+                    .collect(toImmutableList());
+            this.arguments = arguments;
+            this.metadataInjections = ImmutableList.copyOf(metadataInjections);
+            this.sortedGlobalOptions = ImmutableList.sortedCopyOf(OPTION_ORDER, this.globalOptions);
+            this.sortedGroupOptions = ImmutableList.sortedCopyOf(OPTION_ORDER, this.groupOptions);
+            this.sortedCommandOptions = ImmutableList.sortedCopyOf(OPTION_ORDER, this.commandOptions);
+        }
+    }
 }
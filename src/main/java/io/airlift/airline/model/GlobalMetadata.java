@@ -1,17 +1,27 @@
 package io.airlift.airline.model;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 
+import static io.airlift.airline.model.MetadataComparators.OPTION_ORDER;
+import static java.util.Objects.requireNonNull;
+
 public class GlobalMetadata
 {
     private final String name;
     private final String description;
-    private final List<OptionMetadata> options;
+    private final Supplier<List<OptionMetadata>> options;
+    @Nullable
+    private final LazyOptions lazyOptions;
     private final CommandMetadata defaultCommand;
     private final List<CommandMetadata> defaultGroupCommands;
     private final List<CommandGroupMetadata> commandGroups;
+    private final Supplier<List<OptionMetadata>> sortedOptions;
 
     public GlobalMetadata(String name,
             String description,
@@ -22,10 +32,53 @@ public class GlobalMetadata
     {
         this.name = name;
         this.description = description;
-        this.options = ImmutableList.copyOf(options);
+        this.options = Suppliers.ofInstance(ImmutableList.copyOf(options));
+        this.lazyOptions = null;
         this.defaultCommand = defaultCommand;
         this.defaultGroupCommands = ImmutableList.copyOf(defaultGroupCommands);
         this.commandGroups = ImmutableList.copyOf(commandGroups);
+        this.sortedOptions = Suppliers.ofInstance(ImmutableList.sortedCopyOf(OPTION_ORDER, this.options.get()));
+    }
+
+    /**
+     * Creates global metadata whose options are computed when first requested.
+     */
+    public GlobalMetadata(String name,
+            String description,
+            Supplier<List<OptionMetadata>> options,
+            CommandMetadata defaultCommand,
+            Iterable<CommandMetadata> defaultGroupCommands,
+            Iterable<CommandGroupMetadata> commandGroups)
+    {
+        requireNonNull(options, "options is null");
+        this.name = name;
+        this.description = description;
+        this.options = Suppliers.memoize(() -> ImmutableList.copyOf(options.get()));
+        this.lazyOptions = null;
+        this.defaultCommand = defaultCommand;
+        this.defaultGroupCommands = ImmutableList.copyOf(defaultGroupCommands);
+        this.commandGroups = ImmutableList.copyOf(commandGroups);
+        this.sortedOptions = Suppliers.memoize(() -> ImmutableList.sortedCopyOf(OPTION_ORDER, this.options.get()));
+    }
+
+    /**
+     * Creates global metadata whose options are resolved by name, see {@link #findOption}.
+     */
+    GlobalMetadata(String name,
+            String description,
+            LazyOptions options,
+            CommandMetadata defaultCommand,
+            Iterable<CommandMetadata> defaultGroupCommands,
+            Iterable<CommandGroupMetadata> commandGroups)
+    {
+        this.name = name;
+        this.description = description;
+        this.lazyOptions = requireNonNull(options, "options is null");
+        this.options = options::getOptions;
+        this.defaultCommand = defaultCommand;
+        this.defaultGroupCommands = ImmutableList.copyOf(defaultGroupCommands);
+        this.commandGroups = ImmutableList.copyOf(commandGroups);
+        this.sortedOptions = Suppliers.memoize(() -> ImmutableList.sortedCopyOf(OPTION_ORDER, this.options.get()));
     }
 
     public String getName()
@@ -40,7 +93,33 @@ public class GlobalMetadata
 
     public List<OptionMetadata> getOptions()
     {
-        return options;
+        return options.get();
+    }
+
+    /**
+     * Returns the option with the given name. When the options are resolved lazily, only
+     * the commands that may declare the name are read.
+     */
+    @Nullable
+    public OptionMetadata findOption(String name)
+    {
+        if (lazyOptions != null) {
+            return lazyOptions.findOption(name);
+        }
+        for (OptionMetadata option : getOptions()) {
+            if (option.getOptions().contains(name)) {
+                return option;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the options in the order of {@link MetadataComparators#OPTION_ORDER}.
+     */
+    public List<OptionMetadata> getSortedOptions()
+    {
+        return sortedOptions.get();
     }
 
     public CommandMetadata getDefaultCommand()
@@ -65,7 +144,7 @@ public class GlobalMetadata
         sb.append("GlobalMetadata");
         sb.append("{name='").append(name).append('\'');
         sb.append(", description='").append(description).append('\'');
-        sb.append(", options=").append(options);
+        sb.append(", options=").append(getOptions());
         sb.append(", defaultCommand=").append(defaultCommand);
         sb.append(", defaultGroupCommands=").append(defaultGroupCommands);
         sb.append(", commandGroups=").append(commandGroups);
@@ -0,0 +1,95 @@
+package io.airlift.airline.model;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.airline.CommandIndex;
+import io.airlift.airline.OptionType;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.airline.model.MetadataLoader.loadDeclaredOptions;
+import static io.airlift.airline.model.MetadataLoader.mergeOptionSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The global or group options of commands that are not loaded. An option is resolved
+ * when its name is first looked up, from the commands that may declare it: the commands
+ * whose {@link CommandIndex} entry lists the name, and the commands that are not indexed
+ * unless the name is reserved for a group or command.
+ */
+final class LazyOptions
+{
+    private final OptionType type;
+    private final List<CommandMetadata> commands;
+    private final Map<String, CommandIndex.Entry> index;
+    private final Set<String> reservedNames;
+    private final Map<String, Optional<OptionMetadata>> resolvedOptions = new ConcurrentHashMap<>();
+    private final Supplier<List<OptionMetadata>> options;
+
+    LazyOptions(OptionType type, Iterable<CommandMetadata> commands, Map<String, CommandIndex.Entry> index, Iterable<String> reservedNames)
+    {
+        checkArgument(type == OptionType.GLOBAL || type == OptionType.GROUP, "Unsupported option type %s", type);
+        this.type = type;
+        this.commands = ImmutableList.copyOf(requireNonNull(commands, "commands is null"));
+        this.index = ImmutableMap.copyOf(requireNonNull(index, "index is null"));
+        this.reservedNames = ImmutableSet.copyOf(requireNonNull(reservedNames, "reservedNames is null"));
+        this.options = Suppliers.memoize(() -> {
+            ImmutableList.Builder<OptionMetadata> options = ImmutableList.builder();
+            for (CommandMetadata command : this.commands) {
+                options.addAll(loadDeclaredOptions(command, type));
+            }
+            return mergeOptionSet(options.build());
+        });
+    }
+
+    /**
+     * Returns the merged options of all commands, which reads the declarations of every
+     * command.
+     */
+    List<OptionMetadata> getOptions()
+    {
+        return options.get();
+    }
+
+    @Nullable
+    OptionMetadata findOption(String name)
+    {
+        return resolvedOptions.computeIfAbsent(name, this::resolveOption).orElse(null);
+    }
+
+    private Optional<OptionMetadata> resolveOption(String name)
+    {
+        ImmutableList.Builder<OptionMetadata> declaredOptions = ImmutableList.builder();
+        for (CommandMetadata command : commands) {
+            if (mayDeclare(command, name)) {
+                for (OptionMetadata option : loadDeclaredOptions(command, type)) {
+                    if (option.getOptions().contains(name)) {
+                        declaredOptions.add(option);
+                    }
+                }
+            }
+        }
+        // options sharing the name are either equal or conflicting, so at most one remains
+        return mergeOptionSet(declaredOptions.build()).stream().findFirst();
+    }
+
+    private boolean mayDeclare(CommandMetadata command, String name)
+    {
+        CommandIndex.Entry entry = index.get(command.getTypeName());
+        if (entry == null) {
+            return !reservedNames.contains(name);
+        }
+        List<String> declaredNames = type == OptionType.GLOBAL ? entry.getGlobalOptions() : entry.getGroupOptions();
+        return declaredNames.contains(name);
+    }
+}
@@ -0,0 +1,39 @@
+package io.airlift.airline.model;
+
+import com.google.common.collect.ComparisonChain;
+
+import java.util.Comparator;
+
+/**
+ * The default order of options and commands in usage, by their precomputed sort keys.
+ */
+public final class MetadataComparators
+{
+    private MetadataComparators() {}
+
+    public static final Comparator<OptionMetadata> OPTION_ORDER = new Comparator<OptionMetadata>()
+    {
+        @Override
+        public int compare(OptionMetadata o1, OptionMetadata o2)
+        {
+            return ComparisonChain.start()
+                    .compare(o1.getSortKey(), o2.getSortKey())
+                    .compare(o2.getSortName(), o1.getSortName()) // print lower case letters before upper case
+                    .compare(System.identityHashCode(o1), System.identityHashCode(o2))
+                    .result();
+        }
+    };
+
+    public static final Comparator<CommandMetadata> COMMAND_ORDER = new Comparator<CommandMetadata>()
+    {
+        @Override
+        public int compare(CommandMetadata o1, CommandMetadata o2)
+        {
+            return ComparisonChain.start()
+                    .compare(o1.getSortKey(), o2.getSortKey())
+                    .compare(o2.getName(), o1.getName()) // print lower case letters before upper case
+                    .compare(System.identityHashCode(o1), System.identityHashCode(o2))
+                    .result();
+        }
+    };
+}
@@ -1,14 +1,20 @@
 package io.airlift.airline.model;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import io.airlift.airline.Accessor;
 import io.airlift.airline.Arguments;
 import io.airlift.airline.Command;
+import io.airlift.airline.CommandIndex;
+import io.airlift.airline.ConstructorBinding;
 import io.airlift.airline.Option;
 import io.airlift.airline.OptionType;
+import io.airlift.airline.ParseException;
 import io.airlift.airline.Suggester;
 
 import javax.inject.Inject;
@@ -18,14 +24,51 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.emptyToNull;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Streams.stream;
 import static java.util.Objects.requireNonNull;
 
 public final class MetadataLoader
 {
+    // metadata is immutable, so it is shared by every Cli and SingleCommand of the process;
+    // the values are held by the classes themselves and are dropped with their class loader
+    private static final ClassValue<CommandMetadata> COMMANDS = new ClassValue<CommandMetadata>()
+    {
+        @Override
+        protected CommandMetadata computeValue(Class<?> type)
+        {
+            return createCommand(type);
+        }
+    };
+
+    private static final ClassValue<InjectionMetadata> INJECTIONS = new ClassValue<InjectionMetadata>()
+    {
+        @Override
+        protected InjectionMetadata computeValue(Class<?> type)
+        {
+            InjectionMetadata injectionMetadata = new InjectionMetadata();
+            loadInjectionMetadata(type, injectionMetadata, ImmutableList.<Field>of());
+            injectionMetadata.compact();
+            return injectionMetadata;
+        }
+    };
+
+    private static final ClassValue<SuggesterMetadata> SUGGESTERS = new ClassValue<SuggesterMetadata>()
+    {
+        @Override
+        protected SuggesterMetadata computeValue(Class<?> type)
+        {
+            return new SuggesterMetadata(type.asSubclass(Suggester.class), loadInjectionMetadata(type).metadataInjections);
+        }
+    };
+
     private MetadataLoader() {}
 
     public static GlobalMetadata loadGlobal(String name,
@@ -50,6 +93,36 @@ public final class MetadataLoader
         return new GlobalMetadata(name, description, globalOptions, defaultCommand, defaultGroupCommands, groups);
     }
 
+    /**
+     * Same as {@link #loadGlobal} but the commands are not loaded. A global option is
+     * resolved when the parser first looks up its name: only the commands whose entry in
+     * the index lists the name are read, and the commands missing from the index are read
+     * unless the name is the name of a group or top level command.
+     */
+    public static GlobalMetadata loadGlobalLazily(String name,
+            String description,
+            CommandMetadata defaultCommand,
+            Iterable<CommandMetadata> defaultGroupCommands,
+            Iterable<CommandGroupMetadata> groups,
+            Iterable<CommandIndex.Entry> index)
+    {
+        ImmutableList.Builder<CommandMetadata> commands = ImmutableList.builder();
+        if (defaultCommand != null) {
+            commands.add(defaultCommand);
+        }
+        commands.addAll(defaultGroupCommands);
+        ImmutableList.Builder<String> reservedNames = ImmutableList.builder();
+        for (CommandMetadata command : defaultGroupCommands) {
+            reservedNames.add(command.getName());
+        }
+        for (CommandGroupMetadata group : groups) {
+            commands.addAll(group.getCommands());
+            reservedNames.add(group.getName());
+        }
+        LazyOptions globalOptions = new LazyOptions(OptionType.GLOBAL, commands.build(), indexByClassName(index), reservedNames.build());
+        return new GlobalMetadata(name, description, globalOptions, defaultCommand, defaultGroupCommands, groups);
+    }
+
     public static CommandGroupMetadata loadCommandGroup(String name, String description, CommandMetadata defaultCommand, Iterable<CommandMetadata> commands)
     {
         ImmutableList.Builder<OptionMetadata> groupOptionsBuilder = ImmutableList.builder();
@@ -63,6 +136,51 @@ public final class MetadataLoader
         return new CommandGroupMetadata(name, description, groupOptions, defaultCommand, commands);
     }
 
+    /**
+     * Same as {@link #loadCommandGroup} but the commands are not loaded. A group option
+     * is resolved when its name is first looked up, like the options of
+     * {@link #loadGlobalLazily}; the names of the commands of the group are reserved.
+     */
+    public static CommandGroupMetadata loadCommandGroupLazily(String name,
+            String description,
+            CommandMetadata defaultCommand,
+            Iterable<CommandMetadata> commands,
+            Iterable<CommandIndex.Entry> index)
+    {
+        ImmutableList.Builder<CommandMetadata> groupCommands = ImmutableList.builder();
+        if (defaultCommand != null) {
+            groupCommands.add(defaultCommand);
+        }
+        groupCommands.addAll(commands);
+        List<String> reservedNames = stream(commands)
+                .map(CommandMetadata::getName)
+                .collect(toImmutableList());
+        LazyOptions groupOptions = new LazyOptions(OptionType.GROUP, groupCommands.build(), indexByClassName(index), reservedNames);
+        return new CommandGroupMetadata(name, description, groupOptions, defaultCommand, commands);
+    }
+
+    private static Map<String, CommandIndex.Entry> indexByClassName(Iterable<CommandIndex.Entry> index)
+    {
+        Map<String, CommandIndex.Entry> entries = new HashMap<>();
+        for (CommandIndex.Entry entry : index) {
+            entries.put(entry.getClassName(), entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the global or group options declared by the command. A command that is not
+     * loaded stays unloaded, as only the option declarations of its class are read.
+     */
+    static List<OptionMetadata> loadDeclaredOptions(CommandMetadata command, OptionType type)
+    {
+        if (command.isLoaded()) {
+            return type == OptionType.GLOBAL ? command.getGlobalOptions() : command.getGroupOptions();
+        }
+        InjectionMetadata injectionMetadata = loadInjectionMetadata(command.getType());
+        return type == OptionType.GLOBAL ? injectionMetadata.globalOptions : injectionMetadata.groupOptions;
+    }
+
     public static <T> ImmutableList<CommandMetadata> loadCommands(Iterable<Class<? extends T>> defaultCommands)
     {
         return stream(defaultCommands)
@@ -70,7 +188,79 @@ public final class MetadataLoader
                 .collect(toImmutableList());
     }
 
-    public static CommandMetadata loadCommand(Class<?> commandType)
+    /**
+     * Same as {@link #loadCommands(Iterable)}, but the commands are loaded concurrently by
+     * the executor. The result is in the order of the command types, and when several
+     * commands fail to load, the failure of the first one in that order is thrown.
+     */
+    public static <T> ImmutableList<CommandMetadata> loadCommands(Iterable<Class<? extends T>> commandTypes, Executor executor)
+    {
+        requireNonNull(executor, "executor is null");
+        List<CompletableFuture<CommandMetadata>> futures = stream(commandTypes)
+                .map(commandType -> CompletableFuture.supplyAsync(() -> loadCommand(commandType), executor))
+                .collect(toImmutableList());
+
+        ImmutableList.Builder<CommandMetadata> commands = ImmutableList.builder();
+        for (CompletableFuture<CommandMetadata> future : futures) {
+            try {
+                commands.add(future.join());
+            }
+            catch (CompletionException e) {
+                throwIfUnchecked(e.getCause());
+                throw e;
+            }
+        }
+        return commands.build();
+    }
+
+    /**
+     * Reads the name, description and hidden flag of the command from its annotation and
+     * defers scanning its fields until the options or arguments are first requested.
+     */
+    public static CommandMetadata loadCommandLazily(Class<?> commandType)
+    {
+        Command command = getCommandAnnotation(commandType);
+        return new CommandMetadata(
+                command.name(),
+                command.description().isEmpty() ? null : command.description(),
+                command.hidden(),
+                commandType,
+                () -> loadCommand(commandType));
+    }
+
+    public static <T> ImmutableList<CommandMetadata> loadCommandsLazily(Iterable<Class<? extends T>> commandTypes)
+    {
+        return stream(commandTypes)
+                .map(MetadataLoader::loadCommandLazily)
+                .collect(toImmutableList());
+    }
+
+    /**
+     * Creates the metadata of a command from its {@link CommandIndex} entry. The command
+     * class is loaded when the options or arguments are first requested.
+     */
+    public static CommandMetadata loadIndexedCommand(CommandIndex.Entry entry, ClassLoader classLoader)
+    {
+        requireNonNull(entry, "entry is null");
+        requireNonNull(classLoader, "classLoader is null");
+        Supplier<Class<?>> type = Suppliers.memoize(() -> {
+            try {
+                return Class.forName(entry.getClassName(), false, classLoader);
+            }
+            catch (ClassNotFoundException e) {
+                throw new ParseException(e, "Unable to load command %s", entry.getClassName());
+            }
+        });
+        return new CommandMetadata(
+                entry.getName(),
+                entry.getDescription(),
+                entry.isHidden(),
+                entry.getClassName(),
+                type,
+                () -> loadCommand(type.get()));
+    }
+
+    private static Command getCommandAnnotation(Class<?> commandType)
     {
         requireNonNull(commandType, "commandType is null");
         Command command = null;
@@ -78,12 +268,39 @@ public final class MetadataLoader
             command = cls.getAnnotation(Command.class);
         }
         checkArgument(command != null, "Command %s is not annotated with @Command", commandType.getName());
+        return command;
+    }
+
+    /**
+     * Returns the metadata of the command. The metadata is loaded once per class and
+     * shared by all callers.
+     */
+    public static CommandMetadata loadCommand(Class<?> commandType)
+    {
+        requireNonNull(commandType, "commandType is null");
+        return COMMANDS.get(commandType);
+    }
+
+    private static CommandMetadata createCommand(Class<?> commandType)
+    {
+        Command command = getCommandAnnotation(commandType);
         String name = command.name();
         String description = command.description().isEmpty() ? null : command.description();
         boolean hidden = command.hidden();
 
         InjectionMetadata injectionMetadata = loadInjectionMetadata(commandType);
 
+        ConstructorBinding constructorBinding = ConstructorBinding.forType(commandType);
+        if (constructorBinding != null) {
+            for (OptionMetadata option : Iterables.concat(injectionMetadata.globalOptions, injectionMetadata.groupOptions, injectionMetadata.commandOptions)) {
+                constructorBinding.checkAccessors(option.getAccessors());
+            }
+            for (ArgumentsMetadata arguments : injectionMetadata.arguments) {
+                constructorBinding.checkAccessors(arguments.getAccessors());
+            }
+            constructorBinding.checkAccessors(injectionMetadata.metadataInjections);
+        }
+
         CommandMetadata commandMetadata = new CommandMetadata(
                 name,
                 description,
@@ -92,23 +309,22 @@ public final class MetadataLoader
                 injectionMetadata.commandOptions,
                 Iterables.getFirst(injectionMetadata.arguments, null),
                 injectionMetadata.metadataInjections,
-                commandType);
+                commandType,
+                constructorBinding);
 
         return commandMetadata;
     }
 
     public static SuggesterMetadata loadSuggester(Class<? extends Suggester> suggesterClass)
     {
-        InjectionMetadata injectionMetadata = loadInjectionMetadata(suggesterClass);
-        return new SuggesterMetadata(suggesterClass, injectionMetadata.metadataInjections);
+        requireNonNull(suggesterClass, "suggesterClass is null");
+        return SUGGESTERS.get(suggesterClass);
     }
 
     public static InjectionMetadata loadInjectionMetadata(Class<?> type)
     {
-        InjectionMetadata injectionMetadata = new InjectionMetadata();
-        loadInjectionMetadata(type, injectionMetadata, ImmutableList.<Field>of());
-        injectionMetadata.compact();
-        return injectionMetadata;
+        requireNonNull(type, "type is null");
+        return INJECTIONS.get(type);
     }
 
     public static void loadInjectionMetadata(Class<?> type, InjectionMetadata injectionMetadata, List<Field> fields)
@@ -167,7 +383,11 @@ public final class MetadataLoader
                         allowedValues = null;
                     }
 
-                    OptionMetadata optionMetadata = new OptionMetadata(optionType, options, name, description, arity, required, hidden, allowedValues, path);
+                    boolean ignoreCase = optionAnnotation.ignoreCase();
+                    String environmentVariable = emptyToNull(optionAnnotation.environmentVariable());
+                    String configKey = emptyToNull(optionAnnotation.configKey());
+
+                    OptionMetadata optionMetadata = new OptionMetadata(optionType, options, name, description, arity, required, hidden, allowedValues, ignoreCase, environmentVariable, configKey, ImmutableSet.of(new Accessor(path)));
                     switch (optionType) {
                         case GLOBAL:
                             injectionMetadata.globalOptions.add(optionMetadata);
@@ -201,7 +421,7 @@ public final class MetadataLoader
         }
     }
 
-    private static List<OptionMetadata> mergeOptionSet(List<OptionMetadata> options)
+    static List<OptionMetadata> mergeOptionSet(List<OptionMetadata> options)
     {
         ListMultimap<OptionMetadata, OptionMetadata> metadataIndex = ArrayListMultimap.create();
         for (OptionMetadata option : options) {
@@ -250,6 +470,10 @@ public final class MetadataLoader
             if (arguments.size() > 1) {
                 arguments = ImmutableList.of(new ArgumentsMetadata(arguments));
             }
+            else {
+                arguments = ImmutableList.copyOf(arguments);
+            }
+            metadataInjections = ImmutableList.copyOf(metadataInjections);
         }
     }
 }
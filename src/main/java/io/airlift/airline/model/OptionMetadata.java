@@ -1,15 +1,22 @@
 package io.airlift.airline.model;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import io.airlift.airline.Accessor;
 import io.airlift.airline.OptionType;
 
+import javax.annotation.Nullable;
+
 import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Locale.ENGLISH;
 import static java.util.Objects.requireNonNull;
 
 public class OptionMetadata
@@ -22,7 +29,13 @@ public class OptionMetadata
     private final boolean required;
     private final boolean hidden;
     private final Set<String> allowedValues;
+    private final boolean ignoreCase;
+    private final String environmentVariable;
+    private final String configKey;
+    private final Map<String, String> allowedValuesLookup;
     private final Set<Accessor> accessors;
+    private final String sortName;
+    private final String sortKey;
 
     public OptionMetadata(OptionType optionType,
             Iterable<String> options,
@@ -33,13 +46,57 @@ public class OptionMetadata
             boolean hidden,
             Iterable<String> allowedValues,
             Iterable<Field> path)
+    {
+        this(optionType, options, title, description, arity, required, hidden, allowedValues, false, path);
+    }
+
+    public OptionMetadata(OptionType optionType,
+            Iterable<String> options,
+            String title,
+            String description,
+            int arity,
+            boolean required,
+            boolean hidden,
+            Iterable<String> allowedValues,
+            boolean ignoreCase,
+            Iterable<Field> path)
+    {
+        this(optionType, options, title, description, arity, required, hidden, allowedValues, ignoreCase, ImmutableSet.of(new Accessor(requireNonNull(path, "path is null"))));
+    }
+
+    public OptionMetadata(OptionType optionType,
+            Iterable<String> options,
+            String title,
+            String description,
+            int arity,
+            boolean required,
+            boolean hidden,
+            Iterable<String> allowedValues,
+            boolean ignoreCase,
+            Set<Accessor> accessors)
+    {
+        this(optionType, options, title, description, arity, required, hidden, allowedValues, ignoreCase, null, null, accessors);
+    }
+
+    public OptionMetadata(OptionType optionType,
+            Iterable<String> options,
+            String title,
+            String description,
+            int arity,
+            boolean required,
+            boolean hidden,
+            Iterable<String> allowedValues,
+            boolean ignoreCase,
+            @Nullable String environmentVariable,
+            @Nullable String configKey,
+            Set<Accessor> accessors)
     {
         requireNonNull(optionType, "optionType is null");
         requireNonNull(options, "options is null");
         checkArgument(!Iterables.isEmpty(options), "options is empty");
         requireNonNull(title, "title is null");
-        requireNonNull(path, "path is null");
-        checkArgument(!Iterables.isEmpty(path), "path is empty");
+        requireNonNull(accessors, "accessors is null");
+        checkArgument(!accessors.isEmpty(), "accessors is empty");
 
         this.optionType = optionType;
         this.options = ImmutableSet.copyOf(options);
@@ -55,8 +112,14 @@ public class OptionMetadata
         else {
             this.allowedValues = null;
         }
+        this.ignoreCase = ignoreCase;
+        this.allowedValuesLookup = createAllowedValuesLookup(this.allowedValues, ignoreCase);
+        this.environmentVariable = environmentVariable;
+        this.configKey = configKey;
 
-        this.accessors = ImmutableSet.of(new Accessor(path));
+        this.accessors = ImmutableSet.copyOf(accessors);
+        this.sortName = createSortName(this.options);
+        this.sortKey = sortName.toLowerCase(ENGLISH);
     }
 
     public OptionMetadata(Iterable<OptionMetadata> options)
@@ -79,6 +142,10 @@ public class OptionMetadata
         else {
             this.allowedValues = null;
         }
+        this.ignoreCase = option.ignoreCase;
+        this.allowedValuesLookup = option.allowedValuesLookup;
+        this.environmentVariable = option.environmentVariable;
+        this.configKey = option.configKey;
 
         Set<Accessor> accessors = new HashSet<>();
         for (OptionMetadata other : options) {
@@ -88,6 +155,8 @@ public class OptionMetadata
             accessors.addAll(other.getAccessors());
         }
         this.accessors = ImmutableSet.copyOf(accessors);
+        this.sortName = option.sortName;
+        this.sortKey = option.sortKey;
     }
 
     public OptionType getOptionType()
@@ -145,6 +214,90 @@ public class OptionMetadata
         return allowedValues;
     }
 
+    public boolean isIgnoreCase()
+    {
+        return ignoreCase;
+    }
+
+    /**
+     * Returns the environment variable providing a default value, or null.
+     */
+    @Nullable
+    public String getEnvironmentVariable()
+    {
+        return environmentVariable;
+    }
+
+    /**
+     * Returns the configuration file key providing a default value, or null.
+     */
+    @Nullable
+    public String getConfigKey()
+    {
+        return configKey;
+    }
+
+    /**
+     * Returns whether a value for this option can be provided by the environment or a
+     * configuration file when it is not given on the command line.
+     */
+    public boolean hasDefaultSource()
+    {
+        return environmentVariable != null || configKey != null;
+    }
+
+    /**
+     * Returns the allowed value matching the specified value, or null if the value is
+     * not allowed. When the allowed values are matched ignoring case, the value is
+     * returned as declared. Options without allowed values accept any value.
+     */
+    public String findAllowedValue(String value)
+    {
+        if (allowedValuesLookup == null) {
+            return value;
+        }
+        return allowedValuesLookup.get(ignoreCase ? value.toLowerCase(ENGLISH) : value);
+    }
+
+    /**
+     * Returns the first option name without its leading dashes.
+     */
+    public String getSortName()
+    {
+        return sortName;
+    }
+
+    /**
+     * Returns the lower case sort name, which is the primary key of the default option order.
+     */
+    public String getSortKey()
+    {
+        return sortKey;
+    }
+
+    private static String createSortName(Set<String> options)
+    {
+        String option = options.iterator().next();
+        int start = 0;
+        while (start < option.length() && option.charAt(start) == '-') {
+            start++;
+        }
+        return option.substring(start);
+    }
+
+    private static Map<String, String> createAllowedValuesLookup(Set<String> allowedValues, boolean ignoreCase)
+    {
+        if (allowedValues == null) {
+            return null;
+        }
+
+        Map<String, String> lookup = new HashMap<>();
+        for (String allowedValue : allowedValues) {
+            lookup.putIfAbsent(ignoreCase ? allowedValue.toLowerCase(ENGLISH) : allowedValue, allowedValue);
+        }
+        return ImmutableMap.copyOf(lookup);
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -169,6 +322,15 @@ public class OptionMetadata
         if (allowedValues != null ? !allowedValues.equals(that.allowedValues) : that.allowedValues != null) {
             return false;
         }
+        if (ignoreCase != that.ignoreCase) {
+            return false;
+        }
+        if (!Objects.equals(environmentVariable, that.environmentVariable)) {
+            return false;
+        }
+        if (!Objects.equals(configKey, that.configKey)) {
+            return false;
+        }
         if (description != null ? !description.equals(that.description) : that.description != null) {
             return false;
         }
@@ -196,6 +358,9 @@ public class OptionMetadata
         result = 31 * result + (required ? 1 : 0);
         result = 31 * result + (hidden ? 1 : 0);
         result = 31 * result + (allowedValues != null ? allowedValues.hashCode() : 0);
+        result = 31 * result + (ignoreCase ? 1 : 0);
+        result = 31 * result + Objects.hashCode(environmentVariable);
+        result = 31 * result + Objects.hashCode(configKey);
         return result;
     }
 
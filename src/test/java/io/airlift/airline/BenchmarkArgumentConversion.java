@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Parses a command line with many file names and with many ids that carry a checksum,
+ * converting the arguments sequentially and in parallel on a {@link ForkJoinPool}.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkArgumentConversion
+{
+    @Param({"1000", "100000"})
+    private int count;
+
+    private final ForkJoinPool pool = new ForkJoinPool();
+
+    private final Cli<Object> sequential = Cli.builder("convert")
+            .withCommands(Files.class, Ids.class)
+            .build();
+
+    private final Cli<Object> parallel = Cli.builder("convert")
+            .withCommands(Files.class, Ids.class)
+            .withParallelArgumentConversion(pool)
+            .build();
+
+    private List<String> files;
+    private List<String> ids;
+
+    @Setup
+    public void setup()
+    {
+        files = new ArrayList<>();
+        files.add("files");
+        ids = new ArrayList<>();
+        ids.add("ids");
+        for (int i = 0; i < count; i++) {
+            files.add("/var/lib/data/./partitions/../partitions/" + i + "/part-" + i + ".dat");
+            ids.add(ChecksumId.create("object-" + i));
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Object sequentialFiles()
+    {
+        return sequential.parse(files);
+    }
+
+    @Benchmark
+    public Object parallelFiles()
+    {
+        return parallel.parse(files);
+    }
+
+    @Benchmark
+    public Object sequentialIds()
+    {
+        return sequential.parse(ids);
+    }
+
+    @Benchmark
+    public Object parallelIds()
+    {
+        return parallel.parse(ids);
+    }
+
+    @Command(name = "files")
+    public static class Files
+    {
+        @Arguments
+        public List<NormalizedPath> files;
+    }
+
+    @Command(name = "ids")
+    public static class Ids
+    {
+        @Arguments
+        public List<ChecksumId> ids;
+    }
+
+    public static class NormalizedPath
+    {
+        private final Path path;
+
+        public NormalizedPath(String path)
+        {
+            this.path = Paths.get(path).toAbsolutePath().normalize();
+        }
+    }
+
+    public static class ChecksumId
+    {
+        private final String name;
+
+        public ChecksumId(String value)
+        {
+            int separator = value.lastIndexOf(':');
+            if (separator < 0 || !value.substring(separator + 1).equals(checksum(value.substring(0, separator)))) {
+                throw new IllegalArgumentException("Invalid checksum: " + value);
+            }
+            this.name = value.substring(0, separator);
+        }
+
+        static String create(String name)
+        {
+            return name + ":" + checksum(name);
+        }
+
+        private static String checksum(String name)
+        {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(name.getBytes(UTF_8));
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkArgumentConversion.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
+import io.airlift.airline.TestDocumentationGenerator.GitCliSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Starts a JVM running the git example, with and without a class data sharing archive
+ * created by a training run. Only classes loaded from jar files are archived, so the
+ * class directories on the class path are packaged into jars first. Requires JDK 13
+ * or later.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+public class BenchmarkClassDataSharing
+{
+    @Param({"false", "true"})
+    private boolean archive;
+
+    private Path directory;
+    private List<String> command;
+
+    @Setup
+    public void setup()
+            throws IOException, InterruptedException
+    {
+        directory = Files.createTempDirectory("airline-cds");
+
+        List<String> classPath = new ArrayList<>();
+        for (String entry : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(System.getProperty("java.class.path"))) {
+            Path path = Paths.get(entry);
+            if (Files.isDirectory(path)) {
+                Path jar = directory.resolve("classes-" + classPath.size() + ".jar");
+                createJar(path, jar);
+                path = jar;
+            }
+            classPath.add(path.toString());
+        }
+        String joinedClassPath = String.join(File.pathSeparator, classPath);
+
+        ImmutableList.Builder<String> command = ImmutableList.builder();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (archive) {
+            Path file = directory.resolve("git.jsa");
+            ClassDataSharing.createArchive(file, joinedClassPath, GitCliSupplier.class.getName());
+            command.addAll(ClassDataSharing.launchOptions(file));
+        }
+        command.add("-cp", joinedClassPath, Git.class.getName(), "-v", "remote", "add", "origin");
+        this.command = command.build();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Benchmark
+    public int startup()
+            throws IOException, InterruptedException
+    {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("output.txt").toFile())
+                .start();
+        return process.waitFor();
+    }
+
+    private static void createJar(Path classes, Path jar)
+            throws IOException
+    {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(classes)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(toList());
+        }
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out)) {
+            for (Path file : files) {
+                String name = Streams.stream(classes.relativize(file)).map(Path::toString).collect(joining("/"));
+                jarOut.putNextEntry(new JarEntry(name));
+                Files.copy(file, jarOut);
+                jarOut.closeEntry();
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkClassDataSharing.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
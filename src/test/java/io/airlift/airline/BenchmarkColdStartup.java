@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the git example CLI and parses a command line once per JVM, so every
+ * measurement includes loading and initializing the classes involved, as a command
+ * line tool does on every invocation. The snapshot is written by a separate process,
+ * so that the measured JVM has not scanned the command classes before.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(20)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class BenchmarkColdStartup
+{
+    private Path file;
+    private URL snapshot;
+
+    @Setup
+    public void setup()
+            throws IOException, InterruptedException
+    {
+        file = Files.createTempFile("airline", ".snapshot");
+        Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp",
+                System.getProperty("java.class.path"),
+                WriteSnapshot.class.getName(),
+                file.toString())
+                .inheritIO()
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("Unable to write snapshot " + file);
+        }
+        snapshot = file.toUri().toURL();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Runnable reflective()
+    {
+        return Git.createCli().parse("-v", "remote", "add", "origin");
+    }
+
+    @Benchmark
+    public Runnable snapshot()
+    {
+        return Git.createCliBuilder()
+                .withMetadataSnapshot(snapshot)
+                .build()
+                .parse("-v", "remote", "add", "origin");
+    }
+
+    @Benchmark
+    public Runnable unverifiedSnapshot()
+    {
+        return Git.createCliBuilder()
+                .withMetadataSnapshot(snapshot)
+                .withMetadataSnapshotVerification(false)
+                .build()
+                .parse("-v", "remote", "add", "origin");
+    }
+
+    public static final class WriteSnapshot
+    {
+        private WriteSnapshot() {}
+
+        public static void main(String[] args)
+                throws IOException
+        {
+            Files.write(Paths.get(args[0]), MetadataSnapshot.toByteArray(Git.createCli().getMetadata()));
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkColdStartup.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.io.CharStreams;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the help of every command of the git example CLI. Run with the GC profiler
+ * to see the allocation rate per rendering.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkHelp
+{
+    private final GlobalMetadata global = Git.createCli().getMetadata();
+    private final StringBuilder builder = new StringBuilder();
+    private final Writer nullWriter = CharStreams.nullWriter();
+
+    @Benchmark
+    public int renderToStringBuilder()
+    {
+        builder.setLength(0);
+        renderAll(builder);
+        return builder.length();
+    }
+
+    @Benchmark
+    public Writer renderToWriter()
+    {
+        renderAll(nullWriter);
+        return nullWriter;
+    }
+
+    private void renderAll(Appendable out)
+    {
+        new GlobalUsageSummary().usage(global, out);
+        new GlobalUsage().usage(global, out);
+        for (CommandMetadata command : global.getDefaultGroupCommands()) {
+            new CommandUsage().usage(global.getName(), null, command.getName(), command, out);
+        }
+        for (CommandGroupMetadata group : global.getCommandGroups()) {
+            new CommandGroupUsage().usage(global, group, out);
+            for (CommandMetadata command : group.getCommands()) {
+                new CommandUsage().usage(global.getName(), group.getName(), command.getName(), command, out);
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkHelp.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.MetadataLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the metadata of the test commands, copied into fresh class loaders for every
+ * invocation so the per class metadata cache does not apply, sequentially and with
+ * parallel loading at different levels of parallelism.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkMetadataLoading
+{
+    private static final List<String> COMMANDS = ImmutableList.of(
+            "io.airlift.airline.args.Args1",
+            "io.airlift.airline.args.Args2",
+            "io.airlift.airline.args.Args3",
+            "io.airlift.airline.args.ArgsArityString",
+            "io.airlift.airline.args.ArgsBooleanArity",
+            "io.airlift.airline.args.ArgsEnum",
+            "io.airlift.airline.args.ArgsInherited",
+            "io.airlift.airline.args.ArgsPrivate",
+            "io.airlift.airline.args.ArgsRequired",
+            "io.airlift.airline.args.ArgsSingleChar",
+            "io.airlift.airline.args.CommandLineArgs",
+            "io.airlift.airline.args.OptionsAllowedValues",
+            "io.airlift.airline.args.OptionsRequired",
+            "io.airlift.airline.command.CommandAdd",
+            "io.airlift.airline.command.CommandCommit");
+
+    private static final int COPIES = 32;
+
+    @Param({"0", "1", "2", "4", "8"})
+    private int parallelism;
+
+    private ForkJoinPool pool;
+    private List<Class<?>> commandTypes;
+
+    @Setup
+    public void setup()
+    {
+        if (parallelism > 0) {
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void defineClasses()
+            throws ClassNotFoundException
+    {
+        commandTypes = new ArrayList<>();
+        for (int i = 0; i < COPIES; i++) {
+            ClassLoader classLoader = new IsolatedClassLoader();
+            for (String command : COMMANDS) {
+                commandTypes.add(Class.forName(command, false, classLoader));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<CommandMetadata> loadCommands()
+    {
+        if (pool == null) {
+            return MetadataLoader.loadCommands(commandTypes);
+        }
+        return MetadataLoader.loadCommands(commandTypes, pool);
+    }
+
+    /**
+     * Defines its own copy of the test commands and delegates everything else.
+     */
+    private static class IsolatedClassLoader
+            extends ClassLoader
+    {
+        public IsolatedClassLoader()
+        {
+            super(BenchmarkMetadataLoading.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException
+        {
+            if (!name.startsWith("io.airlift.airline.args.") && !name.startsWith("io.airlift.airline.command.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        byte[] bytes = ByteStreams.toByteArray(in);
+                        type = defineClass(name, bytes, 0, bytes.length);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return type;
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkMetadataLoading.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a command line into a new command instance for every invocation and into an
+ * instance recycled by {@link PooledCommandFactory}. The command has a delegate and
+ * collections with defaults, which a new instance allocates again. Run with
+ * {@code -prof gc} to compare the allocation rate.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkPooledCommandFactory
+{
+    private final Cli<Object> cli = Cli.builder("server")
+            .withCommand(Query.class)
+            .build();
+    private final CommandFactory<Object> defaultFactory = new DefaultCommandFactory<>();
+    private final PooledCommandFactory<Object> pooledFactory = new PooledCommandFactory<>();
+
+    @Benchmark
+    public Object create()
+    {
+        return cli.parse(defaultFactory, "query", "--user", "alice", "-c", "a", "-c", "b", "table");
+    }
+
+    @Benchmark
+    public Object pooled()
+    {
+        Object command = cli.parse(pooledFactory, "query", "--user", "alice", "-c", "a", "-c", "b", "table");
+        pooledFactory.release(command);
+        return command;
+    }
+
+    @Command(name = "query")
+    public static class Query
+    {
+        @Inject
+        public Session session = new Session();
+
+        @Option(name = "-c")
+        public List<String> columns = new ArrayList<>();
+
+        @Option(name = "--limit")
+        public int limit = 100;
+
+        @Arguments
+        public List<String> tables = new ArrayList<>();
+    }
+
+    public static class Session
+    {
+        @Option(name = "--user")
+        public String user;
+
+        @Option(name = "--catalog")
+        public String catalog = "default";
+
+        @Option(name = "--property")
+        public List<String> properties = new ArrayList<>();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPooledCommandFactory.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
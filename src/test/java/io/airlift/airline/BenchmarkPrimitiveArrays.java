@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a command line with many numeric ids, given as a repeated option and as
+ * arguments, into {@code List<Long>} and {@code long[]} fields.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkPrimitiveArrays
+{
+    @Param({"1000", "100000"})
+    private int count;
+
+    private final Cli<Object> cli = Cli.builder("ids")
+            .withCommand(BoxedIds.class)
+            .withCommand(PrimitiveIds.class)
+            .build();
+
+    private List<String> boxedOptions;
+    private List<String> primitiveOptions;
+    private List<String> boxedArguments;
+    private List<String> primitiveArguments;
+
+    @Setup
+    public void setup()
+    {
+        boxedOptions = commandLine("boxed", "-p");
+        primitiveOptions = commandLine("primitive", "-p");
+        boxedArguments = commandLine("boxed", null);
+        primitiveArguments = commandLine("primitive", null);
+    }
+
+    private List<String> commandLine(String command, String option)
+    {
+        List<String> args = new ArrayList<>();
+        args.add(command);
+        for (int i = 0; i < count; i++) {
+            if (option != null) {
+                args.add(option);
+            }
+            args.add(String.valueOf(1_000_000 + i));
+        }
+        return args;
+    }
+
+    @Benchmark
+    public Object boxedOptions()
+    {
+        return cli.parse(boxedOptions);
+    }
+
+    @Benchmark
+    public Object primitiveOptions()
+    {
+        return cli.parse(primitiveOptions);
+    }
+
+    @Benchmark
+    public Object boxedArguments()
+    {
+        return cli.parse(boxedArguments);
+    }
+
+    @Benchmark
+    public Object primitiveArguments()
+    {
+        return cli.parse(primitiveArguments);
+    }
+
+    @Command(name = "boxed")
+    public static class BoxedIds
+    {
+        @Option(name = "-p")
+        public List<Long> optionIds;
+
+        @Arguments
+        public List<Long> ids;
+    }
+
+    @Command(name = "primitive")
+    public static class PrimitiveIds
+    {
+        @Option(name = "-p")
+        public long[] optionIds;
+
+        @Arguments
+        public long[] ids;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPrimitiveArrays.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import io.airlift.airline.model.GlobalMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the git example CLI by scanning the command classes, lazily and from a
+ * metadata snapshot, and parses a command line with the result. The metadata of each
+ * command class is cached after the first iteration, so the reflective case measures
+ * building the CLI from cached command metadata.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkStartup
+{
+    private Path file;
+    private URL snapshot;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        file = Files.createTempFile("airline", ".snapshot");
+        Files.write(file, MetadataSnapshot.toByteArray(Git.createCli().getMetadata()));
+        snapshot = file.toUri().toURL();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Runnable reflective()
+    {
+        return Git.createCli().parse("-v", "remote", "add", "origin");
+    }
+
+    @Benchmark
+    public Runnable lazy()
+    {
+        return Git.createCliBuilder()
+                .withLazyMetadata(true)
+                .build()
+                .parse("remote", "add", "origin");
+    }
+
+    @Benchmark
+    public Runnable snapshot()
+    {
+        return Git.createCliBuilder()
+                .withMetadataSnapshot(snapshot)
+                .build()
+                .parse("-v", "remote", "add", "origin");
+    }
+
+    @Benchmark
+    public GlobalMetadata snapshotWithoutVerification()
+            throws IOException
+    {
+        return MetadataSnapshot.load(snapshot, getClass().getClassLoader()).getMetadata();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkStartup.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
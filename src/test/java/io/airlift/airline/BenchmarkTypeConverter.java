@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts durations, data sizes and suffixed integers with the built-in converters,
+ * and with value types that parse them with a regular expression in a
+ * {@code fromString} method found by reflection, as commands had to before.
+ * Enum constants are converted through the lookup table, and through a
+ * {@code fromString} method that the reflective path still has to find.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkTypeConverter
+{
+    private final TypeConverter converter = TypeConverter.newInstance();
+
+    @Benchmark
+    public Object builtInDuration()
+    {
+        return converter.convert("timeout", Duration.class, "1.5h");
+    }
+
+    @Benchmark
+    public Object reflectiveDuration()
+    {
+        return converter.convert("timeout", RegexDuration.class, "1.5h");
+    }
+
+    @Benchmark
+    public Object builtInDataSize()
+    {
+        return converter.convert("size", DataSize.class, "512MB");
+    }
+
+    @Benchmark
+    public Object reflectiveDataSize()
+    {
+        return converter.convert("size", RegexDataSize.class, "512MB");
+    }
+
+    @Benchmark
+    public Object builtInSuffixedInteger()
+    {
+        return converter.convert("count", Count.class, "10k");
+    }
+
+    @Benchmark
+    public Object reflectiveSuffixedInteger()
+    {
+        return converter.convert("count", RegexCount.class, "10k");
+    }
+
+    @Benchmark
+    public Object lookupEnum()
+    {
+        return converter.convert("level", Level.class, "warn", true);
+    }
+
+    @Benchmark
+    public Object reflectiveEnum()
+    {
+        return converter.convert("level", ReflectiveLevel.class, "warn");
+    }
+
+    public enum Level
+    {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    public enum ReflectiveLevel
+    {
+        DEBUG, INFO, WARN, ERROR;
+
+        public static ReflectiveLevel fromString(String value)
+        {
+            for (ReflectiveLevel level : values()) {
+                if (level.name().equalsIgnoreCase(value)) {
+                    return level;
+                }
+            }
+            throw new IllegalArgumentException("Unknown level: " + value);
+        }
+    }
+
+    public static class RegexDuration
+    {
+        private static final Pattern PATTERN = Pattern.compile("^\\s*(\\d+(?:\\.\\d+)?)\\s*([a-zA-Z]+)\\s*$");
+
+        private final Duration duration;
+
+        private RegexDuration(Duration duration)
+        {
+            this.duration = duration;
+        }
+
+        public static RegexDuration fromString(String value)
+        {
+            Matcher matcher = PATTERN.matcher(value);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid duration: " + value);
+            }
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "ms":
+                    return new RegexDuration(Duration.ofNanos((long) (amount * 1_000_000)));
+                case "s":
+                    return new RegexDuration(Duration.ofNanos((long) (amount * 1_000_000_000)));
+                case "m":
+                    return new RegexDuration(Duration.ofNanos((long) (amount * 60_000_000_000L)));
+                case "h":
+                    return new RegexDuration(Duration.ofNanos((long) (amount * 3_600_000_000_000L)));
+                default:
+                    throw new IllegalArgumentException("Unknown unit: " + matcher.group(2));
+            }
+        }
+    }
+
+    public static class RegexDataSize
+    {
+        private static final Pattern PATTERN = Pattern.compile("^\\s*(\\d+(?:\\.\\d+)?)\\s*([a-zA-Z]+)\\s*$");
+
+        private final long bytes;
+
+        private RegexDataSize(long bytes)
+        {
+            this.bytes = bytes;
+        }
+
+        public static RegexDataSize fromString(String value)
+        {
+            Matcher matcher = PATTERN.matcher(value);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid data size: " + value);
+            }
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "B":
+                    return new RegexDataSize((long) amount);
+                case "kB":
+                    return new RegexDataSize((long) (amount * (1L << 10)));
+                case "MB":
+                    return new RegexDataSize((long) (amount * (1L << 20)));
+                case "GB":
+                    return new RegexDataSize((long) (amount * (1L << 30)));
+                default:
+                    throw new IllegalArgumentException("Unknown unit: " + matcher.group(2));
+            }
+        }
+    }
+
+    public static class RegexCount
+    {
+        private static final Pattern PATTERN = Pattern.compile("^(-?\\d+)([kMG]?)$");
+
+        private final long count;
+
+        private RegexCount(long count)
+        {
+            this.count = count;
+        }
+
+        public static RegexCount fromString(String value)
+        {
+            Matcher matcher = PATTERN.matcher(value);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid count: " + value);
+            }
+            long count = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "k":
+                    return new RegexCount(count * 1_000);
+                case "M":
+                    return new RegexCount(count * 1_000_000);
+                case "G":
+                    return new RegexCount(count * 1_000_000_000);
+                default:
+                    return new RegexCount(count);
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkTypeConverter.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
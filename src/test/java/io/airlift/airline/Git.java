@@ -11,6 +11,16 @@ public final class Git
     private Git() {}
 
     public static void main(String... args)
+    {
+        createCli().parse(args).run();
+    }
+
+    public static Cli<Runnable> createCli()
+    {
+        return createCliBuilder().build();
+    }
+
+    public static CliBuilder<Runnable> createCliBuilder()
     {
         CliBuilder<Runnable> builder = Cli.<Runnable>builder("git")
                 .withDescription("the stupid content tracker")
@@ -24,9 +34,7 @@ public final class Git
                 .withCommand(RemoteShow.class)
                 .withCommand(RemoteAdd.class);
 
-        Cli<Runnable> gitParser = builder.build();
-
-        gitParser.parse(args).run();
+        return builder;
     }
 
     public static class GitCommand
@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.airline.TestDocumentationGenerator.GitCliSupplier;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static io.airlift.airline.ClassDataSharing.getFeatureVersion;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestClassDataSharing
+{
+    @Test
+    public void testTrainingLoadsAllCommands()
+            throws Exception
+    {
+        Cli<Runnable> cli = Git.createCliBuilder()
+                .withLazyMetadata(true)
+                .build();
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured));
+        try {
+            ClassDataSharing.train(cli);
+        }
+        finally {
+            System.setOut(out);
+        }
+
+        // nothing is printed and no command is run
+        assertEquals(captured.size(), 0);
+        cli.getMetadata().getDefaultGroupCommands().forEach(command -> assertTrue(command.isLoaded(), command.getName()));
+        cli.getMetadata().getCommandGroups().forEach(group ->
+                group.getCommands().forEach(command -> assertTrue(command.isLoaded(), command.getName())));
+    }
+
+    @Test
+    public void testMain()
+            throws Exception
+    {
+        ClassDataSharing.main(new String[] {GitCliSupplier.class.getName()});
+    }
+
+    @Test
+    public void testTrainingCommand()
+    {
+        List<String> command = ClassDataSharing.trainingCommand(Paths.get("app.jsa"), "app.jar", GitCliSupplier.class.getName());
+        assertTrue(command.get(0).endsWith("java"), command.get(0));
+        assertEquals(command.subList(1, command.size()), ImmutableList.of(
+                "-XX:ArchiveClassesAtExit=app.jsa",
+                "-cp",
+                "app.jar",
+                ClassDataSharing.class.getName(),
+                GitCliSupplier.class.getName()));
+
+        assertEquals(ClassDataSharing.launchOptions(Paths.get("app.jsa")), ImmutableList.of("-XX:SharedArchiveFile=app.jsa", "-Xshare:auto"));
+    }
+
+    @Test
+    public void testFeatureVersion()
+    {
+        assertEquals(getFeatureVersion("1.8"), 8);
+        assertEquals(getFeatureVersion("11"), 11);
+        assertEquals(getFeatureVersion("17"), 17);
+        assertEquals(getFeatureVersion("17.0.2"), 17);
+    }
+}
@@ -14,8 +14,15 @@
 package io.airlift.airline;
 
 import io.airlift.airline.Cli.CliBuilder;
+import io.airlift.airline.args.OptionsAllowedValues;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.airline.MetadataJsonExporter.toJson;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -40,4 +47,214 @@ public class TestCli
 
         assertThat(cli.parse("subcommand", "help")).isInstanceOf(Help.class);
     }
+
+    @Test
+    public void testCollectAllErrors()
+    {
+        Cli<Object> cli = Cli.builder("command")
+                .withCommand(OptionsAllowedValues.class)
+                .withCollectAllErrors(true)
+                .build();
+
+        assertThatThrownBy(() -> cli.parse("OptionsAllowedValues", "--mode", "medium"))
+                .isInstanceOf(ParseErrorsException.class)
+                .hasMessageStartingWith("Found 4 errors: " +
+                        "Value for option 'mode' was given as 'medium' which is not in the list of allowed values: [fast, slow]; " +
+                        "Required parameters are missing: files; ")
+                .hasMessageContaining("Required option '--level' is missing")
+                .hasMessageContaining("Required option '--target' is missing");
+
+        assertThatThrownBy(() -> cli.parse("OptionsAllowedValues", "--mode", "medium", "--level", "1", "--target", "x", "file"))
+                .isInstanceOf(ParseOptionIllegalValueException.class);
+    }
+
+    @Test
+    public void testValidateDoesNotCreateCommand()
+    {
+        Cli<Object> cli = Cli.builder("command")
+                .withCommand(Unconstructable.class)
+                .build();
+
+        ParseResult result = cli.validate("unconstructable", "--name", "foo", "bar");
+        assertThat(result.getGroup()).isNull();
+        assertThat(result.getCommand().getType()).isEqualTo(Unconstructable.class);
+        assertThat(result.getParsedOptions().values()).containsExactly("foo");
+        assertThat(result.getParsedArguments()).containsExactly("bar");
+
+        assertThatThrownBy(() -> cli.parse("unconstructable"))
+                .isInstanceOf(ParseException.class)
+                .hasMessageContaining("Unable to create instance");
+
+        assertThatThrownBy(() -> cli.validate("unconstructable", "--name"))
+                .isInstanceOf(ParseOptionMissingValueException.class);
+    }
+
+    @Test
+    public void testMetadataIsShared()
+    {
+        Cli<Object> first = Cli.builder("command")
+                .withCommand(OptionsAllowedValues.class)
+                .build();
+        Cli<Object> second = Cli.builder("other")
+                .withDefaultCommand(OptionsAllowedValues.class)
+                .withCommand(OptionsAllowedValues.class)
+                .build();
+
+        assertThat(second.getMetadata().getDefaultGroupCommands().get(0))
+                .isSameAs(first.getMetadata().getDefaultGroupCommands().get(0))
+                .isSameAs(second.getMetadata().getDefaultCommand())
+                .isSameAs(SingleCommand.singleCommand(OptionsAllowedValues.class).getCommandMetadata());
+    }
+
+    @Test
+    public void testParallelLoading()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Cli<Runnable> parallel = Git.createCliBuilder()
+                    .withParallelLoading(pool)
+                    .build();
+            assertThat(toJson(parallel.getMetadata())).isEqualTo(toJson(Git.createCli().getMetadata()));
+
+            for (int i = 0; i < 20; i++) {
+                assertThatThrownBy(() -> Cli.builder("command")
+                        .withCommands(OptionsAllowedValues.class, FirstConflict.class, SecondConflict.class)
+                        .withParallelLoading(pool)
+                        .build())
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessageStartingWith("Fields FirstConflict.");
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelLoadingRequiresEagerLoading()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertThatThrownBy(() -> Git.createCliBuilder()
+                    .withLazyMetadata(true)
+                    .withParallelLoading(pool)
+                    .build())
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Parallel loading can not be combined with lazy metadata or discovered commands");
+
+            assertThatThrownBy(() -> Git.createCliBuilder()
+                    .withDiscoveredCommands(getClass().getClassLoader())
+                    .withParallelLoading(pool)
+                    .build())
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Parallel loading can not be combined with lazy metadata or discovered commands");
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelArgumentConversion()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Cli<Object> cli = Cli.builder("command")
+                    .withCommand(CheckedArguments.class)
+                    .withParallelArgumentConversion(pool)
+                    .build();
+
+            List<String> args = new ArrayList<>();
+            args.add("checked");
+            for (int i = 0; i < 10_000; i++) {
+                args.add("id" + i);
+                if (i == 5_000) {
+                    args.add("-n");
+                    args.add("42");
+                }
+            }
+            CheckedArguments command = (CheckedArguments) cli.parse(args);
+            assertThat(command.number).isEqualTo(42);
+            assertThat(command.ids).hasSize(10_000);
+            for (int i = 0; i < 10_000; i++) {
+                assertThat(command.ids.get(i).value).isEqualTo("id" + i);
+            }
+
+            // the first bad argument is reported, as with sequential conversion
+            args.set(7_001, "bad");
+            args.set(3_001, "worse");
+            args.set(5_001, "-n");
+            args.set(5_002, "forty-two");
+            for (int i = 0; i < 20; i++) {
+                assertThatThrownBy(() -> cli.parse(args))
+                        .isInstanceOf(ParseOptionConversionException.class)
+                        .hasMessage("ids: can not convert \"worse\" to a CheckedId");
+            }
+
+            // unless an option value in front of it is bad
+            args.set(3_001, "id3000");
+            assertThatThrownBy(() -> cli.parse(args))
+                    .isInstanceOf(ParseOptionConversionException.class)
+                    .hasMessage("number: can not convert \"forty-two\" to a int");
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Command(name = "checked")
+    public static class CheckedArguments
+    {
+        @Option(name = "-n")
+        public int number;
+
+        @Arguments
+        public List<CheckedId> ids;
+    }
+
+    public static class CheckedId
+    {
+        private final String value;
+
+        public CheckedId(String value)
+        {
+            checkArgument(value.startsWith("id"), "Invalid id: %s", value);
+            this.value = value;
+        }
+    }
+
+    @Command(name = "first")
+    public static class FirstConflict
+    {
+        @Option(name = "-a")
+        public String a;
+
+        @Option(name = "-a", arity = 2)
+        public String conflicting;
+    }
+
+    @Command(name = "second")
+    public static class SecondConflict
+    {
+        @Option(name = "-b")
+        public String b;
+
+        @Option(name = "-b", arity = 2)
+        public String conflicting;
+    }
+
+    @Command(name = "unconstructable")
+    public static class Unconstructable
+    {
+        @Option(name = "--name")
+        public String name;
+
+        @Arguments
+        public List<String> arguments;
+
+        public Unconstructable()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
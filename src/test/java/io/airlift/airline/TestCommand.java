@@ -19,6 +19,9 @@
 package io.airlift.airline;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.ImmutableDoubleArray;
+import com.google.common.primitives.ImmutableIntArray;
+import com.google.common.primitives.ImmutableLongArray;
 import io.airlift.airline.Cli.CliBuilder;
 import io.airlift.airline.args.Args1;
 import io.airlift.airline.args.Args2;
@@ -30,6 +33,7 @@ import io.airlift.airline.args.ArgsEnum;
 import io.airlift.airline.args.ArgsInherited;
 import io.airlift.airline.args.ArgsMultipleUnparsed;
 import io.airlift.airline.args.ArgsOutOfMemory;
+import io.airlift.airline.args.ArgsPrimitiveArrays;
 import io.airlift.airline.args.ArgsPrivate;
 import io.airlift.airline.args.ArgsRequired;
 import io.airlift.airline.args.ArgsSingleChar;
@@ -51,7 +55,9 @@ import static com.google.common.collect.Iterables.find;
 import static io.airlift.airline.TestingUtil.singleCommandParser;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TestCommand
 {
@@ -415,6 +421,85 @@ public class TestCommand
         singleCommandParser(ArgsEnum.class).parse("-choice", "A");
     }
 
+    @Test
+    public void enumArgsIgnoreCase()
+    {
+        Cli<ArgsEnum> parser = singleCommandParser(ArgsEnum.class);
+        assertEquals(parser.parse("ArgsEnum", "-level", "error").level, ArgsEnum.Level.ERROR);
+        assertEquals(parser.parse("ArgsEnum", "-level", "Warning").level, ArgsEnum.Level.WARN);
+        assertEquals(parser.parse("ArgsEnum", "-level", "w").level, ArgsEnum.Level.WARN);
+    }
+
+    @Test
+    public void enumArgsInvalidListsConstants()
+    {
+        try {
+            singleCommandParser(ArgsEnum.class).parse("ArgsEnum", "-choice", "one");
+            fail("expected ParseOptionConversionException");
+        }
+        catch (ParseOptionConversionException e) {
+            assertEquals(e.getMessage(), "choice: can not convert \"one\" to a ChoiceType, valid values are [ONE, TWO, THREE]");
+            assertEquals(e.getValidValues(), ImmutableList.of("ONE", "TWO", "THREE"));
+        }
+    }
+
+    @Test
+    public void enumArgsSuggestions()
+    {
+        Cli<Object> cli = Cli.builder("test")
+                .withCommand(ArgsEnum.class)
+                .withCommand(SuggestCommand.class)
+                .build();
+
+        SuggestCommand command = (SuggestCommand) cli.parse("suggest", "ArgsEnum", "-level");
+        assertEquals(ImmutableList.copyOf(command.generateSuggestions()), ImmutableList.of("WARN", "ERROR"));
+    }
+
+    @Test
+    public void primitiveArrays()
+    {
+        ArgsPrimitiveArrays args = singleCommandParser(ArgsPrimitiveArrays.class).parse("ArgsPrimitiveArrays",
+                "-i", "1", "-i", "-2",
+                "-l", "8",
+                "-d", "1.5",
+                "-b", "true", "-b", "false",
+                "-ia", "3", "-la", "4", "-la", "5", "-da", "0.25",
+                "10", "20", "30");
+
+        assertEquals(args.ids, new long[] {10, 20, 30});
+        assertEquals(args.ints, new int[] {1, -2});
+        assertEquals(args.longs, new long[] {7, 8});
+        assertEquals(args.doubles, new double[] {1.5});
+        assertEquals(args.booleans, new boolean[] {true, false});
+        assertEquals(args.intArray, ImmutableIntArray.of(3));
+        assertEquals(args.longArray, ImmutableLongArray.of(4, 5));
+        assertEquals(args.doubleArray, ImmutableDoubleArray.of(0.25));
+    }
+
+    @Test
+    public void primitiveArraysNotSet()
+    {
+        ArgsPrimitiveArrays args = singleCommandParser(ArgsPrimitiveArrays.class).parse("ArgsPrimitiveArrays");
+        assertNull(args.ids);
+        assertNull(args.ints);
+        assertEquals(args.longs, new long[] {7});
+        assertNull(args.intArray);
+    }
+
+    @Test
+    public void primitiveArraysValidate()
+    {
+        ParseResult result = singleCommandParser(ArgsPrimitiveArrays.class).validate("ArgsPrimitiveArrays", "-i", "1", "-i", "2", "3");
+        assertEquals(result.getParsedOptions().values(), ImmutableList.of(1, 2));
+        assertEquals(result.getParsedArguments(), ImmutableList.of(3L));
+    }
+
+    @Test(expectedExceptions = ParseOptionConversionException.class, expectedExceptionsMessageRegExp = "ints: can not convert \"x\" to a int")
+    public void primitiveArraysInvalidValue()
+    {
+        singleCommandParser(ArgsPrimitiveArrays.class).parse("ArgsPrimitiveArrays", "-i", "x");
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     @Test(expectedExceptions = ParseException.class)
     public void shouldThrowIfUnknownOption()
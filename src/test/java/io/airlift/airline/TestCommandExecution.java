@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestCommandExecution
+{
+    private static volatile CountDownLatch started;
+    private static volatile CountDownLatch release;
+    private static volatile CountDownLatch interrupted;
+
+    private final Cli<Object> cli = Cli.builder("admin")
+            .withCommands(Echo.class, Block.class, Help.class)
+            .build();
+
+    @Test
+    public void testResult()
+            throws Exception
+    {
+        assertEquals(cli.executeAsync("echo", "hello").get(10, SECONDS), "hello");
+        assertNull(cli.executeAsync("block", "--run").get(10, SECONDS));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(cli.executeAsync(ImmutableList.of("echo", "pooled"), executor, null).get(10, SECONDS), "pooled");
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailures()
+    {
+        assertThatThrownBy(() -> cli.executeAsync("echo").get(10, SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ParseArgumentsMissingException.class);
+
+        assertThatThrownBy(() -> cli.executeAsync("echo", "fail").get(10, SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .satisfies(e -> assertThat(e.getCause())
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessage("echo failed"));
+    }
+
+    @Test
+    public void testCancelInterrupts()
+            throws Exception
+    {
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        interrupted = new CountDownLatch(1);
+
+        CompletableFuture<Object> future = cli.executeAsync("block");
+        assertTrue(started.await(10, SECONDS));
+        assertTrue(future.cancel(false));
+        assertTrue(interrupted.await(10, SECONDS));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testTimeout()
+            throws Exception
+    {
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        interrupted = new CountDownLatch(1);
+
+        CompletableFuture<Object> future = cli.executeAsync(ImmutableList.of("block"), Duration.ofMillis(50));
+        assertThatThrownBy(() -> future.get(10, SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertTrue(interrupted.await(10, SECONDS));
+
+        // a command completing in time is not affected
+        assertEquals(cli.executeAsync(ImmutableList.of("echo", "quick"), Duration.ofSeconds(10)).get(10, SECONDS), "quick");
+    }
+
+    @Test
+    public void testManyConcurrentCommands()
+            throws Exception
+    {
+        int count = 200;
+        started = new CountDownLatch(count);
+        release = new CountDownLatch(1);
+        interrupted = new CountDownLatch(count);
+
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(cli.executeAsync("block"));
+        }
+
+        // every command is running at the same time
+        assertTrue(started.await(10, SECONDS));
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, SECONDS);
+        assertThat(interrupted.getCount()).isEqualTo(count);
+    }
+
+    @Command(name = "echo")
+    public static class Echo
+            implements Callable<String>
+    {
+        @Arguments(required = true)
+        public String value;
+
+        @Override
+        public String call()
+        {
+            if (value.equals("fail")) {
+                throw new IllegalStateException("echo failed");
+            }
+            return value;
+        }
+    }
+
+    @Command(name = "block")
+    public static class Block
+            implements Runnable
+    {
+        @Option(name = "--run")
+        public boolean run;
+
+        @Override
+        public void run()
+        {
+            if (run) {
+                return;
+            }
+            started.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.inject.Inject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestCommandIndex
+{
+    private static final String REMOTE_COMMAND = "" +
+            "package plugin;\n" +
+            "\n" +
+            "import io.airlift.airline.Command;\n" +
+            "import io.airlift.airline.Option;\n" +
+            "import io.airlift.airline.OptionType;\n" +
+            "\n" +
+            "@Command(name = \"fetch\", group = \"remote\", description = \"Download objects\\tand refs\")\n" +
+            "public class Fetch\n" +
+            "        extends PluginCommand\n" +
+            "{\n" +
+            "    @Option(type = OptionType.GROUP, name = {\"-r\", \"--remote\"})\n" +
+            "    public String remote;\n" +
+            "\n" +
+            "    @Option(name = \"--all\")\n" +
+            "    public boolean all;\n" +
+            "}\n";
+
+    private static final String BASE_COMMAND = "" +
+            "package plugin;\n" +
+            "\n" +
+            "import io.airlift.airline.Option;\n" +
+            "import io.airlift.airline.OptionType;\n" +
+            "\n" +
+            "public abstract class PluginCommand\n" +
+            "        implements Runnable\n" +
+            "{\n" +
+            "    @javax.inject.Inject\n" +
+            "    public Verbosity verbosity = new Verbosity();\n" +
+            "\n" +
+            "    public void run() {}\n" +
+            "}\n";
+
+    private static final String VERBOSITY = "" +
+            "package plugin;\n" +
+            "\n" +
+            "import io.airlift.airline.Option;\n" +
+            "import io.airlift.airline.OptionType;\n" +
+            "\n" +
+            "public class Verbosity\n" +
+            "{\n" +
+            "    @Option(type = OptionType.GLOBAL, name = \"-v\")\n" +
+            "    public boolean verbose;\n" +
+            "}\n";
+
+    private static final String STATUS_COMMAND = "" +
+            "package plugin;\n" +
+            "\n" +
+            "import io.airlift.airline.Command;\n" +
+            "\n" +
+            "@Command(name = \"status\", hidden = true)\n" +
+            "public class Status\n" +
+            "        implements Runnable\n" +
+            "{\n" +
+            "    public void run() {}\n" +
+            "}\n";
+
+    private Path directory;
+
+    @BeforeClass
+    public void compilePlugin()
+            throws Exception
+    {
+        directory = Files.createTempDirectory("airline-plugin");
+        compile(directory,
+                source("plugin/Fetch", REMOTE_COMMAND),
+                source("plugin/PluginCommand", BASE_COMMAND),
+                source("plugin/Verbosity", VERBOSITY),
+                source("plugin/Status", STATUS_COMMAND));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void deletePlugin()
+            throws IOException
+    {
+        if (directory != null) {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testIndex()
+            throws IOException
+    {
+        try (RecordingClassLoader classLoader = new RecordingClassLoader(directory)) {
+            List<CommandIndex.Entry> entries = CommandIndex.load(classLoader);
+            assertEquals(entries.size(), 2);
+
+            CommandIndex.Entry fetch = entries.get(0);
+            assertEquals(fetch.getClassName(), "plugin.Fetch");
+            assertEquals(fetch.getName(), "fetch");
+            assertEquals(fetch.getGroup(), "remote");
+            assertEquals(fetch.getDescription(), "Download objects\tand refs");
+            assertFalse(fetch.isHidden());
+            assertEquals(fetch.getGlobalOptions(), ImmutableList.of("-v"));
+            assertEquals(fetch.getGroupOptions(), ImmutableList.of("--remote", "-r"));
+
+            CommandIndex.Entry status = entries.get(1);
+            assertEquals(status.getClassName(), "plugin.Status");
+            assertEquals(status.getGroup(), "");
+            assertNull(status.getDescription());
+            assertTrue(status.isHidden());
+            assertEquals(status.getGlobalOptions(), ImmutableList.of());
+        }
+    }
+
+    @Test
+    public void testDiscovery()
+            throws Exception
+    {
+        try (RecordingClassLoader classLoader = new RecordingClassLoader(directory)) {
+            Cli<Runnable> cli = Cli.<Runnable>builder("tool")
+                    .withCommand(Help.class)
+                    .withDiscoveredCommands(classLoader)
+                    .build();
+            GlobalMetadata metadata = cli.getMetadata();
+            assertEquals(metadata.getDefaultGroupCommands().get(1).getName(), "status");
+            CommandGroupMetadata remote = metadata.getCommandGroups().get(0);
+            assertEquals(remote.getName(), "remote");
+            assertEquals(remote.getCommands().get(0).getName(), "fetch");
+            assertTrue(classLoader.getLoadedPluginClasses().isEmpty());
+
+            // only the selected command is loaded
+            cli.parse("status");
+            assertEquals(classLoader.getLoadedPluginClasses(), ImmutableList.of("plugin.Status"));
+            assertFalse(remote.getCommands().get(0).isLoaded());
+
+            // a global option loads the commands that the index lists with it
+            cli.parse("-v", "status");
+            assertEquals(classLoader.getLoadedPluginClasses(), ImmutableList.of("plugin.Fetch", "plugin.PluginCommand", "plugin.Status", "plugin.Verbosity"));
+            assertFalse(remote.getCommands().get(0).isLoaded());
+
+            Runnable fetch = cli.parse("-v", "remote", "-r", "origin", "fetch", "--all");
+            assertEquals(fetch.getClass().getName(), "plugin.Fetch");
+            assertTrue(isVerbose(fetch));
+        }
+    }
+
+    @Test
+    public void testLazyMetadata()
+            throws Exception
+    {
+        try (RecordingClassLoader classLoader = new RecordingClassLoader(directory)) {
+            Cli.CliBuilder<Runnable> builder = Cli.<Runnable>builder("tool")
+                    .withLazyMetadata(true)
+                    .withCommand(Help.class)
+                    .withCommand(classLoader.loadClass("plugin.Status").asSubclass(Runnable.class));
+            builder.withGroup("remote")
+                    .withCommand(classLoader.loadClass("plugin.Fetch").asSubclass(Runnable.class));
+            Cli<Runnable> cli = builder.build();
+            assertEquals(classLoader.getLoadedPluginClasses(), ImmutableList.of("plugin.Fetch", "plugin.PluginCommand", "plugin.Status"));
+
+            // the fields of the fetch command are not scanned, so its injected option class is not loaded
+            cli.parse("status");
+            assertFalse(classLoader.getLoadedPluginClasses().contains("plugin.Verbosity"));
+
+            // the index lists the global option for the fetch command only
+            Runnable status = cli.parse("-v", "status");
+            assertEquals(status.getClass().getName(), "plugin.Status");
+            assertTrue(classLoader.getLoadedPluginClasses().contains("plugin.Verbosity"));
+            assertFalse(cli.getMetadata().getCommandGroups().get(0).getCommands().get(0).isLoaded());
+        }
+    }
+
+    @Test
+    public void testIncrementalCompile()
+            throws Exception
+    {
+        Path output = Files.createTempDirectory("airline-plugin");
+        try {
+            compile(output,
+                    source("plugin/Fetch", REMOTE_COMMAND),
+                    source("plugin/PluginCommand", BASE_COMMAND),
+                    source("plugin/Verbosity", VERBOSITY),
+                    source("plugin/Status", STATUS_COMMAND));
+
+            // recompiling one command keeps the entries of the others
+            compile(output, source("plugin/Status", STATUS_COMMAND.replace("hidden = true", "description = \"Show status\"")));
+            assertEquals(indexedCommands(output), ImmutableList.of("plugin.Fetch\tfetch", "plugin.Status\tstatus\tShow status"));
+
+            // entries of deleted commands are dropped
+            Files.delete(output.resolve("plugin/Fetch.class"));
+            compile(output, source("plugin/Status", STATUS_COMMAND));
+            assertEquals(indexedCommands(output), ImmutableList.of("plugin.Status\tstatus\t"));
+        }
+        finally {
+            deleteRecursively(output, ALLOW_INSECURE);
+        }
+    }
+
+    private static boolean isVerbose(Runnable command)
+            throws ReflectiveOperationException
+    {
+        Object verbosity = command.getClass().getField("verbosity").get(command);
+        return verbosity.getClass().getField("verbose").getBoolean(verbosity);
+    }
+
+    @Test
+    public void testInheritedCommand()
+            throws Exception
+    {
+        Path output = Files.createTempDirectory("airline-plugin");
+        try {
+            compile(output, source("plugin/AbstractLog", "" +
+                    "package plugin;\n" +
+                    "\n" +
+                    "@io.airlift.airline.Command(name = \"log\")\n" +
+                    "public abstract class AbstractLog\n" +
+                    "        implements Runnable\n" +
+                    "{\n" +
+                    "}\n"));
+            assertEquals(indexedCommands(output), ImmutableList.of());
+
+            // the subclass is indexed even when it is compiled without its annotated superclass
+            compile(output, source("plugin/Log", "" +
+                    "package plugin;\n" +
+                    "\n" +
+                    "public class Log\n" +
+                    "        extends AbstractLog\n" +
+                    "{\n" +
+                    "    public void run() {}\n" +
+                    "}\n"));
+            assertEquals(indexedCommands(output), ImmutableList.of("plugin.Log\tlog\t"));
+        }
+        finally {
+            deleteRecursively(output, ALLOW_INSECURE);
+        }
+    }
+
+    private static List<String> indexedCommands(Path output)
+            throws IOException
+    {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {output.toUri().toURL()}, null)) {
+            return CommandIndex.load(classLoader).stream()
+                    .map(entry -> entry.getClassName() + "\t" + entry.getName() + (entry.getGroup().isEmpty() ? "\t" + nullToEmpty(entry.getDescription()) : ""))
+                    .collect(toImmutableList());
+        }
+    }
+
+    private static void compile(Path output, JavaFileObject... sources)
+            throws Exception
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classPath = Joiner.on(File.pathSeparator).join(output, codeSource(Command.class), codeSource(Inject.class));
+        JavaCompiler.CompilationTask task = compiler.getTask(
+                null,
+                null,
+                null,
+                ImmutableList.of("-classpath", classPath, "-d", output.toString()),
+                null,
+                ImmutableList.copyOf(sources));
+        task.setProcessors(ImmutableList.of(new CommandIndexProcessor()));
+        assertTrue(task.call(), "compilation failed");
+    }
+
+    private static String codeSource(Class<?> type)
+            throws Exception
+    {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+
+    private static JavaFileObject source(String name, String code)
+    {
+        return new SimpleJavaFileObject(URI.create("string:///" + name + ".java"), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return code;
+            }
+        };
+    }
+
+    private static class RecordingClassLoader
+            extends URLClassLoader
+    {
+        private final Set<String> loadedPluginClasses = ConcurrentHashMap.newKeySet();
+
+        public RecordingClassLoader(Path directory)
+                throws IOException
+        {
+            super(new URL[] {directory.toUri().toURL()}, TestCommandIndex.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException
+        {
+            if (name.startsWith("plugin.")) {
+                loadedPluginClasses.add(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        public List<String> getLoadedPluginClasses()
+        {
+            return ImmutableList.sortedCopyOf(loadedPluginClasses);
+        }
+    }
+}
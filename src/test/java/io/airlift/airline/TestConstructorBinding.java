@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.inject.Inject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.airline.SingleCommand.singleCommand;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the constructor binding of commands that must be compiled with specific
+ * options, so they are compiled when the test runs.
+ */
+public class TestConstructorBinding
+{
+    private static final String POINT_RECORD = "" +
+            "package binding;\n" +
+            "import io.airlift.airline.*;\n" +
+            "import java.util.List;\n" +
+            "@Command(name = \"point\")\n" +
+            "public record Point(\n" +
+            "        @Option(name = \"--name\") String name,\n" +
+            "        @Option(name = \"-x\") int x,\n" +
+            "        @Arguments List<String> tags) {}\n";
+
+    private static final String UNNAMED_CONSTRUCTOR = "" +
+            "package binding;\n" +
+            "import io.airlift.airline.*;\n" +
+            "@Command(name = \"unnamed\")\n" +
+            "public class Unnamed {\n" +
+            "    @Option(name = \"--count\") private final int count;\n" +
+            "    @Option(name = \"--name\") private final String name;\n" +
+            "    @CommandConstructor\n" +
+            "    public Unnamed(String name, int count) {\n" +
+            "        this.name = name;\n" +
+            "        this.count = count;\n" +
+            "    }\n" +
+            "}\n";
+
+    private Path directory;
+
+    @BeforeClass
+    public void createDirectory()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("airline-binding");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void deleteDirectory()
+            throws IOException
+    {
+        if (directory != null) {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testRecord()
+            throws Exception
+    {
+        if (!hasRecords()) {
+            throw new SkipException("records are not supported by this runtime");
+        }
+        Path output = Files.createDirectory(directory.resolve("record"));
+        compile(output, ImmutableList.of(), source("binding/Point", POINT_RECORD));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {output.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> type = classLoader.loadClass("binding.Point");
+
+            ConstructorBinding binding = ConstructorBinding.forType(type);
+            assertEquals(binding.getParameters().stream().map(Field::getName).collect(toImmutableList()), ImmutableList.of("name", "x", "tags"));
+
+            Object point = singleCommand(type).parse("-x", "3", "--name", "origin", "a", "b");
+            assertEquals(type.getMethod("name").invoke(point), "origin");
+            assertEquals(type.getMethod("x").invoke(point), 3);
+            assertEquals(type.getMethod("tags").invoke(point), ImmutableList.of("a", "b"));
+        }
+    }
+
+    @Test
+    public void testParameterNames()
+            throws Exception
+    {
+        Path output = Files.createDirectory(directory.resolve("parameters"));
+        compile(output, ImmutableList.of("-parameters"), source("binding/Unnamed", UNNAMED_CONSTRUCTOR));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {output.toUri().toURL()}, getClass().getClassLoader())) {
+            // the parameters are bound by name, not in the declaration order of the fields
+            Class<?> type = classLoader.loadClass("binding.Unnamed");
+            Object command = singleCommand(type).parse("--name", "foo", "--count", "2");
+            assertEquals(field(command, "name"), "foo");
+            assertEquals(field(command, "count"), 2);
+        }
+    }
+
+    @Test
+    public void testMissingParameterNames()
+            throws Exception
+    {
+        Path output = Files.createDirectory(directory.resolve("noparameters"));
+        compile(output, ImmutableList.of(), source("binding/Unnamed", UNNAMED_CONSTRUCTOR));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {output.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> type = classLoader.loadClass("binding.Unnamed");
+            assertThatThrownBy(() -> singleCommand(type))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("must list the bound fields, or be compiled with -parameters");
+        }
+    }
+
+    private static boolean hasRecords()
+    {
+        try {
+            Class.forName("java.lang.Record");
+            return true;
+        }
+        catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Object field(Object instance, String name)
+            throws ReflectiveOperationException
+    {
+        Field field = instance.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(instance);
+    }
+
+    private static void compile(Path output, List<String> options, JavaFileObject... sources)
+            throws Exception
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classPath = Joiner.on(File.pathSeparator).join(codeSource(Command.class), codeSource(Inject.class));
+        JavaCompiler.CompilationTask task = compiler.getTask(
+                null,
+                null,
+                null,
+                ImmutableList.<String>builder()
+                        .add("-classpath", classPath, "-d", output.toString(), "-proc:none")
+                        .addAll(options)
+                        .build(),
+                null,
+                ImmutableList.copyOf(sources));
+        assertTrue(task.call(), "compilation failed");
+    }
+
+    private static String codeSource(Class<?> type)
+            throws Exception
+    {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+
+    private static JavaFileObject source(String name, String code)
+    {
+        return new SimpleJavaFileObject(URI.create("string:///" + name + ".java"), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return code;
+            }
+        };
+    }
+}
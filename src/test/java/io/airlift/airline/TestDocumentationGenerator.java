@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.airline.Cli.CliBuilder;
+import io.airlift.airline.DocumentationGenerator.Format;
+import io.airlift.airline.args.CommandHidden;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
+
+public class TestDocumentationGenerator
+{
+    @Test
+    public void testPageNames()
+    {
+        DocumentationGenerator generator = new DocumentationGenerator(Git.createCli().getMetadata());
+        assertEquals(generator.getPageNames(), ImmutableList.of("git", "git-help", "git-add", "git-remote", "git-remote-show", "git-remote-add"));
+    }
+
+    @Test
+    public void testMarkdown()
+    {
+        DocumentationGenerator generator = new DocumentationGenerator(Git.createCli().getMetadata());
+        StringBuilder out = new StringBuilder();
+        generator.render("git-remote-add", Format.MARKDOWN, out);
+        assertEquals(out.toString(), "" +
+                "# git remote add\n" +
+                "\n" +
+                "## NAME\n" +
+                "\n" +
+                "```\n" +
+                "git remote add - Adds a remote\n" +
+                "```\n" +
+                "\n" +
+                "## SYNOPSIS\n" +
+                "\n" +
+                "```\n" +
+                "git [-v] remote add [-t <branch>] [--] [<remote>...]\n" +
+                "```\n" +
+                "\n" +
+                "## OPTIONS\n" +
+                "\n" +
+                "```\n" +
+                "-t <branch>\n" +
+                "    Track only a specific branch\n" +
+                "\n" +
+                "-v\n" +
+                "    Verbose mode\n" +
+                "\n" +
+                "--\n" +
+                "    This option can be used to separate command-line options from the\n" +
+                "    list of argument, (useful when arguments might be mistaken for\n" +
+                "    command-line options\n" +
+                "\n" +
+                "<remote>\n" +
+                "    Remote repository to add\n" +
+                "```\n" +
+                "\n");
+    }
+
+    @Test
+    public void testSeeAlso()
+    {
+        DocumentationGenerator generator = new DocumentationGenerator(Git.createCli().getMetadata());
+        StringBuilder out = new StringBuilder();
+        generator.render("git-remote", Format.MARKDOWN, out);
+        assertThat(out.toString()).endsWith("" +
+                "## SEE ALSO\n" +
+                "\n" +
+                "* [git remote show](git-remote-show.md)\n" +
+                "* [git remote add](git-remote-add.md)\n" +
+                "\n");
+    }
+
+    @Test
+    public void testHiddenCommands()
+    {
+        CliBuilder<Object> builder = Cli.builder("test")
+                .withCommand(CommandHidden.class);
+        builder.withGroup("group")
+                .withCommand(Git.RemoteShow.class)
+                .withCommand(CommandHidden.class);
+        DocumentationGenerator generator = new DocumentationGenerator(builder.build().getMetadata());
+        assertEquals(generator.getPageNames(), ImmutableList.of("test", "test-group", "test-group-show"));
+
+        StringBuilder global = new StringBuilder();
+        generator.render("test", Format.MARKDOWN, global);
+        assertThat(global.toString()).doesNotContain("CommandHidden");
+
+        StringBuilder group = new StringBuilder();
+        generator.render("test-group", Format.MARKDOWN, group);
+        assertThat(group.toString())
+                .contains("test [-v] group show [-n]")
+                .doesNotContain("CommandHidden");
+    }
+
+    @Test
+    public void testGroupAndCommandWithSameName()
+    {
+        CliBuilder<Object> builder = Cli.builder("test")
+                .withCommand(Git.Add.class);
+        builder.withGroup("add")
+                .withCommand(Git.RemoteShow.class);
+        DocumentationGenerator generator = new DocumentationGenerator(builder.build().getMetadata());
+        assertEquals(generator.getPageNames(), ImmutableList.of("test", "test-add", "test-add-group", "test-add-show"));
+
+        StringBuilder command = new StringBuilder();
+        generator.render("test-add", Format.MARKDOWN, command);
+        assertThat(command.toString()).contains("test add - Add file contents to the index");
+
+        StringBuilder group = new StringBuilder();
+        generator.render("test-add-group", Format.MARKDOWN, group);
+        assertThat(group.toString()).contains("test [-v] add show [-n]");
+
+        StringBuilder global = new StringBuilder();
+        generator.render("test", Format.MARKDOWN, global);
+        assertThat(global.toString())
+                .contains("* [test add](test-add.md)\n")
+                .contains("* [test add](test-add-group.md)\n");
+    }
+
+    @Test
+    public void testEscaping()
+    {
+        DocumentationGenerator generator = new DocumentationGenerator(Git.createCli().getMetadata());
+
+        StringBuilder html = new StringBuilder();
+        generator.render("git-remote-show", Format.HTML, html);
+        assertThat(html.toString())
+                .startsWith("<!DOCTYPE html>")
+                .contains("<pre>git remote show - Gives some information about the remote &lt;name&gt;\n</pre>")
+                .contains("<pre>-n\n    Do not query remote heads\n")
+                .endsWith("</html>\n");
+
+        StringBuilder man = new StringBuilder();
+        generator.render("git-remote-show", Format.MAN, man);
+        assertThat(man.toString())
+                .startsWith(".TH \"GIT\\-REMOTE\\-SHOW\" \"1\" \"\" \"git\"\n")
+                .contains(".nf\n\\-n\n    Do not query remote heads\n");
+    }
+
+    @Test
+    public void testGenerate()
+            throws Exception
+    {
+        Path directory = Files.createTempDirectory("airline-docs");
+        try {
+            DocumentationGenerator.main(new String[] {GitCliSupplier.class.getName(), directory.toString(), "html", "man"});
+
+            for (String name : new DocumentationGenerator(Git.createCli().getMetadata()).getPageNames()) {
+                assertThat(directory.resolve(name + ".html")).exists();
+                assertThat(directory.resolve(name + ".1")).exists();
+            }
+            List<String> index = Files.readAllLines(directory.resolve("git.html"), UTF_8);
+            assertThat(index).contains("<li><a href=\"git-remote.html\">git remote</a></li>");
+        }
+        finally {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
+    public static class GitCliSupplier
+            implements Supplier<Cli<?>>
+    {
+        @Override
+        public Cli<?> get()
+        {
+            return Git.createCli();
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package io.airlift.airline;
 
 import com.google.common.base.Joiner;
+import io.airlift.airline.Git.RemoteAdd;
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
 import org.testng.annotations.Test;
 
+import static io.airlift.airline.MetadataJsonExporter.toJson;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
 public class TestGit
 {
     @Test
@@ -22,6 +31,35 @@ public class TestGit
         git("help", "remote", "show");
     }
 
+    @Test
+    public void testLazyMetadata()
+    {
+        Cli<Runnable> cli = Git.createCliBuilder()
+                .withLazyMetadata(true)
+                .build();
+        GlobalMetadata metadata = cli.getMetadata();
+        CommandGroupMetadata remote = metadata.getCommandGroups().get(0);
+        CommandMetadata remoteAdd = remote.getCommands().get(1);
+        assertEquals(remoteAdd.getName(), "add");
+        assertEquals(remoteAdd.getDescription(), "Adds a remote");
+        assertFalse(remoteAdd.isLoaded());
+
+        // only the selected command is loaded
+        Runnable command = cli.parse("remote", "add", "-t", "master", "origin");
+        assertEquals(((RemoteAdd) command).branch, "master");
+        assertTrue(remoteAdd.isLoaded());
+        assertFalse(remote.getCommands().get(0).isLoaded());
+        assertFalse(metadata.getDefaultGroupCommands().get(1).isLoaded());
+
+        // global options are resolved from the option declarations, so they do not load other commands
+        command = cli.parse("-v", "remote", "add", "origin");
+        assertTrue(((RemoteAdd) command).verbose);
+        assertFalse(remote.getCommands().get(0).isLoaded());
+        assertFalse(metadata.getDefaultGroupCommands().get(1).isLoaded());
+
+        assertEquals(toJson(metadata), toJson(Git.createCli().getMetadata()));
+    }
+
     private void git(String... args)
     {
         System.out.println("$ git " + Joiner.on(' ').join(args));
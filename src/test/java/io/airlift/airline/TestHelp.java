@@ -31,9 +31,21 @@ import io.airlift.airline.args.ArgsRequired;
 import io.airlift.airline.args.CommandHidden;
 import io.airlift.airline.args.OptionsHidden;
 import io.airlift.airline.args.OptionsRequired;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.OptionMetadata;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.Iterables.find;
 import static io.airlift.airline.SingleCommand.singleCommand;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.testng.Assert.assertEquals;
 
 @Test
@@ -493,4 +505,110 @@ public class TestHelp
                 "\n" +
                 "\n");
     }
+
+    @Test
+    public void testStreamingToWriter()
+    {
+        Cli<Runnable> gitParser = Git.createCli();
+
+        StringBuilder expected = new StringBuilder();
+        Help.help(gitParser.getMetadata(), ImmutableList.of("remote", "add"), expected);
+
+        StringWriter writer = new StringWriter();
+        Help.help(gitParser.getMetadata(), ImmutableList.of("remote", "add"), writer);
+        assertEquals(writer.toString(), expected.toString());
+    }
+
+    @Test
+    public void testWordWrapping()
+    {
+        StringBuilder out = new StringBuilder();
+        new UsagePrinter(out, 20)
+                .newIndentedPrinter(2)
+                .newPrinterWithHangingIndent(4)
+                .append(" the quick\tbrown\n fox jumps over  the lazy dog ")
+                .newline();
+        assertEquals(out.toString(), "" +
+                "  the quick brown fox\n" +
+                "      jumps over the lazy\n" +
+                "      dog\n");
+    }
+
+    @Test
+    public void testTableWithEmptyLeadingCells()
+    {
+        StringBuilder out = new StringBuilder();
+        new UsagePrinter(out, 79)
+                .newIndentedPrinter(2)
+                .appendTable(ImmutableList.of(
+                        ImmutableList.of("name", "value", "note"),
+                        ImmutableList.of("", "second", " x "),
+                        ImmutableList.of("", "", "third"),
+                        ImmutableList.of("", "", "")));
+        assertEquals(out.toString(), "" +
+                "  name   value    note\n" +
+                "  second    x\n" +
+                "  third\n" +
+                "  \n");
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedConstructor()
+    {
+        StringBuilder out = new StringBuilder();
+        AtomicInteger position = new AtomicInteger();
+        new UsagePrinter(out, 20, 2, 4, position)
+                .append("the quick brown fox jumps");
+        assertEquals(out.toString(), "" +
+                "  the quick brown fox\n" +
+                "      jumps");
+        assertEquals(position.get(), 7);
+
+        // a printer sharing the position continues the current line
+        new UsagePrinter(out, 20, 2, 4, position)
+                .append("over");
+        assertEquals(out.toString(), "" +
+                "  the quick brown fox\n" +
+                "      jumps over");
+        assertEquals(position.get(), 12);
+    }
+
+    @Test
+    public void testAppendableFailure()
+    {
+        Appendable failing = new Writer()
+        {
+            @Override
+            public void write(char[] buffer, int offset, int length)
+                    throws IOException
+            {
+                throw new IOException("closed");
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+
+        assertThatThrownBy(() -> Help.help(Git.createCli().getMetadata(), ImmutableList.of(), failing))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("closed");
+    }
+
+    @Test
+    public void testPresortedOptions()
+    {
+        CommandMetadata command = singleCommand(Args1.class).getCommandMetadata();
+
+        List<OptionMetadata> sorted = new ArrayList<>(command.getCommandOptions());
+        sorted.sort(UsageHelper.DEFAULT_OPTION_COMPARATOR);
+        assertEquals(command.getSortedCommandOptions(), sorted);
+
+        OptionMetadata verbose = find(command.getCommandOptions(), option -> option.getOptions().contains("-log"));
+        assertEquals(verbose.getSortName(), "log");
+        assertEquals(verbose.getSortKey(), "log");
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import io.airlift.airline.model.CommandGroupMetadata;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import org.testng.annotations.Test;
+
+import static io.airlift.airline.UsageHelper.DEFAULT_OPTION_COMPARATOR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class TestHelpCache
+{
+    @Test
+    public void testRenderedHelp()
+    {
+        GlobalMetadata global = Git.createCli().getMetadata();
+        CommandGroupMetadata remote = global.getCommandGroups().get(0);
+        CommandMetadata add = remote.getCommands().get(1);
+
+        HelpCache cache = new HelpCache();
+
+        StringBuilder out = new StringBuilder();
+        new CommandUsage(100).usage("git", "remote", add.getName(), add, out);
+        assertEquals(cache.getCommandUsage("git", "remote", add, 100, DEFAULT_OPTION_COMPARATOR), out.toString());
+
+        out = new StringBuilder();
+        new CommandGroupUsage(100).usage(global, remote, out);
+        assertEquals(cache.getCommandGroupUsage(global, remote, 100, DEFAULT_OPTION_COMPARATOR), out.toString());
+
+        out = new StringBuilder();
+        new GlobalUsage(100).usage(global, out);
+        assertEquals(cache.getGlobalUsage(global, 100, DEFAULT_OPTION_COMPARATOR), out.toString());
+
+        out = new StringBuilder();
+        new GlobalUsageSummary(100).usage(global, out);
+        assertEquals(cache.getGlobalUsageSummary(global, 100), out.toString());
+    }
+
+    @Test
+    public void testCaching()
+    {
+        GlobalMetadata global = Git.createCli().getMetadata();
+        CommandMetadata add = global.getDefaultGroupCommands().get(1);
+
+        HelpCache cache = new HelpCache();
+        String help = cache.getCommandUsage("git", null, add, 79, DEFAULT_OPTION_COMPARATOR);
+        assertSame(cache.getCommandUsage("git", null, add, 79, DEFAULT_OPTION_COMPARATOR), help);
+        assertEquals(cache.size(), 1);
+
+        // every width and comparator is cached separately
+        cache.getCommandUsage("git", null, add, 40, DEFAULT_OPTION_COMPARATOR);
+        cache.getCommandUsage("git", null, add, 79, null);
+        assertEquals(cache.size(), 3);
+
+        cache.invalidateAll();
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testPreRender()
+    {
+        GlobalMetadata global = Git.createCli().getMetadata();
+
+        HelpCache cache = new HelpCache();
+        cache.preRender(global, 79, DEFAULT_OPTION_COMPARATOR);
+
+        // summary, global usage, two default group commands, one group and its two commands
+        assertEquals(cache.size(), 7);
+    }
+
+    @Test
+    public void testEviction()
+    {
+        GlobalMetadata global = Git.createCli().getMetadata();
+
+        HelpCache cache = new HelpCache(2);
+        for (int columnSize = 40; columnSize < 50; columnSize++) {
+            cache.getGlobalUsageSummary(global, columnSize);
+        }
+        assertEquals(cache.size(), 2);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import io.airlift.airline.TestDocumentationGenerator.GitCliSupplier;
+import io.airlift.airline.args.OptionsAllowedValues;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.airlift.airline.MetadataJsonExporter.toJson;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
+
+public class TestMetadataJsonExporter
+{
+    @Test
+    public void testGit()
+    {
+        String json = toJson(Git.createCli().getMetadata());
+        assertThat(json)
+                .startsWith("{\n" +
+                        "  \"schemaVersion\": 1,\n" +
+                        "  \"name\": \"git\",\n" +
+                        "  \"description\": \"the stupid content tracker\",\n" +
+                        "  \"options\": [\n" +
+                        "    {\n" +
+                        "      \"type\": \"GLOBAL\",\n" +
+                        "      \"names\": [\"-v\"],\n" +
+                        "      \"title\": \"verbose\",\n" +
+                        "      \"description\": \"Verbose mode\",\n" +
+                        "      \"arity\": 0,\n" +
+                        "      \"required\": false,\n" +
+                        "      \"hidden\": false,\n" +
+                        "      \"multiValued\": false,\n" +
+                        "      \"allowedValues\": null,\n" +
+                        "      \"ignoreCase\": false,\n" +
+                        "      \"environmentVariable\": null,\n" +
+                        "      \"configKey\": null\n" +
+                        "    }\n" +
+                        "  ],\n" +
+                        "  \"defaultCommand\": \"help\",\n")
+                .contains("" +
+                        "      \"name\": \"remote\",\n" +
+                        "      \"description\": \"Manage set of tracked repositories\",\n" +
+                        "      \"options\": [],\n" +
+                        "      \"defaultCommand\": \"show\",\n")
+                .contains("\"description\": \"Gives some information about the remote <name>\"")
+                .endsWith("  ]\n}\n");
+    }
+
+    @Test
+    public void testAllowedValues()
+    {
+        Cli<Object> cli = Cli.builder("test")
+                .withCommand(OptionsAllowedValues.class)
+                .build();
+
+        String json = toJson(cli.getMetadata());
+        assertThat(json)
+                .contains("\"names\": [\"--color\"],")
+                .contains("\"allowedValues\": [\"Red\", \"Green\"],\n" +
+                        "          \"ignoreCase\": true,\n")
+                .contains("\"arity\": 2,")
+                .contains("\"required\": true,");
+    }
+
+    @Test
+    public void testEscaping()
+    {
+        Cli<Object> cli = Cli.builder("test")
+                .withDescription("quote \" backslash \\ newline \n tab \t bell \u0007")
+                .withCommand(OptionsAllowedValues.class)
+                .build();
+
+        assertThat(toJson(cli.getMetadata()))
+                .contains("\"description\": \"quote \\\" backslash \\\\ newline \\n tab \\t bell \\u0007\",");
+    }
+
+    @Test
+    public void testMain()
+            throws Exception
+    {
+        Path directory = Files.createTempDirectory("airline-json");
+        Path file = directory.resolve("git.json");
+        try {
+            MetadataJsonExporter.main(new String[] {GitCliSupplier.class.getName(), file.toString()});
+            assertEquals(new String(Files.readAllBytes(file), UTF_8), toJson(Git.createCli().getMetadata()));
+        }
+        finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+}
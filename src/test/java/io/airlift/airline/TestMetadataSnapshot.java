@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.airline.Git.RemoteAdd;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import io.airlift.airline.model.MetadataLoader;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.airline.MetadataJsonExporter.toJson;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestMetadataSnapshot
+{
+    @Test
+    public void testRoundTrip()
+            throws IOException
+    {
+        GlobalMetadata expected = Git.createCli().getMetadata();
+        URL snapshot = writeSnapshot(expected);
+
+        GlobalMetadata actual = MetadataSnapshot.load(snapshot, getClass().getClassLoader()).getMetadata();
+        assertEquals(toJson(actual), toJson(expected));
+        assertEquals(usage(actual), usage(expected));
+    }
+
+    @Test
+    public void testParseWithSnapshot()
+            throws IOException
+    {
+        URL snapshot = writeSnapshot(Git.createCli().getMetadata());
+        Cli<Runnable> cli = Git.createCliBuilder()
+                .withMetadataSnapshot(snapshot)
+                .build();
+
+        assertEquals(cli.getMetadata().getDefaultGroupCommands().get(1).getTypeName(), Git.Add.class.getName());
+
+        Runnable command = cli.parse("-v", "remote", "add", "-t", "master", "origin", "git@github.com:airlift/airline.git");
+        assertTrue(command instanceof RemoteAdd);
+        RemoteAdd remoteAdd = (RemoteAdd) command;
+        assertTrue(remoteAdd.verbose);
+        assertEquals(remoteAdd.branch, "master");
+        assertEquals(remoteAdd.remote.size(), 2);
+    }
+
+    @Test
+    public void testMismatchedStructureFallsBack()
+            throws IOException
+    {
+        Cli<Runnable> other = Git.createCliBuilder()
+                .withCommand(Help.class)
+                .build();
+        URL snapshot = writeSnapshot(other.getMetadata());
+
+        Cli<Runnable> cli = Git.createCliBuilder()
+                .withMetadataSnapshot(snapshot)
+                .build();
+        assertEquals(toJson(cli.getMetadata()), toJson(Git.createCli().getMetadata()));
+        assertEquals(cli.getMetadata().getDefaultGroupCommands().size(), 2);
+
+        // the fallback honors parallel loading
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Cli<Runnable> parallel = Git.createCliBuilder()
+                    .withMetadataSnapshot(snapshot)
+                    .withParallelLoading(pool)
+                    .build();
+            assertEquals(toJson(parallel.getMetadata()), toJson(Git.createCli().getMetadata()));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testChangedClassIsDetected()
+    {
+        byte[] bytes = MetadataSnapshot.toByteArray(Git.createCli().getMetadata());
+        assertTrue(MetadataSnapshot.read(ByteBuffer.wrap(bytes), getClass().getClassLoader()).isCurrent());
+
+        changeFirstChecksum(bytes);
+        assertFalse(MetadataSnapshot.read(ByteBuffer.wrap(bytes), getClass().getClassLoader()).isCurrent());
+    }
+
+    @Test
+    public void testVerificationIsDefault()
+            throws IOException
+    {
+        byte[] bytes = MetadataSnapshot.toByteArray(Git.createCli().getMetadata());
+        changeFirstChecksum(bytes);
+        Path file = Files.createTempFile("airline", ".snapshot");
+        file.toFile().deleteOnExit();
+        Files.write(file, bytes);
+        URL snapshot = file.toUri().toURL();
+        CommandMetadata scanned = MetadataLoader.loadCommand(Git.Add.class);
+
+        // the changed class makes the CLI scan the command classes
+        Cli<Runnable> cli = Git.createCliBuilder()
+                .withMetadataSnapshot(snapshot)
+                .build();
+        assertSame(cli.getMetadata().getDefaultGroupCommands().get(1), scanned);
+
+        // without verification, only the structure is checked
+        cli = Git.createCliBuilder()
+                .withMetadataSnapshot(snapshot)
+                .withMetadataSnapshotVerification(false)
+                .build();
+        assertNotSame(cli.getMetadata().getDefaultGroupCommands().get(1), scanned);
+    }
+
+    @Test
+    public void testChecksumsOfJarEntries()
+            throws IOException
+    {
+        byte[] bytes = MetadataSnapshot.toByteArray(Git.createCli().getMetadata());
+
+        // the snapshot was written from the class directories, and is verified against a jar of the same classes
+        Path jar = Files.createTempFile("airline", ".jar");
+        try {
+            writeJar(jar, ImmutableList.of(codeSource(Cli.class), codeSource(Git.class)));
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[] {jar.toUri().toURL()}, null)) {
+                assertTrue(MetadataSnapshot.read(ByteBuffer.wrap(bytes), classLoader).isCurrent());
+
+                changeFirstChecksum(bytes);
+                assertFalse(MetadataSnapshot.read(ByteBuffer.wrap(bytes), classLoader).isCurrent());
+            }
+        }
+        finally {
+            Files.delete(jar);
+        }
+    }
+
+    private static void changeFirstChecksum(byte[] snapshot)
+    {
+        // magic, version, structure hash, class count, then the first class name and its checksum
+        ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+        int checksumOffset = 4 + 4 + 8 + 4;
+        checksumOffset += 4 + buffer.getInt(checksumOffset);
+        buffer.putLong(checksumOffset, buffer.getLong(checksumOffset) + 1);
+    }
+
+    private static Path codeSource(Class<?> type)
+    {
+        try {
+            return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+        }
+        catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static void writeJar(Path jar, List<Path> directories)
+            throws IOException
+    {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Path directory : directories) {
+                List<Path> classFiles;
+                try (Stream<Path> files = Files.walk(directory)) {
+                    classFiles = files.filter(file -> file.toString().endsWith(".class")).collect(toImmutableList());
+                }
+                for (Path file : classFiles) {
+                    out.putNextEntry(new JarEntry(directory.relativize(file).toString().replace(File.separatorChar, '/')));
+                    Files.copy(file, out);
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    private static URL writeSnapshot(GlobalMetadata metadata)
+            throws IOException
+    {
+        Path file = Files.createTempFile("airline", ".snapshot");
+        file.toFile().deleteOnExit();
+        Files.write(file, MetadataSnapshot.toByteArray(metadata));
+        return file.toUri().toURL();
+    }
+
+    private static String usage(GlobalMetadata metadata)
+    {
+        StringBuilder out = new StringBuilder();
+        Help.help(metadata, ImmutableList.of(), out);
+        Help.help(metadata, ImmutableList.of("remote", "add"), out);
+        return out.toString();
+    }
+}
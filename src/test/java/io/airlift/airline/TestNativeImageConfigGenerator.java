@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2012 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.airline.args.Args1;
+import io.airlift.airline.args.ArgsArityString;
+import io.airlift.airline.args.ArgsBooleanArity;
+import io.airlift.airline.args.ArgsConstructor;
+import io.airlift.airline.args.ArgsEnum;
+import io.airlift.airline.args.ArgsInherited;
+import io.airlift.airline.args.ArgsPrivate;
+import io.airlift.airline.args.CommandLineArgs;
+import io.airlift.airline.args.OptionsAllowedValues;
+import io.airlift.airline.model.CommandMetadata;
+import io.airlift.airline.model.GlobalMetadata;
+import io.airlift.airline.model.OptionMetadata;
+import org.testng.annotations.Test;
+
+import javax.inject.Inject;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.airlift.airline.NativeImageConfigGenerator.toJson;
+import static io.airlift.airline.OptionType.GLOBAL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestNativeImageConfigGenerator
+{
+    @Test
+    public void testConfig()
+    {
+        Cli<Object> cli = Cli.builder("deployer")
+                .withCommand(Deploy.class)
+                .build();
+
+        assertEquals(toJson(cli.getMetadata()), "" +
+                "[\n" +
+                "  {\n" +
+                "    \"name\": \"io.airlift.airline.TestNativeImageConfigGenerator$BaseCommand\",\n" +
+                "    \"allDeclaredFields\": true,\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"verbose\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"name\": \"io.airlift.airline.TestNativeImageConfigGenerator$Deploy\",\n" +
+                "    \"allDeclaredFields\": true,\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"commandMetadata\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"files\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"mode\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"priority\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"target\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"timeout\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      }\n" +
+                "    ],\n" +
+                "    \"methods\": [\n" +
+                "      {\n" +
+                "        \"name\": \"<init>\",\n" +
+                "        \"parameterTypes\": []\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"name\": \"io.airlift.airline.TestNativeImageConfigGenerator$Mode\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"FAST\"\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"SAFE\"\n" +
+                "      }\n" +
+                "    ],\n" +
+                "    \"methods\": [\n" +
+                "      {\n" +
+                "        \"name\": \"values\",\n" +
+                "        \"parameterTypes\": []\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"name\": \"io.airlift.airline.TestNativeImageConfigGenerator$Priority\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"HIGH\"\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"LOW\"\n" +
+                "      }\n" +
+                "    ],\n" +
+                "    \"methods\": [\n" +
+                "      {\n" +
+                "        \"name\": \"fromString\",\n" +
+                "        \"parameterTypes\": [\"java.lang.String\"]\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"name\": \"values\",\n" +
+                "        \"parameterTypes\": []\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"name\": \"io.airlift.airline.TestNativeImageConfigGenerator$Target\",\n" +
+                "    \"allDeclaredFields\": true,\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"host\",\n" +
+                "        \"allowWrite\": true\n" +
+                "      }\n" +
+                "    ],\n" +
+                "    \"methods\": [\n" +
+                "      {\n" +
+                "        \"name\": \"<init>\",\n" +
+                "        \"parameterTypes\": []\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"name\": \"java.math.BigDecimal\",\n" +
+                "    \"methods\": [\n" +
+                "      {\n" +
+                "        \"name\": \"<init>\",\n" +
+                "        \"parameterTypes\": [\"java.lang.String\"]\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"name\": \"java.util.LinkedList\",\n" +
+                "    \"methods\": [\n" +
+                "      {\n" +
+                "        \"name\": \"<init>\",\n" +
+                "        \"parameterTypes\": []\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  }\n" +
+                "]\n");
+
+        Deploy deploy = (Deploy) cli.parse("-v", "deploy", "--host", "example.com", "--mode", "careful", "--priority", "!", "--timeout", "1.5", "a", "b");
+        assertTrue(deploy.verbose);
+        assertEquals(deploy.target.host, "example.com");
+        assertEquals(deploy.mode, Mode.SAFE);
+        assertEquals(deploy.priority, Priority.HIGH);
+        assertEquals(deploy.files, new LinkedList<>(ImmutableList.of("a", "b")));
+    }
+
+    @Test
+    public void testCoversReflectiveAccess()
+    {
+        Cli<Object> cli = Cli.builder("test")
+                .withCommands(Args1.class, ArgsArityString.class, ArgsBooleanArity.class, ArgsConstructor.class, ArgsEnum.class,
+                        ArgsInherited.class, ArgsPrivate.class, CommandLineArgs.class, OptionsAllowedValues.class)
+                .withCommand(Help.class)
+                .build();
+        GlobalMetadata metadata = cli.getMetadata();
+        String json = toJson(metadata);
+
+        for (CommandMetadata command : metadata.getDefaultGroupCommands()) {
+            String commandEntry = entry(json, command.getType());
+            if (command.getConstructorBinding() == null) {
+                assertThat(commandEntry).contains("\"name\": \"<init>\",\n        \"parameterTypes\": []");
+            }
+            else {
+                assertThat(commandEntry).contains("\"queryAllDeclaredConstructors\": true");
+            }
+            for (Class<?> cls = command.getType(); !Object.class.equals(cls); cls = cls.getSuperclass()) {
+                assertThat(entry(json, cls)).contains("\"allDeclaredFields\": true");
+            }
+
+            for (OptionMetadata option : command.getAllOptions()) {
+                for (Accessor accessor : option.getAccessors()) {
+                    assertFieldsWritable(json, accessor.getPath());
+                }
+                assertConvertible(json, option.getJavaType());
+            }
+            if (command.getArguments() != null) {
+                for (Accessor accessor : command.getArguments().getAccessors()) {
+                    assertFieldsWritable(json, accessor.getPath());
+                }
+                assertConvertible(json, command.getArguments().getJavaType());
+            }
+            for (Accessor accessor : command.getMetadataInjections()) {
+                assertFieldsWritable(json, accessor.getPath());
+            }
+        }
+    }
+
+    @Test
+    public void testConversionMembers()
+    {
+        String json = toJson(Cli.builder("test")
+                .withCommands(ArgumentConversion.ArgumentConversions.class, ArgsEnum.class, Resize.class)
+                .build()
+                .getMetadata());
+
+        // the member each type is converted with, as found by TypeConverter
+        assertMethods(json, ArgumentConversion.ArgumentFromString.class, "fromString[java.lang.String]");
+        assertMethods(json, ArgumentConversion.ArgumentValueOf.class, "valueOf[java.lang.String]");
+        assertMethods(json, ArgumentConversion.ArgumentConstructor.class, "<init>[java.lang.String]");
+
+        // enums are converted by EnumLookup, which lists the constants, reads the Alias
+        // annotation of their fields and looks for fromString
+        assertMethods(json, ArgsEnum.ChoiceType.class, "values[]");
+        assertReadFields(json, ArgsEnum.ChoiceType.class, "ONE", "THREE", "TWO");
+        assertMethods(json, ArgsEnum.Level.class, "values[]");
+        assertReadFields(json, ArgsEnum.Level.class, "ERROR", "WARN");
+        assertMethods(json, TestTypeConverter.Size.class, "fromString[java.lang.String]", "values[]");
+        assertReadFields(json, TestTypeConverter.Size.class, "LARGE", "SMALL");
+    }
+
+    private static void assertMethods(String json, Class<?> type, String... methods)
+    {
+        List<String> actual = new ArrayList<>();
+        Matcher matcher = Pattern.compile("\"name\": \"([^\"]+)\",\n        \"parameterTypes\": \\[(.*)]").matcher(entry(json, type));
+        while (matcher.find()) {
+            actual.add(matcher.group(1) + "[" + matcher.group(2).replace("\"", "") + "]");
+        }
+        assertEquals(actual, ImmutableList.copyOf(methods), type.getName());
+    }
+
+    private static void assertReadFields(String json, Class<?> type, String... fields)
+    {
+        List<String> actual = new ArrayList<>();
+        Matcher matcher = Pattern.compile("\"name\": \"([^\"]+)\"\n").matcher(entry(json, type));
+        while (matcher.find()) {
+            actual.add(matcher.group(1));
+        }
+        assertEquals(actual, ImmutableList.copyOf(fields), type.getName());
+    }
+
+    private static void assertFieldsWritable(String json, List<Field> path)
+    {
+        for (Field field : path) {
+            assertThat(entry(json, field.getDeclaringClass()))
+                    .contains("\"name\": \"" + field.getName() + "\",\n        \"allowWrite\": true");
+        }
+    }
+
+    private static void assertConvertible(String json, Class<?> type)
+    {
+        if (type.isPrimitive() || type.getName().startsWith("java.lang.")) {
+            return;
+        }
+        if (type.isEnum()) {
+            assertThat(entry(json, type)).contains("\"name\": \"values\",\n        \"parameterTypes\": []");
+            for (Object constant : type.getEnumConstants()) {
+                assertThat(entry(json, type)).contains("\"name\": \"" + ((Enum<?>) constant).name() + "\"\n");
+            }
+            return;
+        }
+        assertThat(entry(json, type)).containsPattern("\"name\": \"(fromString|valueOf|<init>)\",\n        \"parameterTypes\": \\[\"java.lang.String\"]");
+    }
+
+    private static String entry(String json, Class<?> type)
+    {
+        String name = "    \"name\": \"" + type.getName() + "\",\n";
+        int start = json.indexOf(name);
+        assertThat(start).as("entry for %s", type.getName()).isGreaterThanOrEqualTo(0);
+        int end = json.indexOf("\n  }", start);
+        return json.substring(start, end);
+    }
+
+    @Command(name = "resize")
+    public static class Resize
+    {
+        @Option(name = "--size")
+        public TestTypeConverter.Size size;
+    }
+
+    public static class BaseCommand
+    {
+        @Option(type = GLOBAL, name = "-v")
+        public boolean verbose;
+    }
+
+    @Command(name = "deploy")
+    public static class Deploy
+            extends BaseCommand
+    {
+        @Inject
+        public Target target;
+
+        @Inject
+        public CommandMetadata commandMetadata;
+
+        @Option(name = "--mode")
+        public Mode mode;
+
+        @Option(name = "--priority")
+        public Priority priority;
+
+        @Option(name = "--timeout")
+        public BigDecimal timeout;
+
+        @Arguments
+        public LinkedList<String> files;
+    }
+
+    public static class Target
+    {
+        @Option(name = "--host")
+        public String host;
+    }
+
+    public enum Mode
+    {
+        FAST,
+        @Alias("careful")
+        SAFE
+    }
+
+    public enum Priority
+    {
+        LOW, HIGH;
+
+        public static Priority fromString(String value)
+        {
+            return value.equals("!") ? HIGH : valueOf(value);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airline.model.GlobalMetadata;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.airline.MetadataJsonExporter.toJson;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestOptionDefaults
+{
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("airline-defaults");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testEnvironment()
+    {
+        Cli<Object> cli = cli(ImmutableMap.of("DEPLOY_HOST", "example.com", "DEPLOY_PAIR", " a\tb ", "DEPLOY_DRY_RUN", "TRUE"), null);
+
+        Deploy deploy = (Deploy) cli.parse("deploy");
+        assertEquals(deploy.host, "example.com");
+        assertEquals(deploy.pair, ImmutableList.of("a", "b"));
+        assertTrue(deploy.dryRun);
+        assertEquals(deploy.port, 80);
+
+        // the command line wins
+        deploy = (Deploy) cli.parse("deploy", "--host", "localhost");
+        assertEquals(deploy.host, "localhost");
+
+        assertThatThrownBy(() -> cli(ImmutableMap.of("DEPLOY_HOST", "h", "DEPLOY_DRY_RUN", "maybe"), null).parse("deploy"))
+                .isInstanceOf(ParseOptionConversionException.class)
+                .hasMessage("dryRun: can not convert \"maybe\" to a boolean");
+    }
+
+    @Test
+    public void testRequiredOption()
+    {
+        Cli<Object> cli = cli(ImmutableMap.of(), null);
+        assertThatThrownBy(() -> cli.parse("deploy"))
+                .isInstanceOf(ParseOptionMissingException.class);
+
+        ParseResult result = cli(ImmutableMap.of("DEPLOY_HOST", "example.com"), null).validate("deploy");
+        assertEquals(result.getOptionValue("--host", String.class), "example.com");
+    }
+
+    @Test
+    public void testProperties()
+            throws IOException
+    {
+        Path config = write("deploy.properties", "" +
+                "# deployment defaults\n" +
+                "deploy.host = from-config\n" +
+                "deploy.port: 8080\n" +
+                "deploy.tags = one\n");
+
+        Deploy deploy = (Deploy) cli(ImmutableMap.of(), config).parse("deploy");
+        assertEquals(deploy.host, "from-config");
+        assertEquals(deploy.port, 8080);
+        assertEquals(deploy.tags, ImmutableList.of("one"));
+
+        // the environment wins over the configuration file
+        deploy = (Deploy) cli(ImmutableMap.of("DEPLOY_HOST", "from-environment"), config).parse("deploy", "--port", "9090");
+        assertEquals(deploy.host, "from-environment");
+        assertEquals(deploy.port, 9090);
+    }
+
+    @Test
+    public void testToml()
+            throws IOException
+    {
+        Path config = write("deploy.toml", "" +
+                "# deployment defaults\n" +
+                "[deploy]\n" +
+                "host = \"example.com\"  # comment\n" +
+                "port = 8_443\n" +
+                "tags = [ 'blue', \"green\\tgreen\", \"\\u00e9\" ]\n" +
+                "\n" +
+                "[\"other\".section]\n" +
+                "ignored = true\n");
+
+        Deploy deploy = (Deploy) cli(ImmutableMap.of(), config).parse("deploy");
+        assertEquals(deploy.host, "example.com");
+        assertEquals(deploy.port, 8443);
+        assertEquals(deploy.tags, ImmutableList.of("blue", "green\tgreen", "\u00e9"));
+
+        assertEquals(ConfigFile.load(config).get("other.section.ignored"), ImmutableList.of("true"));
+        assertEquals(ConfigFile.load(config).get("missing"), ImmutableList.of());
+    }
+
+    @Test
+    public void testInvalidToml()
+            throws IOException
+    {
+        Path config = write("invalid.toml", "" +
+                "[deploy]\n" +
+                "host = \"unterminated\n");
+
+        assertThatThrownBy(() -> ConfigFile.load(config))
+                .isInstanceOf(ParseException.class)
+                .hasMessage("Invalid configuration file " + config + " at line 2: unexpected end of line");
+
+        Path duplicate = write("duplicate.toml", "a = 1\na = 2\n");
+        assertThatThrownBy(() -> ConfigFile.load(duplicate))
+                .isInstanceOf(ParseException.class)
+                .hasMessage("Invalid configuration file " + duplicate + " at line 2: duplicate key a");
+    }
+
+    @Test
+    public void testConfigFileIsReadOnce()
+            throws IOException
+    {
+        Path config = write("deploy.properties", "deploy.host = first\n");
+        Cli<Object> cli = cli(ImmutableMap.of(), config);
+        assertEquals(((Deploy) cli.parse("deploy")).host, "first");
+
+        Files.delete(config);
+        assertEquals(((Deploy) cli.parse("deploy")).host, "first");
+
+        // a missing file provides no defaults
+        assertThatThrownBy(() -> cli(ImmutableMap.of(), config).parse("deploy"))
+                .isInstanceOf(ParseOptionMissingException.class);
+    }
+
+    @Test
+    public void testSingleCommand()
+            throws IOException
+    {
+        Path config = write("deploy.properties", "deploy.host = single\ndeploy.port = 8080\n");
+        Deploy deploy = SingleCommand.singleCommand(Deploy.class)
+                .withEnvironment(ImmutableMap.of())
+                .withConfigFile(config)
+                .parse();
+        assertEquals(deploy.host, "single");
+
+        // the environment and the configuration file can be set in either order
+        deploy = SingleCommand.singleCommand(Deploy.class)
+                .withEnvironment(ImmutableMap.of("DEPLOY_HOST", "variable"))
+                .withConfigFile(config)
+                .parse();
+        assertEquals(deploy.host, "variable");
+        assertEquals(deploy.port, 8080);
+
+        deploy = SingleCommand.singleCommand(Deploy.class)
+                .withConfigFile(config)
+                .withEnvironment(ImmutableMap.of("DEPLOY_HOST", "variable"))
+                .parse();
+        assertEquals(deploy.host, "variable");
+        assertEquals(deploy.port, 8080);
+    }
+
+    @Test
+    public void testMetadata()
+    {
+        GlobalMetadata metadata = cli(ImmutableMap.of(), null).getMetadata();
+        assertThat(toJson(metadata))
+                .contains("\"environmentVariable\": \"DEPLOY_HOST\",\n" +
+                        "          \"configKey\": \"deploy.host\"\n");
+
+        // the sources survive a snapshot
+        GlobalMetadata snapshot = MetadataSnapshot.read(ByteBuffer.wrap(MetadataSnapshot.toByteArray(metadata)), getClass().getClassLoader()).getMetadata();
+        assertEquals(toJson(snapshot), toJson(metadata));
+        assertEquals(snapshot.getDefaultGroupCommands().get(0).getAllOptions(), metadata.getDefaultGroupCommands().get(0).getAllOptions());
+        assertNull(metadata.getDefaultGroupCommands().get(0).getAllOptions().stream()
+                .filter(option -> option.getTitle().equals("verbose"))
+                .findFirst().get().getEnvironmentVariable());
+    }
+
+    @Test
+    public void testHelp()
+    {
+        StringBuilder out = new StringBuilder();
+        Help.help(cli(ImmutableMap.of(), null).getMetadata().getDefaultGroupCommands().get(0), out);
+        assertThat(out.toString())
+                .contains("[--host <host>]")
+                .contains("Host to deploy to\n" +
+                        "            Defaults to the environment variable DEPLOY_HOST or the\n" +
+                        "            configuration key deploy.host.\n")
+                .contains("Defaults to the configuration key deploy.port.");
+        assertFalse(out.toString().contains("verbose <"));
+    }
+
+    private Cli<Object> cli(Map<String, String> environment, Path config)
+    {
+        Cli.CliBuilder<Object> builder = Cli.builder("tool")
+                .withCommand(Deploy.class)
+                .withEnvironment(environment);
+        if (config != null) {
+            builder.withConfigFile(config);
+        }
+        return builder.build();
+    }
+
+    private Path write(String name, String content)
+            throws IOException
+    {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(UTF_8));
+        return file;
+    }
+
+    @Command(name = "deploy")
+    public static class Deploy
+    {
+        @Option(name = "--host", description = "Host to deploy to", required = true, environmentVariable = "DEPLOY_HOST", configKey = "deploy.host")
+        public String host;
+
+        @Option(name = "--port", description = "Port", configKey = "deploy.port")
+        public int port = 80;
+
+        @Option(name = "--tag", configKey = "deploy.tags")
+        public List<String> tags;
+
+        @Option(name = "--pair", arity = 2, environmentVariable = "DEPLOY_PAIR")
+        public List<String> pair;
+
+        @Option(name = "--dry-run", environmentVariable = "DEPLOY_DRY_RUN")
+        public boolean dryRun;
+
+        @Option(name = "--verbose")
+        public boolean verbose;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestParseState
+{
+    @Test
+    public void testDerivedStatesAreIndependent()
+    {
+        ParseState base = ParseState.newInstance().withArgument("a");
+        ParseState first = base.withArgument("b");
+        ParseState second = base.withArgument("c").withArgument("d");
+        ParseState third = first.withArgument("e");
+
+        assertEquals(base.getParsedArguments(), ImmutableList.of("a"));
+        assertEquals(first.getParsedArguments(), ImmutableList.of("a", "b"));
+        assertEquals(second.getParsedArguments(), ImmutableList.of("a", "c", "d"));
+        assertEquals(third.getParsedArguments(), ImmutableList.of("a", "b", "e"));
+    }
+
+    @Test
+    public void testManyValues()
+    {
+        ParseState state = ParseState.newInstance();
+        for (int i = 0; i < 100_000; i++) {
+            state = state.withPrimitiveArgument(int.class, i).withUnparsedInput("x");
+        }
+
+        assertEquals(state.getParsedArguments().size(), 100_000);
+        assertEquals(state.getParsedArguments().get(99_999), 99_999);
+        assertEquals(state.getUnparsedInput().size(), 100_000);
+        assertEquals(state.getArgumentValues().getClass(), PrimitiveValues.class);
+    }
+}
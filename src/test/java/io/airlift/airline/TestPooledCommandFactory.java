@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airline.model.GlobalMetadata;
+import org.testng.annotations.Test;
+
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class TestPooledCommandFactory
+{
+    private final Cli<Object> cli = Cli.builder("test")
+            .withCommand(Pooled.class)
+            .build();
+
+    @Test
+    public void testReleasedCommandIsReset()
+    {
+        PooledCommandFactory<Object> factory = new PooledCommandFactory<>();
+
+        Pooled first = (Pooled) cli.parse(factory, "pooled", "-c", "7", "-n", "a", "-n", "b", "--verbose", "-l", "x", "one", "two");
+        assertEquals(first.count, 7);
+        assertEquals(first.names, ImmutableList.of("default", "a", "b"));
+        assertEquals(first.levels, ImmutableList.of("x"));
+        assertEquals(first.arguments, ImmutableList.of("one", "two"));
+        assertEquals(first.common.verbose, true);
+        assertNotNull(first.global);
+        List<String> names = first.names;
+        CommonOptions common = first.common;
+        factory.release(first);
+
+        Pooled second = (Pooled) cli.parse(factory, "pooled");
+        assertSame(second, first);
+        assertEquals(second.count, 1);
+        assertSame(second.names, names);
+        assertEquals(second.names, ImmutableList.of("default"));
+        assertNull(second.levels);
+        assertNull(second.arguments);
+        assertSame(second.common, common);
+        assertEquals(second.common.verbose, false);
+        assertEquals(second.common.tags, ImmutableList.of());
+        assertNotNull(second.global);
+    }
+
+    @Test
+    public void testPoolsArePerThread()
+            throws Exception
+    {
+        PooledCommandFactory<Object> factory = new PooledCommandFactory<>();
+        Object command = cli.parse(factory, "pooled");
+        factory.release(command);
+
+        Object otherThread = CompletableFuture.supplyAsync(() -> cli.parse(factory, "pooled")).get();
+        assertNotSame(otherThread, command);
+        assertSame(cli.parse(factory, "pooled"), command);
+        assertNotSame(cli.parse(factory, "pooled"), command);
+    }
+
+    @Test
+    public void testMutableDefaultsAreNotShared()
+    {
+        Cli<Object> cli = Cli.builder("test")
+                .withCommands(MutableDefaults.class, FinalMutableDefault.class)
+                .build();
+        PooledCommandFactory<Object> factory = new PooledCommandFactory<>();
+
+        MutableDefaults first = (MutableDefaults) cli.parse(factory, "mutable", "-n", "7");
+        first.properties.put("key", "value");
+        first.counter.incrementAndGet();
+        first.log.append("first");
+        Map<String, String> properties = first.properties;
+        AtomicLong counter = first.counter;
+        StringBuilder log = first.log;
+        factory.release(first);
+
+        MutableDefaults second = (MutableDefaults) cli.parse(factory, "mutable");
+        assertSame(second, first);
+        assertEquals(second.number, 0);
+        assertEquals(second.properties, ImmutableMap.of("default", "value"));
+        assertNotSame(second.properties, properties);
+        assertEquals(second.counter.get(), 0);
+        assertNotSame(second.counter, counter);
+        assertEquals(second.log.toString(), "");
+        assertNotSame(second.log, log);
+
+        // a final field holding a mutable value cannot be reset, so the command is not pooled
+        FinalMutableDefault command = (FinalMutableDefault) cli.parse(factory, "final-mutable");
+        command.log.append("first");
+        factory.release(command);
+        FinalMutableDefault next = (FinalMutableDefault) cli.parse(factory, "final-mutable");
+        assertNotSame(next, command);
+        assertEquals(next.log.toString(), "");
+    }
+
+    @Command(name = "pooled")
+    public static class Pooled
+    {
+        @Inject
+        public GlobalMetadata global;
+
+        @Inject
+        public CommonOptions common;
+
+        @Option(name = "-c")
+        public int count = 1;
+
+        @Option(name = "-n")
+        public List<String> names = new ArrayList<>(ImmutableList.of("default"));
+
+        @Option(name = "-l")
+        public List<String> levels;
+
+        @Arguments
+        public List<String> arguments;
+    }
+
+    @Command(name = "mutable")
+    public static class MutableDefaults
+    {
+        @Option(name = "-n")
+        public int number;
+
+        public Map<String, String> properties = new HashMap<>(ImmutableMap.of("default", "value"));
+
+        public AtomicLong counter = new AtomicLong();
+
+        public StringBuilder log = new StringBuilder();
+    }
+
+    @Command(name = "final-mutable")
+    public static class FinalMutableDefault
+    {
+        @Option(name = "-n")
+        public int number;
+
+        public final StringBuilder log = new StringBuilder();
+    }
+
+    public static class CommonOptions
+    {
+        @Option(name = "--verbose")
+        public boolean verbose;
+
+        @Option(name = "--tag")
+        public final List<String> tags = new ArrayList<>();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestScript
+{
+    private static final List<String> RECORDED = new CopyOnWriteArrayList<>();
+
+    private final Cli<Object> cli = Cli.builder("runbook")
+            .withCommands(Record.class, Rendezvous.class, Fail.class)
+            .build();
+
+    @Test
+    public void testTokenize()
+    {
+        assertTokens(Script.tokenize(""), false);
+        assertTokens(Script.tokenize("   # only a comment"), false);
+        assertTokens(Script.tokenize("record  a\tb # c d"), false, "record", "a", "b");
+        assertTokens(Script.tokenize("record 'a \"b\" \\c' \"d 'e' \\\"f\\\"\""), false, "record", "a \"b\" \\c", "d 'e' \"f\"");
+        assertTokens(Script.tokenize("record a\\ b c#d '' &"), true, "record", "a b", "c#d", "");
+        assertTokens(Script.tokenize("record & # comment"), true, "record");
+
+        // a quoted or escaped ampersand is an argument
+        assertTokens(Script.tokenize("record '&'"), false, "record", "&");
+        assertTokens(Script.tokenize("record \"&\""), false, "record", "&");
+        assertTokens(Script.tokenize("record \\&"), false, "record", "&");
+        assertTokens(Script.tokenize("record & a"), false, "record", "&", "a");
+
+        assertThatThrownBy(() -> Script.tokenize("record 'a"))
+                .isInstanceOf(ParseException.class)
+                .hasMessage("Unterminated single quote");
+        assertThatThrownBy(() -> Script.tokenize("record a\\"))
+                .isInstanceOf(ParseException.class)
+                .hasMessage("Trailing backslash");
+    }
+
+    @Test
+    public void testAllErrorsReportedBeforeRunning()
+            throws Exception
+    {
+        String script = "" +
+                "record first\n" +
+                "\n" +
+                "record --exit one\n" +
+                "unknown\n" +
+                "record \"unterminated\n";
+
+        assertThatThrownBy(() -> cli.parseScript(new StringReader(script)))
+                .isInstanceOf(ParseErrorsException.class)
+                .hasMessage("Found 3 errors: " +
+                        "Line 3: exitCode: can not convert \"one\" to a int; " +
+                        "Line 4: Command 'unknown' not recognized; " +
+                        "Line 5: Unterminated double quote");
+    }
+
+    @Test
+    public void testRunSequentially()
+            throws Exception
+    {
+        RECORDED.clear();
+        Script<Object> script = cli.parseScript(new StringReader("" +
+                "# runbook\n" +
+                "record 'first line'\n" +
+                "record second --exit 3\n" +
+                "record third\n"));
+        assertEquals(script.getLines().size(), 3);
+        assertEquals(script.getLines().get(1).getLineNumber(), 3);
+        assertFalse(script.getLines().get(1).isIndependent());
+
+        ScriptResult result = script.run();
+        assertEquals(RECORDED, ImmutableList.of("first line", "second"));
+        assertEquals(result.getExitCode(), 3);
+        assertEquals(result.getStatuses().size(), 3);
+        assertTrue(result.getStatuses().get(2).isSkipped());
+        assertNull(result.getStatuses().get(1).getFailure());
+        assertEquals(result.toString(), "" +
+                "line 2: exit 0: record 'first line'\n" +
+                "line 3: exit 3: record second --exit 3\n" +
+                "line 4: skipped: record third\n");
+    }
+
+    @Test
+    public void testRunIndependentLinesConcurrently()
+            throws Exception
+    {
+        RECORDED.clear();
+        Rendezvous.latch = new CountDownLatch(3);
+        Script<Object> script = cli.parseScript(new StringReader("" +
+                "record before\n" +
+                "rendezvous a &\n" +
+                "rendezvous b &\n" +
+                "rendezvous c &\n" +
+                "record after\n" +
+                "rendezvous alone\n"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ScriptResult result = script.run(executor);
+            assertEquals(RECORDED.get(0), "before");
+            assertThat(RECORDED.subList(1, 4)).containsExactlyInAnyOrder("a", "b", "c");
+            assertEquals(RECORDED.get(4), "after");
+
+            // the last line runs alone, so it can not meet the others
+            assertEquals(result.getExitCode(), 1);
+            ScriptResult.Status alone = result.getStatuses().get(5);
+            assertEquals(alone.getLineNumber(), 6);
+            assertThat(alone.getFailure()).isInstanceOf(IllegalStateException.class);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQuotedAmpersand()
+            throws Exception
+    {
+        RECORDED.clear();
+        Script<Object> script = cli.parseScript(new StringReader("record '&'\n"));
+        assertFalse(script.getLines().get(0).isIndependent());
+        assertEquals(script.run().getExitCode(), 0);
+        assertEquals(RECORDED, ImmutableList.of("&"));
+    }
+
+    @Test
+    public void testErrorRecordedAsFailure()
+            throws Exception
+    {
+        RECORDED.clear();
+        Script<Object> script = cli.parseScript(new StringReader("" +
+                "record first\n" +
+                "fail\n" +
+                "record third\n"));
+
+        ScriptResult result = script.run();
+        assertEquals(result.getExitCode(), 1);
+        assertEquals(RECORDED, ImmutableList.of("first"));
+        assertThat(result.getStatuses().get(1).getFailure()).isInstanceOf(AssertionError.class);
+        assertTrue(result.getStatuses().get(2).isSkipped());
+    }
+
+    private static void assertTokens(Script.Tokens tokens, boolean independent, String... words)
+    {
+        assertEquals(tokens.getWords(), ImmutableList.copyOf(words));
+        assertEquals(tokens.isIndependent(), independent);
+    }
+
+    @Command(name = "fail")
+    public static class Fail
+            implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            throw new AssertionError("failed");
+        }
+    }
+
+    @Command(name = "record")
+    public static class Record
+            implements Callable<Integer>
+    {
+        @Option(name = "--exit")
+        public int exitCode;
+
+        @Arguments
+        public String value;
+
+        @Override
+        public Integer call()
+        {
+            RECORDED.add(value);
+            return exitCode;
+        }
+    }
+
+    @Command(name = "rendezvous")
+    public static class Rendezvous
+            implements Runnable
+    {
+        private static volatile CountDownLatch latch;
+
+        @Arguments
+        public String value;
+
+        @Override
+        public void run()
+        {
+            CountDownLatch latch = value.equals("alone") ? new CountDownLatch(2) : Rendezvous.latch;
+            latch.countDown();
+            try {
+                if (!latch.await(value.equals("alone") ? 0 : 10, SECONDS)) {
+                    throw new IllegalStateException("Nobody met " + value);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            RECORDED.add(value);
+        }
+    }
+}
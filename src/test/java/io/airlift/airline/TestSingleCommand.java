@@ -25,6 +25,7 @@ import io.airlift.airline.args.Args2;
 import io.airlift.airline.args.ArgsArityString;
 import io.airlift.airline.args.ArgsBooleanArity;
 import io.airlift.airline.args.ArgsBooleanArity0;
+import io.airlift.airline.args.ArgsConstructor;
 import io.airlift.airline.args.ArgsEnum;
 import io.airlift.airline.args.ArgsInherited;
 import io.airlift.airline.args.ArgsMultipleUnparsed;
@@ -33,6 +34,7 @@ import io.airlift.airline.args.ArgsPrivate;
 import io.airlift.airline.args.ArgsRequired;
 import io.airlift.airline.args.ArgsSingleChar;
 import io.airlift.airline.args.Arity1;
+import io.airlift.airline.args.OptionsAllowedValues;
 import io.airlift.airline.args.OptionsRequired;
 import io.airlift.airline.command.CommandAdd;
 import io.airlift.airline.command.CommandCommit;
@@ -50,9 +52,12 @@ import static com.google.common.base.Predicates.compose;
 import static com.google.common.base.Predicates.equalTo;
 import static com.google.common.collect.Iterables.find;
 import static io.airlift.airline.SingleCommand.singleCommand;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
 
 public class TestSingleCommand
 {
@@ -267,6 +272,129 @@ public class TestSingleCommand
         singleCommand(OptionsRequired.class).parse("--required", "foo");
     }
 
+    @Test(expectedExceptions = ParseOptionIllegalValueException.class, expectedExceptionsMessageRegExp = ".*'medium'.*\\[fast, slow\\]")
+    public void disallowedValue()
+    {
+        singleCommand(OptionsAllowedValues.class).parse("--level", "1", "--target", "x", "--mode", "medium", "file");
+    }
+
+    @Test
+    public void allowedValuesIgnoreCase()
+    {
+        OptionsAllowedValues args = singleCommand(OptionsAllowedValues.class).parse("--level", "1", "--target", "x", "--color", "rED", "--pair", "b", "a", "file");
+        assertEquals(args.color, "Red");
+        assertEquals(args.pair, Arrays.asList("b", "a"));
+
+        assertThatThrownBy(() -> singleCommand(OptionsAllowedValues.class).parse("--level", "1", "--target", "x", "--color=blue", "file"))
+                .isInstanceOf(ParseOptionIllegalValueException.class)
+                .hasMessage("Value for option 'color' was given as 'blue' which is not in the list of allowed values: [Red, Green]");
+
+        assertThatThrownBy(() -> singleCommand(OptionsAllowedValues.class).parse("--level", "1", "--target", "x", "--mode", "FAST", "file"))
+                .isInstanceOf(ParseOptionIllegalValueException.class);
+
+        assertThatThrownBy(() -> singleCommand(OptionsAllowedValues.class).parse("--level", "1", "--target", "x", "--pair", "a", "c", "file"))
+                .isInstanceOf(ParseOptionIllegalValueException.class)
+                .hasMessageContaining("'c'");
+    }
+
+    @Test
+    public void validateOnly()
+    {
+        ParseResult result = singleCommand(OptionsRequired.class).validate("--required", "foo");
+        assertEquals(result.getCommand().getName(), "OptionsRequired");
+        assertEquals(result.getParsedOptions().size(), 1);
+        assertEquals(result.getParsedOptions().values().iterator().next(), "foo");
+
+        assertThatThrownBy(() -> singleCommand(OptionsRequired.class).validate())
+                .isInstanceOf(ParseOptionMissingException.class);
+    }
+
+    @Test
+    public void constructorBinding()
+    {
+        ArgsConstructor args = singleCommand(ArgsConstructor.class).parse("-v", "--level", "3", "--tag", "a", "--tag", "b", "x", "y");
+        assertTrue(args.isVerbose());
+        assertEquals(args.getLevel(), 3);
+        assertEquals(args.getTags(), ImmutableList.of("a", "b"));
+        assertEquals(args.getFiles(), ImmutableList.of("x", "y"));
+        assertEquals(args.getCommandMetadata().getName(), "ArgsConstructor");
+
+        // unspecified values are passed as null or the primitive default
+        args = singleCommand(ArgsConstructor.class).parse();
+        assertFalse(args.isVerbose());
+        assertEquals(args.getLevel(), 0);
+        assertEquals(args.getTags(), null);
+        assertEquals(args.getFiles(), null);
+    }
+
+    @Test
+    public void constructorBindingByName()
+    {
+        NamedConstructor command = singleCommand(NamedConstructor.class).parse("--name", "foo", "--count", "2");
+        assertEquals(command.name, "foo");
+        assertEquals(command.count, 2);
+    }
+
+    @Test
+    public void constructorBindingRejectsUnboundFields()
+    {
+        assertThatThrownBy(() -> singleCommand(UnboundConstructor.class))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("is not a constructor parameter");
+    }
+
+    @Test
+    public void typedParseResult()
+    {
+        ParseResult result = singleCommand(OptionsAllowedValues.class)
+                .validate("--level", "3", "--target", "x", "--mode", "fast", "--mode", "slow", "--pair", "a", "b", "one", "two");
+        assertEquals(result.getCommandName(), "OptionsAllowedValues");
+        assertEquals(result.getGroupName(), null);
+
+        assertTrue(result.hasOption("--mode"));
+        assertFalse(result.hasOption("--color"));
+        assertEquals(result.getOptionValue("--mode", String.class), "slow");
+        assertEquals(result.getOptionValues("--mode", String.class), ImmutableList.of("fast", "slow"));
+        assertEquals(result.getOptionValue("--color", String.class), null);
+        assertEquals(result.getOptionValues("--pair", String.class), ImmutableList.of("a", "b"));
+        assertEquals(result.getOptionValue("--pair", String.class), "b");
+
+        // lookup by title and primitive type
+        assertEquals((int) result.getOptionValue("level", int.class), 3);
+        assertEquals(result.getOptionValue("--level", Integer.class), Integer.valueOf(3));
+
+        assertEquals(result.getArguments(String.class), ImmutableList.of("one", "two"));
+        assertEquals(result.getOptionValuesByTitle().get("level"), ImmutableList.of(3));
+        assertEquals(result.getOptionValuesByTitle().get("mode"), ImmutableList.of("fast", "slow"));
+
+        assertThatThrownBy(() -> result.getOptionValue("--unknown", String.class))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> result.getOptionValue("--level", String.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void collectAllErrors()
+    {
+        SingleCommand<OptionsAllowedValues> parser = singleCommand(OptionsAllowedValues.class).withCollectAllErrors(true);
+
+        assertEquals(parser.parse("--level", "1", "--target", "x", "--mode", "fast", "file").mode, "fast");
+
+        ParseErrorsException exception = expectThrows(ParseErrorsException.class, () -> parser.parse("--mode", "medium", "--level"));
+        assertThat(exception.getErrors())
+                .extracting(Object::getClass)
+                .containsExactly(
+                        ParseOptionIllegalValueException.class,
+                        ParseArgumentsMissingException.class,
+                        ParseOptionMissingValueException.class,
+                        ParseOptionMissingException.class);
+
+        // a single error is reported as is
+        assertThatThrownBy(() -> parser.parse("--level", "1", "file"))
+                .isInstanceOf(ParseOptionMissingException.class)
+                .hasMessage("Required option '--target' is missing");
+    }
+
     private void verifyCommandOrdering(String[] commandNames, Class<?>... commands)
     {
         CliBuilder<Object> builder = Cli.builder("foo");
@@ -402,4 +530,37 @@ public class TestSingleCommand
         @Option(name = "-i", description = "Interactive add mode")
         public Boolean interactive = false;
     }
+
+    @Command(name = "named")
+    public static class NamedConstructor
+    {
+        @Option(name = "--count")
+        private final int count;
+
+        @Option(name = "--name")
+        private final String name;
+
+        @CommandConstructor({"name", "count"})
+        private NamedConstructor(String name, int count)
+        {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+    @Command(name = "unbound")
+    public static class UnboundConstructor
+    {
+        @Option(name = "--name")
+        private final String name;
+
+        @Option(name = "--count")
+        private int count;
+
+        @CommandConstructor("name")
+        public UnboundConstructor(String name)
+        {
+            this.name = name;
+        }
+    }
 }
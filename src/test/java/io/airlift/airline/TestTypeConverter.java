@@ -3,11 +3,14 @@ package io.airlift.airline;
 import com.google.common.primitives.Primitives;
 import org.testng.annotations.Test;
 
+import java.time.Duration;
 import java.util.Date;
+import java.util.Locale;
 import java.util.UUID;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TestTypeConverter
 {
@@ -399,6 +402,140 @@ public class TestTypeConverter
         valueTest(Date.class, "abc123!#%");
     }
 
+    @Test
+    public void count()
+    {
+        assertEquals(tc.convert("name", Count.class, "10k"), Count.of(10_000));
+        assertEquals(tc.convert("name", Count.class, "-2K"), Count.of(-2_000));
+        assertEquals(tc.convert("name", Count.class, "3M"), Count.of(3_000_000));
+        assertEquals(tc.convert("name", Count.class, "3m"), Count.of(3_000_000));
+        assertEquals(tc.convert("name", Count.class, "+4g"), Count.of(4_000_000_000L));
+        assertEquals(tc.convert("name", Count.class, "5T"), Count.of(5_000_000_000_000L));
+        assertEquals(tc.convert("name", Count.class, "007"), Count.of(7));
+        assertEquals(Count.valueOf("12").toLong(), 12);
+    }
+
+    @Test
+    public void countInvalid()
+    {
+        for (String value : new String[] {"", "k", "10x", "1.5k", "10kB", "10000000T"}) {
+            try {
+                tc.convert("name", Count.class, value);
+                fail("expected exception for " + value);
+            }
+            catch (ParseOptionConversionException e) {
+                assertEquals(e.getMessage(), "name: can not convert \"" + value + "\" to a Count");
+            }
+        }
+    }
+
+    @Test(expectedExceptions = ParseOptionConversionException.class, expectedExceptionsMessageRegExp = "name: can not convert \"10k\" to a int")
+    public void intWithoutSuffix()
+    {
+        tc.convert("name", int.class, "10k");
+    }
+
+    @Test(expectedExceptions = ParseOptionConversionException.class, expectedExceptionsMessageRegExp = "name: can not convert \"5M\" to a long")
+    public void longWithoutSuffix()
+    {
+        tc.convert("name", long.class, "5M");
+    }
+
+    @Test
+    public void duration()
+    {
+        assertEquals(tc.convert("name", Duration.class, "30s"), Duration.ofSeconds(30));
+        assertEquals(tc.convert("name", Duration.class, "1.5h"), Duration.ofMinutes(90));
+        assertEquals(tc.convert("name", Duration.class, "1h30m"), Duration.ofMinutes(90));
+        assertEquals(tc.convert("name", Duration.class, "250ms"), Duration.ofMillis(250));
+        assertEquals(tc.convert("name", Duration.class, "10us"), Duration.ofNanos(10_000));
+        assertEquals(tc.convert("name", Duration.class, "5ns"), Duration.ofNanos(5));
+        assertEquals(tc.convert("name", Duration.class, "2 d"), Duration.ofDays(2));
+        assertEquals(tc.convert("name", Duration.class, "-1m"), Duration.ofMinutes(-1));
+        assertEquals(tc.convert("name", Duration.class, "0"), Duration.ZERO);
+        assertEquals(tc.convert("name", Duration.class, "PT30S"), Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void durationInvalid()
+    {
+        for (String value : new String[] {"", "s", "30", "30x", "1.h", "30sec", "-", "1h 5"}) {
+            try {
+                tc.convert("name", Duration.class, value);
+                fail("expected exception for " + value);
+            }
+            catch (ParseOptionConversionException e) {
+                assertEquals(e.getMessage(), "name: can not convert \"" + value + "\" to a Duration");
+                assertTrue(e.getCause() instanceof RuntimeException);
+            }
+        }
+    }
+
+    @Test
+    public void dataSize()
+    {
+        assertEquals(tc.convert("name", DataSize.class, "512B"), DataSize.ofBytes(512));
+        assertEquals(tc.convert("name", DataSize.class, "2kB"), DataSize.ofBytes(2_048));
+        assertEquals(tc.convert("name", DataSize.class, "512MB"), DataSize.ofBytes(512L << 20));
+        assertEquals(tc.convert("name", DataSize.class, "1.5 GB"), DataSize.ofBytes(1_610_612_736));
+        assertEquals(tc.convert("name", DataSize.class, " 3TB "), DataSize.ofBytes(3L << 40));
+        assertEquals(tc.convert("name", DataSize.class, "1PB"), DataSize.ofBytes(1L << 50));
+        assertEquals(DataSize.valueOf("0.5kB").toBytes(), 512);
+    }
+
+    @Test
+    public void dataSizeInvalid()
+    {
+        for (String value : new String[] {"", "512", "MB", "-1MB", "1.MB", "1XB", "1mb", "1KB", "1MiB", "1M", "1 MB x", "99999PB"}) {
+            try {
+                tc.convert("name", DataSize.class, value);
+                fail("expected exception for " + value);
+            }
+            catch (ParseOptionConversionException e) {
+                assertEquals(e.getMessage(), "name: can not convert \"" + value + "\" to a DataSize");
+            }
+        }
+    }
+
+    @Test
+    public void enumConstants()
+    {
+        assertEquals(tc.convert("name", Mode.class, "fast"), Mode.fast);
+        assertEquals(tc.convert("name", Mode.class, "FAST"), Mode.FAST);
+        assertEquals(tc.convert("name", Mode.class, "Slow", true), Mode.SLOW);
+        assertEquals(tc.convert("name", Mode.class, "s", true), Mode.SLOW);
+    }
+
+    @Test(expectedExceptions = ParseOptionConversionException.class, expectedExceptionsMessageRegExp = "name: can not convert \"Fast\" to a Mode, valid values are \\[fast, FAST, SLOW\\]")
+    public void enumConstantsAmbiguousIgnoringCase()
+    {
+        tc.convert("name", Mode.class, "Fast", true);
+    }
+
+    @Test
+    public void enumFromString()
+    {
+        assertEquals(tc.convert("name", Size.class, "small"), Size.SMALL);
+    }
+
+    public enum Mode
+    {
+        fast,
+        FAST,
+        @Alias("S")
+        SLOW
+    }
+
+    public enum Size
+    {
+        SMALL, LARGE;
+
+        public static Size fromString(String value)
+        {
+            return valueOf(value.toUpperCase(Locale.ENGLISH));
+        }
+    }
+
     private void valueTest(Class<?> type, String testValue)
     {
         Object convertedType = tc.convert("name", type, testValue);
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.airlift.airline.args;
+
+import io.airlift.airline.Arguments;
+import io.airlift.airline.Command;
+import io.airlift.airline.CommandConstructor;
+import io.airlift.airline.Option;
+import io.airlift.airline.model.CommandMetadata;
+
+import javax.inject.Inject;
+
+import java.util.List;
+
+@Command(name = "ArgsConstructor")
+public class ArgsConstructor
+{
+    @Option(name = "-v")
+    private final boolean verbose;
+
+    @Option(name = "--level")
+    private final int level;
+
+    @Option(name = "--tag")
+    private final List<String> tags;
+
+    @Arguments
+    private final List<String> files;
+
+    @Inject
+    private final CommandMetadata commandMetadata;
+
+    @CommandConstructor
+    public ArgsConstructor(boolean verbose, int level, List<String> tags, List<String> files, CommandMetadata commandMetadata)
+    {
+        this.verbose = verbose;
+        this.level = level;
+        this.tags = tags;
+        this.files = files;
+        this.commandMetadata = commandMetadata;
+    }
+
+    public boolean isVerbose()
+    {
+        return verbose;
+    }
+
+    public int getLevel()
+    {
+        return level;
+    }
+
+    public List<String> getTags()
+    {
+        return tags;
+    }
+
+    public List<String> getFiles()
+    {
+        return files;
+    }
+
+    public CommandMetadata getCommandMetadata()
+    {
+        return commandMetadata;
+    }
+}
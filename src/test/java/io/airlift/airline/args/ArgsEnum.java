@@ -18,6 +18,7 @@
 
 package io.airlift.airline.args;
 
+import io.airlift.airline.Alias;
 import io.airlift.airline.Command;
 import io.airlift.airline.Option;
 
@@ -34,6 +35,16 @@ public class ArgsEnum
         ONE, TWO, THREE
     }
 
+    public enum Level
+    {
+        @Alias({"warning", "w"})
+        WARN,
+        ERROR
+    }
+
     @Option(name = "-choice", description = "Choice parameter")
     public ChoiceType choice = ChoiceType.ONE;
+
+    @Option(name = "-level", description = "Level parameter", ignoreCase = true)
+    public Level level;
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.airlift.airline.args;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+import com.google.common.primitives.ImmutableIntArray;
+import com.google.common.primitives.ImmutableLongArray;
+import io.airlift.airline.Arguments;
+import io.airlift.airline.Command;
+import io.airlift.airline.Option;
+
+@Command(name = "ArgsPrimitiveArrays")
+public class ArgsPrimitiveArrays
+{
+    @Arguments
+    public long[] ids;
+
+    @Option(name = "-i")
+    public int[] ints;
+
+    @Option(name = "-l")
+    public long[] longs = {7};
+
+    @Option(name = "-d")
+    public double[] doubles;
+
+    @Option(name = "-b")
+    public boolean[] booleans;
+
+    @Option(name = "-ia")
+    public ImmutableIntArray intArray;
+
+    @Option(name = "-la")
+    public ImmutableLongArray longArray;
+
+    @Option(name = "-da")
+    public ImmutableDoubleArray doubleArray;
+}
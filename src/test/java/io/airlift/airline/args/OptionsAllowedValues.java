@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2010 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airline.args;
+
+import io.airlift.airline.Arguments;
+import io.airlift.airline.Command;
+import io.airlift.airline.Option;
+
+import java.util.List;
+
+@Command(name = "OptionsAllowedValues")
+public class OptionsAllowedValues
+{
+    @Option(name = "--mode", allowedValues = {"fast", "slow"})
+    public String mode;
+
+    @Option(name = "--color", allowedValues = {"Red", "Green"}, ignoreCase = true)
+    public String color;
+
+    @Option(name = "--pair", arity = 2, allowedValues = {"a", "b"})
+    public List<String> pair;
+
+    @Option(name = "--level", title = "level", required = true)
+    public int level;
+
+    @Option(name = "--target", required = true)
+    public String target;
+
+    @Arguments(required = true)
+    public List<String> files;
+}